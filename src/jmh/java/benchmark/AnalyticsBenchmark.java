@@ -0,0 +1,59 @@
+package benchmark;
+
+import analytics.ColumnarExpenseStore;
+import analytics.ExpenseAnalytics;
+import analytics.ExpenseDashboard;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A three-year dashboard over a snapshot built in memory, so the sizes can
+ * go well past what {@link ExpenseData} seeds into a store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class AnalyticsBenchmark {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2022, 1, 1);
+    private static final int DAYS = 3 * 365;
+
+    @Param({"100000", "1000000", "5000000"})
+    public int rows;
+
+    private ColumnarExpenseStore snapshot;
+
+    @Setup(Level.Trial)
+    public void build() {
+        SplittableRandom random = new SplittableRandom(42);
+        Expense.ExpenseCategory[] categories = Expense.ExpenseCategory.values();
+        ColumnarExpenseStore.Builder builder = new ColumnarExpenseStore.Builder();
+        for (int i = 0; i < rows; i++) {
+            builder.add(i + 1, FIRST_DAY.plusDays((long) i * DAYS / rows),
+                    categories[random.nextInt(categories.length)],
+                    random.nextInt(1, 20_000), "gasto " + random.nextInt(500));
+        }
+        snapshot = builder.build();
+    }
+
+    @Benchmark
+    public ExpenseDashboard dashboard() {
+        return ExpenseAnalytics.compute(snapshot, FIRST_DAY, FIRST_DAY.plusDays(DAYS), 10);
+    }
+}
@@ -0,0 +1,90 @@
+package benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files and fails when a benchmark got slower
+ * than the threshold.
+ * <p>
+ * Usage: {@code CompareResults baseline.json current.json [thresholdPercent]},
+ * threshold 10 by default.
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Uso: CompareResults <base.json> <actual.json> [umbral %]");
+            System.exit(2);
+        }
+        Map<String, Result> baseline = load(Path.of(args[0]));
+        Map<String, Result> current = load(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        System.out.printf("%-70s %14s %14s %9s%n", "benchmark", "base", "actual", "cambio");
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f %9s%n", entry.getKey(), "-", after.score, "nuevo");
+                continue;
+            }
+            // Positive means worse, whichever direction the mode counts as better.
+            double change = (after.score - before.score) / before.score * 100 * (after.higherIsBetter ? -1 : 1);
+            boolean regressed = change > threshold;
+            regressions += regressed ? 1 : 0;
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before.score, after.score, change,
+                    regressed ? "  REGRESIÓN" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmarks empeoraron más de " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return Results keyed by benchmark name and parameters, e.g. {@code RepositoryBenchmark.findAll[rows=1000]}
+     */
+    private static Map<String, Result> load(Path file) throws IOException {
+        Map<String, Result> results = new TreeMap<>();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            for (JsonElement element : JsonParser.parseReader(reader).getAsJsonArray()) {
+                JsonObject run = element.getAsJsonObject();
+                String name = run.get("benchmark").getAsString();
+                name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+
+                Map<String, String> params = new LinkedHashMap<>();
+                if (run.has("params")) {
+                    for (Map.Entry<String, JsonElement> param : run.getAsJsonObject("params").entrySet()) {
+                        params.put(param.getKey(), param.getValue().getAsString());
+                    }
+                }
+                String mode = run.get("mode").getAsString();
+                double score = run.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+                results.put(name + params.toString().replace('{', '[').replace('}', ']'),
+                        new Result(score, mode.equals("thrpt")));
+            }
+        }
+        return results;
+    }
+
+    private static class Result {
+        private final double score;
+        private final boolean higherIsBetter;
+
+        Result(double score, boolean higherIsBetter) {
+            this.score = score;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import model.Expense;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import repository.local.LocalExpenseRepository;
+
+/**
+ * A local store in a temporary directory, seeded with {@link #rows}
+ * deterministic expenses spread over one year, for benchmarks that only
+ * read. Write benchmarks seed their own store per iteration.
+ */
+@State(Scope.Benchmark)
+public class ExpenseData {
+    static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    static final int DAYS = 365;
+    private static final long SEED = 42;
+
+    /**
+     * Data size tier; override with {@code -p rows=...}.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    Path directory;
+    LocalExpenseRepository repository;
+
+    @Setup(Level.Trial)
+    public void seed() throws IOException {
+        directory = Files.createTempDirectory("gastos-jmh");
+        repository = seeded(directory, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        repository.close();
+        deleteDirectory(directory);
+    }
+
+    static LocalExpenseRepository seeded(Path directory, int rows) throws IOException {
+        LocalExpenseRepository repository = LocalExpenseRepository.open(directory, false);
+        repository.saveAll(generate(rows, new SplittableRandom(SEED)));
+        return repository;
+    }
+
+    static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    static List<Expense> generate(int count, SplittableRandom random) {
+        Expense.ExpenseCategory[] categories = Expense.ExpenseCategory.values();
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expenses.add(new Expense.Builder()
+                    .description("gasto " + random.nextInt(500))
+                    .category(categories[random.nextInt(categories.length)])
+                    .amount(random.nextInt(1, 20_000) / 100.0)
+                    .expenseDate(FIRST_DAY.plusDays(random.nextInt(DAYS)))
+                    .build());
+        }
+        return expenses;
+    }
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import analytics.AmountKernel;
+import analytics.AmountKernels;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Sums and per-category totals over in-memory columns, comparing the boxed
+ * stream pipeline the summaries used to run with the scalar and the best
+ * available kernel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-modules=jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class KernelBenchmark {
+    private static final int CATEGORIES = 5;
+
+    @Param({"1000000", "5000000"})
+    public int rows;
+
+    private long[] cents;
+    private byte[] categories;
+    private double[] amounts;
+    private AmountKernel scalar;
+    private AmountKernel best;
+
+    @Setup(Level.Trial)
+    public void build() {
+        SplittableRandom random = new SplittableRandom(42);
+        cents = new long[rows];
+        categories = new byte[rows];
+        amounts = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            cents[i] = random.nextInt(1, 20_000);
+            categories[i] = (byte) random.nextInt(CATEGORIES);
+            amounts[i] = cents[i] / 100.0;
+        }
+        scalar = AmountKernels.scalar();
+        best = AmountKernels.best();
+    }
+
+    @Benchmark
+    public double streamSum() {
+        return IntStream.range(0, rows).mapToObj(i -> amounts[i]).mapToDouble(Double::doubleValue).sum();
+    }
+
+    @Benchmark
+    public long scalarSum() {
+        return scalar.sum(cents, 0, rows);
+    }
+
+    @Benchmark
+    public long bestSum() {
+        return best.sum(cents, 0, rows);
+    }
+
+    @Benchmark
+    public void scalarByCategory(Blackhole blackhole) {
+        long[] totals = new long[CATEGORIES];
+        long[] counts = new long[CATEGORIES];
+        scalar.sumByCategory(cents, categories, 0, rows, totals, counts);
+        blackhole.consume(totals);
+        blackhole.consume(counts);
+    }
+
+    @Benchmark
+    public void bestByCategory(Blackhole blackhole) {
+        long[] totals = new long[CATEGORIES];
+        long[] counts = new long[CATEGORIES];
+        best.sumByCategory(cents, categories, 0, rows, totals, counts);
+        blackhole.consume(totals);
+        blackhole.consume(counts);
+    }
+}
@@ -0,0 +1,105 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.local.LocalExpenseRepository;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+    private static final int BATCH_SIZE = 1000;
+    private static final int BATCHES = 16;
+
+    /**
+     * A store seeded like {@link ExpenseData}, recreated for every iteration
+     * so the rows written by one iteration do not slow down the next, and a
+     * ring of batches generated once, so no invocation pays for generation.
+     */
+    @State(Scope.Thread)
+    public static class Writes {
+        private final List<List<Expense>> batches = new ArrayList<>(BATCHES);
+        private Path directory;
+        private LocalExpenseRepository repository;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            SplittableRandom random = new SplittableRandom(7);
+            for (int i = 0; i < BATCHES; i++) {
+                batches.add(ExpenseData.generate(BATCH_SIZE, random));
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void seed(ExpenseData data) throws IOException {
+            directory = Files.createTempDirectory("gastos-jmh-escritura");
+            repository = ExpenseData.seeded(directory, data.rows);
+        }
+
+        @TearDown(Level.Iteration)
+        public void delete() throws IOException {
+            repository.close();
+            ExpenseData.deleteDirectory(directory);
+        }
+
+        List<Expense> nextBatch() {
+            next = (next + 1) % BATCHES;
+            return batches.get(next);
+        }
+
+        Expense nextSingle() {
+            next = (next + 1) % (BATCHES * BATCH_SIZE);
+            return batches.get(next / BATCH_SIZE).get(next % BATCH_SIZE);
+        }
+    }
+
+    @Benchmark
+    public int save(Writes writes) {
+        return writes.repository.save(writes.nextSingle());
+    }
+
+    /**
+     * Time per batch of {@value #BATCH_SIZE} rows.
+     */
+    @Benchmark
+    public List<Integer> saveAll(Writes writes) {
+        return writes.repository.saveAll(writes.nextBatch());
+    }
+
+    @Benchmark
+    public List<Expense> findAll(ExpenseData data) {
+        return data.repository.findAll();
+    }
+
+    @Benchmark
+    public List<Expense> findByCategory(ExpenseData data) {
+        return data.repository.findByCategory(Expense.ExpenseCategory.ALIMENTACION);
+    }
+
+    @Benchmark
+    public long getMonthlyTotalCents(ExpenseData data) {
+        return data.repository.getMonthlyTotalCents(LocalDate.of(2024, 6, 1));
+    }
+}
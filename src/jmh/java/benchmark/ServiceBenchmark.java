@@ -0,0 +1,44 @@
+package benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.ExpenseService;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceBenchmark {
+    private ExpenseService service;
+
+    @Setup(Level.Trial)
+    public void setUp(ExpenseData data) {
+        service = new ExpenseService(data.repository);
+    }
+
+    @Benchmark
+    public ExpenseService.ExpenseSummary getExpenseSummary() {
+        return service.getExpenseSummary(LocalDate.of(2024, 6, 15));
+    }
+
+    /**
+     * A range not aligned to months, which cannot use the monthly totals.
+     */
+    @Benchmark
+    public ExpenseService.ExpenseSummary getExpenseSummaryOfRange() {
+        return service.getExpenseSummary(LocalDate.of(2024, 2, 10), LocalDate.of(2024, 11, 20));
+    }
+}
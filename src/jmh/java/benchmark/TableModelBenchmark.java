@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import repository.ExpenseRepository;
+import view.ExpenseTableModel;
+
+/**
+ * The table rebuild done by {@code ExpenseView.update} when it reloads:
+ * re-count, load the visible pages and read every visible cell. Loads run
+ * inline and their EDT hand-offs are drained with {@code invokeAndWait}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class TableModelBenchmark {
+    private static final int VISIBLE_ROWS = 40;
+
+    private ExpenseTableModel model;
+
+    @Setup(Level.Trial)
+    public void setUp(ExpenseData data) {
+        ExpenseRepository repository = data.repository;
+        model = new ExpenseTableModel(new ExpenseTableModel.PageSource() {
+            @Override
+            public long count() {
+                return repository.count();
+            }
+
+            @Override
+            public List<Expense> pageAfter(Expense last, int limit) {
+                return last == null
+                        ? repository.findPageAfter(null, 0, limit)
+                        : repository.findPageAfter(last.getExpenseDate(), last.getId(), limit);
+            }
+
+            @Override
+            public List<Expense> pageAt(long offset, int limit) {
+                return repository.findPageAt(offset, limit);
+            }
+        }, Runnable::run);
+    }
+
+    @Benchmark
+    public void rebuild(Blackhole blackhole) throws Exception {
+        SwingUtilities.invokeAndWait(model::reload);
+        SwingUtilities.invokeAndWait(() -> model.setViewport(0, VISIBLE_ROWS - 1));
+        SwingUtilities.invokeAndWait(() -> {
+            int rows = Math.min(VISIBLE_ROWS, model.getRowCount());
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < model.getColumnCount(); column++) {
+                    blackhole.consume(model.getValueAt(row, column));
+                }
+            }
+        });
+    }
+}
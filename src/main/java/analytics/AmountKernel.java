@@ -0,0 +1,22 @@
+package analytics;
+
+/**
+ * Aggregation loops over columns of amounts in cents.
+ *
+ * @see AmountKernels
+ */
+public interface AmountKernel {
+    /**
+     * @return Sum of {@code cents[from..to)}
+     */
+    long sum(long[] cents, int from, int to);
+
+    /**
+     * Adds the amount and count of every row in {@code [from, to)} to the
+     * slots of its category ordinal.
+     *
+     * @param totals Cents per category, added to
+     * @param counts Rows per category, added to
+     */
+    void sumByCategory(long[] cents, byte[] categories, int from, int to, long[] totals, long[] counts);
+}
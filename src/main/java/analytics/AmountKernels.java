@@ -0,0 +1,42 @@
+package analytics;
+
+/**
+ * Picks the fastest {@link AmountKernel} this JVM can run.
+ * <p>
+ * The Vector API kernel needs the incubator module, which is only resolved
+ * when the JVM is started with {@code --add-modules jdk.incubator.vector}.
+ * Without it, or with {@code -Dgastos.vector=false}, the scalar kernel is
+ * used; both give exactly the same results.
+ */
+public final class AmountKernels {
+    public static final String VECTOR_PROPERTY = "gastos.vector";
+
+    private static final AmountKernel SCALAR = new ScalarAmountKernel();
+    private static final AmountKernel BEST = select();
+
+    private AmountKernels() {
+    }
+
+    public static AmountKernel best() {
+        return BEST;
+    }
+
+    public static AmountKernel scalar() {
+        return SCALAR;
+    }
+
+    private static AmountKernel select() {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            if (VectorAmountKernel.isUseful()) {
+                return new VectorAmountKernel();
+            }
+        } catch (LinkageError e) {
+            // The module is resolved but its classes cannot be used here.
+        }
+        return SCALAR;
+    }
+}
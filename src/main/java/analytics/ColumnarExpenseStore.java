@@ -0,0 +1,244 @@
+package analytics;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import model.CategoryTotal;
+import model.Expense;
+import repository.ExpenseColumn;
+import repository.ExpenseRepository;
+
+/**
+ * Read-only, column-oriented snapshot of expenses for analytics.
+ * <p>
+ * Rows are kept sorted by date in parallel primitive arrays: ids, epoch
+ * days, category ordinals, amounts in cents and dictionary codes for the
+ * descriptions. A row costs about 21 bytes plus its share of the distinct
+ * descriptions. Date ranges are located by binary search and scanned
+ * sequentially with the kernels of {@link AmountKernels}.
+ */
+public class ColumnarExpenseStore {
+    private static final Expense.ExpenseCategory[] CATEGORIES = Expense.ExpenseCategory.values();
+
+    private final int size;
+    private final int[] ids;
+    private final int[] epochDays;
+    private final byte[] categories;
+    private final long[] amountCents;
+    private final int[] descriptionCodes;
+    private final String[] dictionary;
+
+    private ColumnarExpenseStore(int size, int[] ids, int[] epochDays, byte[] categories,
+            long[] amountCents, int[] descriptionCodes, String[] dictionary) {
+        this.size = size;
+        this.ids = ids;
+        this.epochDays = epochDays;
+        this.categories = categories;
+        this.amountCents = amountCents;
+        this.descriptionCodes = descriptionCodes;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Streams the expenses dated in {@code [from, to)} from the repository into a new store.
+     *
+     * @param from First date included, or null for no lower bound
+     * @param to First date excluded, or null for no upper bound
+     */
+    public static ColumnarExpenseStore load(ExpenseRepository repository, LocalDate from, LocalDate to) {
+        Builder builder = new Builder();
+        repository.forEachByDateRange(from, to, ExpenseColumn.ALL, builder::add);
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int id(int row) { return ids[row]; }
+    public int epochDay(int row) { return epochDays[row]; }
+    public LocalDate date(int row) { return LocalDate.ofEpochDay(epochDays[row]); }
+    public int categoryOrdinal(int row) { return categories[row]; }
+    public Expense.ExpenseCategory category(int row) { return CATEGORIES[categories[row]]; }
+    public long amountCents(int row) { return amountCents[row]; }
+    public int descriptionCode(int row) { return descriptionCodes[row]; }
+    public String description(int row) { return dictionary[descriptionCodes[row]]; }
+
+    /**
+     * @return Number of distinct descriptions; codes range from 0 to this minus one
+     */
+    public int dictionarySize() {
+        return dictionary.length;
+    }
+
+    public String descriptionForCode(int code) {
+        return dictionary[code];
+    }
+
+    /**
+     * @return First row dated on or after the date
+     */
+    public int lowerBound(LocalDate date) {
+        return lowerBound((int) date.toEpochDay());
+    }
+
+    public int lowerBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sums amounts in cents of the rows dated in {@code [from, to)}.
+     */
+    public long sumCents(LocalDate from, LocalDate to) {
+        return AmountKernels.best().sum(amountCents, lowerBound(from), lowerBound(to));
+    }
+
+    /**
+     * Counts and sums the rows dated in {@code [from, to)} per category.
+     */
+    public Map<Expense.ExpenseCategory, CategoryTotal> totalsByCategory(LocalDate from, LocalDate to) {
+        long[] counts = new long[CATEGORIES.length];
+        long[] cents = new long[CATEGORIES.length];
+        AmountKernels.best().sumByCategory(amountCents, categories, lowerBound(from), lowerBound(to), cents, counts);
+
+        Map<Expense.ExpenseCategory, CategoryTotal> totals = new EnumMap<>(Expense.ExpenseCategory.class);
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (counts[i] > 0) {
+                totals.put(CATEGORIES[i], new CategoryTotal(counts[i], cents[i]));
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * @return Approximate heap used by the columns and the dictionary
+     */
+    public long estimatedBytes() {
+        long bytes = (long) ids.length * (Integer.BYTES * 3 + Byte.BYTES + Long.BYTES);
+        for (String description : dictionary) {
+            bytes += 40 + (description == null ? 0 : description.length());
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarExpenseStore{rows=" + size + ", descriptions=" + dictionary.length
+                + ", bytes~" + estimatedBytes() + '}';
+    }
+
+    /**
+     * Appends rows into growable columns. Rows are expected in date order, as
+     * the repository streams them; otherwise they are sorted on build.
+     */
+    public static class Builder {
+        private int size;
+        private int[] ids = new int[1024];
+        private int[] epochDays = new int[1024];
+        private byte[] categories = new byte[1024];
+        private long[] amountCents = new long[1024];
+        private int[] descriptionCodes = new int[1024];
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] dictionary = new String[256];
+        private boolean sorted = true;
+
+        public Builder add(Expense expense) {
+            return add(expense.id(), expense.getExpenseDate(), expense.getCategory(),
+                    expense.getAmountCents(), expense.getDescription());
+        }
+
+        public Builder add(int id, LocalDate date, Expense.ExpenseCategory category, long cents, String description) {
+            if (size == ids.length) {
+                grow();
+            }
+            int epochDay = (int) date.toEpochDay();
+            if (size > 0 && epochDay < epochDays[size - 1]) {
+                sorted = false;
+            }
+            ids[size] = id;
+            epochDays[size] = epochDay;
+            categories[size] = (byte) category.ordinal();
+            amountCents[size] = cents;
+            descriptionCodes[size] = encode(description);
+            size++;
+            return this;
+        }
+
+        private int encode(String description) {
+            Integer code = codes.get(description);
+            if (code == null) {
+                code = codes.size();
+                if (code == dictionary.length) {
+                    dictionary = Arrays.copyOf(dictionary, code * 2);
+                }
+                dictionary[code] = description;
+                codes.put(description, code);
+            }
+            return code;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            amountCents = Arrays.copyOf(amountCents, capacity);
+            descriptionCodes = Arrays.copyOf(descriptionCodes, capacity);
+        }
+
+        public ColumnarExpenseStore build() {
+            if (!sorted) {
+                sortByDate();
+            }
+            return new ColumnarExpenseStore(size,
+                    Arrays.copyOf(ids, size),
+                    Arrays.copyOf(epochDays, size),
+                    Arrays.copyOf(categories, size),
+                    Arrays.copyOf(amountCents, size),
+                    Arrays.copyOf(descriptionCodes, size),
+                    Arrays.copyOf(dictionary, codes.size()));
+        }
+
+        private void sortByDate() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> epochDays[a] != epochDays[b]
+                    ? Integer.compare(epochDays[a], epochDays[b])
+                    : Integer.compare(ids[a], ids[b]));
+
+            int[] sortedIds = new int[size];
+            int[] sortedDays = new int[size];
+            byte[] sortedCategories = new byte[size];
+            long[] sortedCents = new long[size];
+            int[] sortedCodes = new int[size];
+            for (int i = 0; i < size; i++) {
+                int from = order[i];
+                sortedIds[i] = ids[from];
+                sortedDays[i] = epochDays[from];
+                sortedCategories[i] = categories[from];
+                sortedCents[i] = amountCents[from];
+                sortedCodes[i] = descriptionCodes[from];
+            }
+            ids = sortedIds;
+            epochDays = sortedDays;
+            categories = sortedCategories;
+            amountCents = sortedCents;
+            descriptionCodes = sortedCodes;
+            sorted = true;
+        }
+    }
+}
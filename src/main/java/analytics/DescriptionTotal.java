@@ -0,0 +1,33 @@
+package analytics;
+
+/**
+ * Number of expenses and summed amount in cents of one description.
+ */
+public class DescriptionTotal {
+    private final String description;
+    private final long count;
+    private final long cents;
+
+    public DescriptionTotal(String description, long count, long cents) {
+        this.description = description;
+        this.count = count;
+        this.cents = cents;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    @Override
+    public String toString() {
+        return "DescriptionTotal{description='" + description + "', count=" + count + ", amount=" + cents / 100.0 + '}';
+    }
+}
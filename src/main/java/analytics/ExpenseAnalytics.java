@@ -0,0 +1,169 @@
+package analytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes an {@link ExpenseDashboard} in one parallel pass over a
+ * {@link ColumnarExpenseStore}.
+ * <p>
+ * The rows of the range are split into about two slices per worker. Each
+ * slice sums into its own dense accumulator, per day and category and per
+ * description code, and accumulators are merged pairwise as the fork-join
+ * tasks complete. Weeks, months, rolling windows and comparisons are then
+ * derived from the daily totals, which are small next to the rows.
+ */
+public final class ExpenseAnalytics {
+    /**
+     * Below this a slice is not worth a task of its own.
+     */
+    private static final int MIN_SLICE_ROWS = 16_384;
+
+    private ExpenseAnalytics() {
+    }
+
+    public static ExpenseDashboard compute(ColumnarExpenseStore store, LocalDate from, LocalDate to,
+            int topDescriptions) {
+        return compute(store, from, to, topDescriptions, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param from First date included
+     * @param to First date excluded
+     * @param topDescriptions Number of descriptions to rank
+     */
+    public static ExpenseDashboard compute(ColumnarExpenseStore store, LocalDate from, LocalDate to,
+            int topDescriptions, ForkJoinPool pool) {
+        int fromDay = (int) from.toEpochDay();
+        int days = (int) (to.toEpochDay() - fromDay);
+        if (days <= 0) {
+            throw new IllegalArgumentException("El rango de fechas está vacío");
+        }
+
+        int first = store.lowerBound(fromDay);
+        int end = store.lowerBound(fromDay + days);
+        int sliceRows = Math.max(MIN_SLICE_ROWS, (end - first) / (pool.getParallelism() * 2) + 1);
+        Accumulator totals = pool.invoke(new ScanTask(store, first, end, sliceRows, fromDay, days));
+
+        LocalDate[] dates = new LocalDate[days];
+        for (int day = 0; day < days; day++) {
+            dates[day] = LocalDate.ofEpochDay(fromDay + day);
+        }
+        PeriodSeries daily = new PeriodSeries(PeriodSeries.Granularity.DAY, dates, totals.cents, totals.counts);
+        return new ExpenseDashboard(from, to, daily, top(store, totals, topDescriptions));
+    }
+
+    private static List<DescriptionTotal> top(ColumnarExpenseStore store, Accumulator totals, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        long[] cents = totals.descriptionCents;
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1,
+                (a, b) -> cents[a] != cents[b] ? Long.compare(cents[a], cents[b]) : Integer.compare(b, a));
+        for (int code = 0; code < cents.length; code++) {
+            if (totals.descriptionCounts[code] == 0) {
+                continue;
+            }
+            best.add(code);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<DescriptionTotal> top = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            int code = best.poll();
+            top.add(new DescriptionTotal(store.descriptionForCode(code), totals.descriptionCounts[code], cents[code]));
+        }
+        Collections.reverse(top);
+        return top;
+    }
+
+    //-----------------------------------------------------------------------
+    //		Nested classes
+    //-----------------------------------------------------------------------
+    /**
+     * Sums of one slice of rows. Not thread-safe; every task fills its own.
+     */
+    private static final class Accumulator {
+        final long[] cents;
+        final long[] counts;
+        final long[] descriptionCents;
+        final long[] descriptionCounts;
+
+        Accumulator(int days, int descriptions) {
+            this.cents = new long[days * PeriodSeries.CATEGORY_COUNT];
+            this.counts = new long[days * PeriodSeries.CATEGORY_COUNT];
+            this.descriptionCents = new long[descriptions];
+            this.descriptionCounts = new long[descriptions];
+        }
+
+        Accumulator merge(Accumulator other) {
+            add(cents, other.cents);
+            add(counts, other.counts);
+            add(descriptionCents, other.descriptionCents);
+            add(descriptionCounts, other.descriptionCounts);
+            return this;
+        }
+
+        private static void add(long[] into, long[] values) {
+            for (int i = 0; i < into.length; i++) {
+                into[i] += values[i];
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ScanTask extends RecursiveTask<Accumulator> {
+        private final ColumnarExpenseStore store;
+        private final int first;
+        private final int end;
+        private final int sliceRows;
+        private final int fromDay;
+        private final int days;
+
+        ScanTask(ColumnarExpenseStore store, int first, int end, int sliceRows, int fromDay, int days) {
+            this.store = store;
+            this.first = first;
+            this.end = end;
+            this.sliceRows = sliceRows;
+            this.fromDay = fromDay;
+            this.days = days;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (end - first <= sliceRows) {
+                return scan();
+            }
+            int middle = (first + end) >>> 1;
+            ScanTask left = new ScanTask(store, first, middle, sliceRows, fromDay, days);
+            left.fork();
+            Accumulator right = new ScanTask(store, middle, end, sliceRows, fromDay, days).compute();
+            return left.join().merge(right);
+        }
+
+        private Accumulator scan() {
+            Accumulator totals = new Accumulator(days, store.dictionarySize());
+            long[] cents = totals.cents;
+            long[] counts = totals.counts;
+            long[] descriptionCents = totals.descriptionCents;
+            long[] descriptionCounts = totals.descriptionCounts;
+            for (int row = first; row < end; row++) {
+                long amount = store.amountCents(row);
+                int slot = (store.epochDay(row) - fromDay) * PeriodSeries.CATEGORY_COUNT + store.categoryOrdinal(row);
+                cents[slot] += amount;
+                counts[slot]++;
+                int code = store.descriptionCode(row);
+                descriptionCents[code] += amount;
+                descriptionCounts[code]++;
+            }
+            return totals;
+        }
+    }
+}
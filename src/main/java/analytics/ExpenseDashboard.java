@@ -0,0 +1,120 @@
+package analytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import model.Expense;
+
+/**
+ * Totals of a date range by day, week and month, with rolling windows,
+ * month-over-month and year-over-year changes and the top descriptions.
+ * Built by {@link ExpenseAnalytics}.
+ */
+public class ExpenseDashboard {
+    public static final int SHORT_WINDOW_DAYS = 30;
+    public static final int LONG_WINDOW_DAYS = 90;
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final PeriodSeries daily;
+    private final PeriodSeries weekly;
+    private final PeriodSeries monthly;
+    private final PeriodSeries shortWindow;
+    private final PeriodSeries longWindow;
+    private final List<DescriptionTotal> topDescriptions;
+
+    ExpenseDashboard(LocalDate from, LocalDate to, PeriodSeries daily, List<DescriptionTotal> topDescriptions) {
+        this.from = from;
+        this.to = to;
+        this.daily = daily;
+        this.weekly = daily.regroup(PeriodSeries.Granularity.WEEK);
+        this.monthly = daily.regroup(PeriodSeries.Granularity.MONTH);
+        this.shortWindow = daily.rolling(SHORT_WINDOW_DAYS);
+        this.longWindow = daily.rolling(LONG_WINDOW_DAYS);
+        this.topDescriptions = topDescriptions;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    /**
+     * @return First date excluded
+     */
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public PeriodSeries getDaily() {
+        return daily;
+    }
+
+    public PeriodSeries getWeekly() {
+        return weekly;
+    }
+
+    public PeriodSeries getMonthly() {
+        return monthly;
+    }
+
+    /**
+     * @return Trailing 30-day totals for every day of the range
+     */
+    public PeriodSeries getShortWindow() {
+        return shortWindow;
+    }
+
+    /**
+     * @return Trailing 90-day totals for every day of the range
+     */
+    public PeriodSeries getLongWindow() {
+        return longWindow;
+    }
+
+    /**
+     * @return Trailing totals over any number of days
+     */
+    public PeriodSeries getRollingWindow(int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("La ventana debe tener al menos un día");
+        }
+        return daily.rolling(days);
+    }
+
+    /**
+     * @return Descriptions with the highest summed amount, highest first
+     */
+    public List<DescriptionTotal> getTopDescriptions() {
+        return topDescriptions;
+    }
+
+    /**
+     * Compares each month with the one before, in total and per category.
+     */
+    public List<PeriodChange> getMonthOverMonth() {
+        return changes(1);
+    }
+
+    /**
+     * Compares each month with the same month of the previous year. Only
+     * months whose previous year is inside the range are compared.
+     */
+    public List<PeriodChange> getYearOverYear() {
+        return changes(12);
+    }
+
+    private List<PeriodChange> changes(int lag) {
+        Expense.ExpenseCategory[] categories = Expense.ExpenseCategory.values();
+        List<PeriodChange> changes = new ArrayList<>();
+        for (int month = lag; month < monthly.size(); month++) {
+            int previous = month - lag;
+            changes.add(new PeriodChange(monthly.start(month), monthly.start(previous), null,
+                    monthly.totalCents(month), monthly.totalCents(previous)));
+            for (Expense.ExpenseCategory category : categories) {
+                changes.add(new PeriodChange(monthly.start(month), monthly.start(previous), category,
+                        monthly.cents(month, category), monthly.cents(previous, category)));
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,67 @@
+package analytics;
+
+import java.time.LocalDate;
+import model.Expense;
+
+/**
+ * Amount of a period compared with an earlier one, for a category or for
+ * all of them.
+ */
+public class PeriodChange {
+    private final LocalDate periodStart;
+    private final LocalDate previousStart;
+    private final Expense.ExpenseCategory category;
+    private final long currentCents;
+    private final long previousCents;
+
+    public PeriodChange(LocalDate periodStart, LocalDate previousStart, Expense.ExpenseCategory category,
+            long currentCents, long previousCents) {
+        this.periodStart = periodStart;
+        this.previousStart = previousStart;
+        this.category = category;
+        this.currentCents = currentCents;
+        this.previousCents = previousCents;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public LocalDate getPreviousStart() {
+        return previousStart;
+    }
+
+    /**
+     * @return The category compared, or null for the total of all categories
+     */
+    public Expense.ExpenseCategory getCategory() {
+        return category;
+    }
+
+    public long getCurrentCents() {
+        return currentCents;
+    }
+
+    public long getPreviousCents() {
+        return previousCents;
+    }
+
+    public long getDeltaCents() {
+        return currentCents - previousCents;
+    }
+
+    /**
+     * @return Relative change, or NaN if the previous period had no expenses
+     */
+    public double getRatio() {
+        return previousCents == 0 ? Double.NaN : (double) (currentCents - previousCents) / previousCents;
+    }
+
+    @Override
+    public String toString() {
+        return "PeriodChange{" + periodStart + " vs " + previousStart
+                + ", category=" + (category == null ? "TOTAL" : category)
+                + ", current=" + currentCents / 100.0
+                + ", previous=" + previousCents / 100.0 + '}';
+    }
+}
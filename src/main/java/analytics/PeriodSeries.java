@@ -0,0 +1,133 @@
+package analytics;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import model.Expense;
+
+/**
+ * Amounts in cents and counts per category for consecutive periods.
+ * <p>
+ * Values are stored period by period in flat arrays, one slot per category
+ * ordinal.
+ */
+public class PeriodSeries {
+    static final int CATEGORY_COUNT = Expense.ExpenseCategory.values().length;
+
+    public enum Granularity {
+        DAY, WEEK, MONTH
+    }
+
+    private final Granularity granularity;
+    private final LocalDate[] starts;
+    private final long[] cents;
+    private final long[] counts;
+
+    PeriodSeries(Granularity granularity, LocalDate[] starts, long[] cents, long[] counts) {
+        this.granularity = granularity;
+        this.starts = starts;
+        this.cents = cents;
+        this.counts = counts;
+    }
+
+    /**
+     * Regroups a daily series into weeks starting on Monday or into calendar
+     * months. The first and last periods may be partial.
+     */
+    PeriodSeries regroup(Granularity target) {
+        int days = starts.length;
+        int[] periodOfDay = new int[days];
+        int periods = 0;
+        LocalDate current = null;
+        LocalDate[] targetStarts = new LocalDate[days];
+        for (int day = 0; day < days; day++) {
+            LocalDate start = target == Granularity.WEEK
+                    ? starts[day].with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                    : starts[day].withDayOfMonth(1);
+            if (!start.equals(current)) {
+                targetStarts[periods++] = start;
+                current = start;
+            }
+            periodOfDay[day] = periods - 1;
+        }
+
+        long[] targetCents = new long[periods * CATEGORY_COUNT];
+        long[] targetCounts = new long[periods * CATEGORY_COUNT];
+        for (int day = 0; day < days; day++) {
+            int from = day * CATEGORY_COUNT;
+            int to = periodOfDay[day] * CATEGORY_COUNT;
+            for (int category = 0; category < CATEGORY_COUNT; category++) {
+                targetCents[to + category] += cents[from + category];
+                targetCounts[to + category] += counts[from + category];
+            }
+        }
+        return new PeriodSeries(target, Arrays.copyOf(targetStarts, periods), targetCents, targetCounts);
+    }
+
+    /**
+     * Turns a daily series into trailing sums: each day holds the total of
+     * itself and the {@code windowDays - 1} days before it within the range.
+     */
+    PeriodSeries rolling(int windowDays) {
+        long[] rollingCents = new long[cents.length];
+        long[] rollingCounts = new long[counts.length];
+        long[] windowCents = new long[CATEGORY_COUNT];
+        long[] windowCounts = new long[CATEGORY_COUNT];
+        for (int day = 0; day < starts.length; day++) {
+            int in = day * CATEGORY_COUNT;
+            int out = (day - windowDays) * CATEGORY_COUNT;
+            for (int category = 0; category < CATEGORY_COUNT; category++) {
+                windowCents[category] += cents[in + category];
+                windowCounts[category] += counts[in + category];
+                if (out >= 0) {
+                    windowCents[category] -= cents[out + category];
+                    windowCounts[category] -= counts[out + category];
+                }
+                rollingCents[in + category] = windowCents[category];
+                rollingCounts[in + category] = windowCounts[category];
+            }
+        }
+        return new PeriodSeries(Granularity.DAY, starts, rollingCents, rollingCounts);
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * @return First day of the period; for the first period it may be before
+     * the start of the range
+     */
+    public LocalDate start(int period) {
+        return starts[period];
+    }
+
+    public long cents(int period, Expense.ExpenseCategory category) {
+        return cents[period * CATEGORY_COUNT + category.ordinal()];
+    }
+
+    public long count(int period, Expense.ExpenseCategory category) {
+        return counts[period * CATEGORY_COUNT + category.ordinal()];
+    }
+
+    public long totalCents(int period) {
+        long total = 0;
+        for (int category = 0; category < CATEGORY_COUNT; category++) {
+            total += cents[period * CATEGORY_COUNT + category];
+        }
+        return total;
+    }
+
+    public long totalCount(int period) {
+        long total = 0;
+        for (int category = 0; category < CATEGORY_COUNT; category++) {
+            total += counts[period * CATEGORY_COUNT + category];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,30 @@
+package analytics;
+
+/**
+ * Plain loops, used when the Vector API is not available.
+ */
+final class ScalarAmountKernel implements AmountKernel {
+
+    @Override
+    public long sum(long[] cents, int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += cents[i];
+        }
+        return total;
+    }
+
+    @Override
+    public void sumByCategory(long[] cents, byte[] categories, int from, int to, long[] totals, long[] counts) {
+        for (int i = from; i < to; i++) {
+            int category = categories[i];
+            totals[category] += cents[i];
+            counts[category]++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
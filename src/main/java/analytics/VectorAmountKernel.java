@@ -0,0 +1,105 @@
+package analytics;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD loops on {@code jdk.incubator.vector}. Only loaded by
+ * {@link AmountKernels} once it has checked that the module is present.
+ * <p>
+ * Grouping compares a vector of category ordinals with each category and
+ * adds the amounts under the resulting mask into that category's
+ * accumulator. There is one accumulator per category, unrolled for up to
+ * {@link #MAX_CATEGORIES}; with more categories the scalar kernel is used.
+ */
+final class VectorAmountKernel implements AmountKernel {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * Eight byte lanes, at least as many as a preferred long vector has.
+     */
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+
+    private static final int CATEGORY_COUNT = PeriodSeries.CATEGORY_COUNT;
+    static final int MAX_CATEGORIES = 5;
+
+    static boolean isUseful() {
+        return LONGS.length() > 1 && LONGS.length() <= BYTES.length() && CATEGORY_COUNT <= MAX_CATEGORIES;
+    }
+
+    @Override
+    public long sum(long[] cents, int from, int to) {
+        LongVector total = LongVector.zero(LONGS);
+        int i = from;
+        for (int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            total = total.add(LongVector.fromArray(LONGS, cents, i));
+        }
+        long sum = total.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            sum += cents[i];
+        }
+        return sum;
+    }
+
+    /**
+     * The accumulators are separate locals, not an array, so they stay in
+     * registers; an array of vectors would box every intermediate.
+     */
+    @Override
+    public void sumByCategory(long[] cents, byte[] categories, int from, int to, long[] totals, long[] counts) {
+        LongVector sum0 = LongVector.zero(LONGS);
+        LongVector sum1 = sum0;
+        LongVector sum2 = sum0;
+        LongVector sum3 = sum0;
+        LongVector sum4 = sum0;
+        long count0 = 0;
+        long count1 = 0;
+        long count2 = 0;
+        long count3 = 0;
+        long count4 = 0;
+        int i = from;
+        // The byte load reads a full eight lanes, so stop while eight remain.
+        for (; i <= to - BYTES.length(); i += LONGS.length()) {
+            LongVector amounts = LongVector.fromArray(LONGS, cents, i);
+            LongVector ordinals = (LongVector) ByteVector.fromArray(BYTES, categories, i).castShape(LONGS, 0);
+            VectorMask<Long> matches = ordinals.eq(0);
+            sum0 = sum0.add(amounts, matches);
+            count0 += matches.trueCount();
+            matches = ordinals.eq(1);
+            sum1 = sum1.add(amounts, matches);
+            count1 += matches.trueCount();
+            matches = ordinals.eq(2);
+            sum2 = sum2.add(amounts, matches);
+            count2 += matches.trueCount();
+            matches = ordinals.eq(3);
+            sum3 = sum3.add(amounts, matches);
+            count3 += matches.trueCount();
+            matches = ordinals.eq(4);
+            sum4 = sum4.add(amounts, matches);
+            count4 += matches.trueCount();
+        }
+        long[] sums = {
+            sum0.reduceLanes(VectorOperators.ADD), sum1.reduceLanes(VectorOperators.ADD),
+            sum2.reduceLanes(VectorOperators.ADD), sum3.reduceLanes(VectorOperators.ADD),
+            sum4.reduceLanes(VectorOperators.ADD)
+        };
+        long[] matched = {count0, count1, count2, count3, count4};
+        for (int category = 0; category < CATEGORY_COUNT; category++) {
+            totals[category] += sums[category];
+            counts[category] += matched[category];
+        }
+        for (; i < to; i++) {
+            int category = categories[i];
+            totals[category] += cents[i];
+            counts[category]++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "vector(" + LONGS.length() + "x64)";
+    }
+}
@@ -2,11 +2,39 @@
 package com.mycompany.gastospersonalesnatividad;
 
 import controller.ExpenseController;
+import java.io.IOException;
 import javax.swing.SwingUtilities;
+import metrics.FlightRecording;
+import repository.ExpenseRepositories;
+import server.ExpenseServer;
+import service.ExpenseService;
 
 public class GastosPersonalesNatividad {
 
-    public static void main(String[] args) {
+    /**
+     * {@code --server} serves the API over HTTP instead of opening the window,
+     * on the port given by {@code --port=} or {@link ExpenseServer#DEFAULT_PORT}.
+     */
+    public static void main(String[] args) throws IOException {
+        boolean server = false;
+        int port = ExpenseServer.DEFAULT_PORT;
+        for (String arg : args) {
+            if (arg.startsWith("--storage=")) {
+                System.setProperty(ExpenseRepositories.STORAGE_PROPERTY, arg.substring("--storage=".length()));
+            } else if (arg.equals("--server")) {
+                server = true;
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            }
+        }
+        FlightRecording.start();
+        if (server) {
+            ExpenseServer expenseServer = new ExpenseServer(new ExpenseService(), port);
+            Runtime.getRuntime().addShutdownHook(new Thread(expenseServer::close, "server-stop"));
+            expenseServer.start();
+            System.out.println("Servidor escuchando en el puerto " + expenseServer.getPort());
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             ExpenseController controller = new ExpenseController();
             controller.run();
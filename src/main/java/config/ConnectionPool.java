@@ -0,0 +1,366 @@
+package config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import metrics.ConnectionAcquireEvent;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+
+/**
+ * Bounded JDBC connection pool.
+ * <p>
+ * Borrowed connections are proxies whose {@code close()} hands the physical
+ * connection back to the pool, so callers keep using try-with-resources.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    //-----------------------------------------------------------------------
+    //		Attributes
+    //-----------------------------------------------------------------------
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private final long validateAfterMillis;
+    private final int validationTimeoutSeconds;
+
+    /**
+     * Idle connections, most recently returned first so the warmest
+     * connection is reused and the coldest ones age out.
+     */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final LatencyHistogram acquireTimes = new LatencyHistogram();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+
+    //-----------------------------------------------------------------------
+    //		Constructor
+    //-----------------------------------------------------------------------
+    private ConnectionPool(Builder builder) {
+        this.url = builder.url;
+        this.user = builder.user;
+        this.password = builder.password;
+        this.maxSize = builder.maxSize;
+        this.minIdle = Math.min(builder.minIdle, builder.maxSize);
+        this.maxWaitMillis = builder.maxWaitMillis;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.validateAfterMillis = builder.validateAfterMillis;
+        this.validationTimeoutSeconds = builder.validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+
+    //-----------------------------------------------------------------------
+    //		Methods
+    //-----------------------------------------------------------------------
+    /**
+     * Borrows a connection, waiting at most the configured max wait for one
+     * to become free.
+     *
+     * @return Connection whose close() returns it to the pool
+     * @throws SQLException If the pool is exhausted or a connection cannot be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        event.begin();
+        long start = System.nanoTime();
+        waiters.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando una conexión", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            acquired(event, start, false, true);
+            throw new SQLTransientConnectionException(
+                    "No hay conexiones disponibles tras " + maxWaitMillis + " ms (max=" + maxSize + ")");
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            boolean opened = pooled == null;
+            if (opened) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+                created.incrementAndGet();
+            }
+            active.incrementAndGet();
+            acquireTimes.record(System.nanoTime() - start);
+            acquired(event, start, opened, false);
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Publishes the acquire time to the metrics registry and JFR.
+     */
+    private void acquired(ConnectionAcquireEvent event, long start, boolean opened, boolean timedOut) {
+        OperationMetrics metrics = MetricsRegistry.global().operation("connection.acquire");
+        metrics.record(System.nanoTime() - start, 0);
+        if (timedOut) {
+            metrics.recordError();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.opened = opened;
+            event.active = active.get();
+            event.timedOut = timedOut;
+            event.commit();
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long idleFor = System.currentTimeMillis() - pooled.lastReturned;
+            if (idleFor < validateAfterMillis || isValid(pooled)) {
+                return pooled;
+            }
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.physical.clearWarnings();
+            pooled.lastReturned = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyed.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+            // The connection is being discarded anyway.
+        }
+    }
+
+    /**
+     * Closes connections that have been idle longer than the idle timeout,
+     * always keeping at least {@code minIdle} of them.
+     */
+    void evictIdle() {
+        long now = System.currentTimeMillis();
+        PooledConnection oldest;
+        while (idle.size() > minIdle && (oldest = idle.peekLast()) != null
+                && now - oldest.lastReturned > idleTimeoutMillis) {
+            if (idle.removeLastOccurrence(oldest)) {
+                destroy(oldest);
+            }
+        }
+    }
+
+    public PoolStats getStats() {
+        return new PoolStats(maxSize, active.get(), idle.size(), waiters.get(),
+                created.get(), destroyed.get(), timeouts.get(), acquireTimes);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+
+    //-----------------------------------------------------------------------
+    //		Nested classes
+    //-----------------------------------------------------------------------
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastReturned = System.currentTimeMillis();
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+    }
+
+    /**
+     * Handle given to callers. Closing it returns the physical connection
+     * exactly once; any later use fails as a closed connection would.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    if (returned.get()) {
+                        throw new SQLException("La conexión ya fue devuelta al pool");
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    public static class Builder {
+        private String url;
+        private String user;
+        private String password;
+        private int maxSize = 10;
+        private int minIdle = 2;
+        private long maxWaitMillis = 5_000;
+        private long idleTimeoutMillis = 300_000;
+        private long validateAfterMillis = 30_000;
+        private int validationTimeoutSeconds = 2;
+
+        public Builder url(String url) {
+            this.url = url;
+            return this;
+        }
+
+        public Builder user(String user) {
+            this.user = user;
+            return this;
+        }
+
+        public Builder password(String password) {
+            this.password = password;
+            return this;
+        }
+
+        public Builder maxSize(int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("El tamaño del pool debe ser mayor que cero");
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder minIdle(int minIdle) {
+            this.minIdle = Math.max(0, minIdle);
+            return this;
+        }
+
+        public Builder maxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+            return this;
+        }
+
+        public Builder idleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Connections idle for longer than this are checked with
+         * {@link Connection#isValid(int)} before being handed out.
+         */
+        public Builder validateAfterMillis(long validateAfterMillis) {
+            this.validateAfterMillis = validateAfterMillis;
+            return this;
+        }
+
+        public Builder validationTimeoutSeconds(int validationTimeoutSeconds) {
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            return this;
+        }
+
+        public ConnectionPool build() {
+            if (url == null) {
+                throw new IllegalStateException("La URL de conexión es obligatoria");
+            }
+            return new ConnectionPool(this);
+        }
+    }
+}
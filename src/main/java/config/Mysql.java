@@ -1,35 +1,135 @@
 package config;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
 public class Mysql {
-    public Connection connection;
+    private static final String DATABASE_NAME = "gastos_personales";
+    private static final String DATABASE_USER = "root";
+    private static final String DATABASE_PASSWORD = "defaultPassword";
+
+    /**
+     * Prepared statements are cached per physical connection by the driver,
+     * so reusing pooled connections also reuses their parsed statements.
+     * Batched inserts are rewritten into multi-row INSERTs by the driver, and
+     * statements with a fetch size read through a server-side cursor.
+     */
+    private static final String URL = "jdbc:mysql://localhost:3306/" + DATABASE_NAME
+            + "?useServerPrepStmts=true"
+            + "&cachePrepStmts=true"
+            + "&prepStmtCacheSize=250"
+            + "&prepStmtCacheSqlLimit=2048"
+            + "&rewriteBatchedStatements=true"
+            + "&useCursorFetch=true";
+
+    /**
+     * {@code -Dgastos.pool.max} raises the pool size, e.g. for the HTTP server.
+     */
+    public static final String POOL_MAX_SIZE_PROPERTY = "gastos.pool.max";
+    private static final int POOL_MAX_SIZE = 10;
+    private static final int POOL_MIN_IDLE = 2;
+    private static final long POOL_MAX_WAIT_MILLIS = 5_000;
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = 300_000;
+
+    /**
+     * How often partition maintenance runs, so a long-running process keeps
+     * creating partitions {@link PartitionManager#MONTHS_AHEAD} months ahead.
+     */
+    private static final long MAINTENANCE_INTERVAL_HOURS = 6;
+
+    private static ConnectionPool pool;
+    private static boolean schemaMigrated;
+    private static ScheduledExecutorService maintenance;
 
     public Mysql() {
     }
 
-    public Connection getConnection() {
+    /**
+     * Borrows a connection from the shared pool. Closing it returns it to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        return pool().borrow();
+    }
+
+    public static synchronized ConnectionPool pool() {
+        if (pool == null) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("No se encontró el driver de MySQL", e);
+            }
+            pool = new ConnectionPool.Builder()
+                    .url(URL)
+                    .user(DATABASE_USER)
+                    .password(DATABASE_PASSWORD)
+                    .maxSize(Integer.getInteger(POOL_MAX_SIZE_PROPERTY, POOL_MAX_SIZE))
+                    .minIdle(POOL_MIN_IDLE)
+                    .maxWaitMillis(POOL_MAX_WAIT_MILLIS)
+                    .idleTimeoutMillis(POOL_IDLE_TIMEOUT_MILLIS)
+                    .build();
+        }
+        return pool;
+    }
 
-        String databaseName="gastos_personales";
-        String databaseUser="root";
-        String databasePassword="defaultPassword";
-        String url="jdbc:mysql://localhost:3306/"+databaseName;
+    /**
+     * Applies pending schema migrations. Called once from startup code, before
+     * the repositories are used; later calls return at once.
+     *
+     * @throws IllegalStateException If a migration fails; the process should not go on
+     */
+    public static synchronized void migrate() {
+        if (schemaMigrated) {
+            return;
+        }
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            connection= DriverManager.getConnection(url,databaseUser,databasePassword);
-            System.out.println("connection Succesful");
-        }catch (Exception e) {
-            e.printStackTrace();
-            e.getCause();
-            System.out.println("conecctuion dead");
+            new SchemaMigrator(pool()).migrate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo actualizar el esquema: " + e.getMessage(), e);
         }
-        return connection;
+        schemaMigrated = true;
+    }
+
+    /**
+     * Runs partition maintenance now and every {@link #MAINTENANCE_INTERVAL_HOURS}
+     * hours on a daemon thread. Failures are logged and retried on the next run.
+     */
+    public static synchronized void startPartitionMaintenance() {
+        if (maintenance != null) {
+            return;
+        }
+        maintenance = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                new PartitionManager(pool()).maintain(LocalDate.now());
+            } catch (SQLException | RuntimeException e) {
+                e.printStackTrace();
+                System.out.println("No se pudieron crear las particiones de gastos");
+            }
+        }, 0, MAINTENANCE_INTERVAL_HOURS, TimeUnit.HOURS);
+    }
+
+    public static PoolStats getPoolStats() {
+        return pool().getStats();
     }
+
     public static void main(String[] args) {
-        Mysql conn=new Mysql();
-        conn.getConnection();
+        Mysql conn = new Mysql();
+        try (Connection connection = conn.getConnection()) {
+            System.out.println(connection.isValid(5) ? "connection Succesful" : "conecctuion dead");
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("conecctuion dead");
+        }
+        System.out.println(getPoolStats());
     }
 
 }
@@ -0,0 +1,320 @@
+package config;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the monthly RANGE partitions of {@code gastos} ahead of the calendar
+ * and moves closed years to the compressed {@code gastos_archivados} table.
+ * <p>
+ * Partition {@code pYYYYMM} holds the rows of that month, {@code p_anterior}
+ * everything before the first month that is not archived, such as an imported
+ * history, and {@code p_futuro} everything after the last month. Archiving
+ * splits {@code p_anterior} at the cutoff, so every row before the cutoff is
+ * moved. Archived rows stay readable through the {@code gastos_todos} view
+ * but can no longer be changed.
+ */
+public class PartitionManager {
+
+    /**
+     * Months past the current one that get their own partition on each run.
+     */
+    public static final int MONTHS_AHEAD = 3;
+
+    private static final String FUTURE_PARTITION = "p_futuro";
+    private static final String EARLIER_PARTITION = "p_anterior";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String PARTITIONS_SQL = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION"
+            + " FROM information_schema.PARTITIONS"
+            + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'gastos' AND PARTITION_NAME IS NOT NULL"
+            + " ORDER BY PARTITION_ORDINAL_POSITION";
+
+    /**
+     * Read on every repository write, so it is cached rather than queried.
+     * Another process archiving a year is seen on this process's next
+     * {@link #maintain} run.
+     */
+    private static volatile LocalDate archivedBefore = LocalDate.MIN;
+
+    private final ConnectionPool pool;
+
+    public PartitionManager(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return First day that is not archived, or {@link LocalDate#MIN} if no year is
+     */
+    public static LocalDate archivedBefore() {
+        return archivedBefore;
+    }
+
+    /**
+     * Finishes an archive run that stopped before dropping its partitions and
+     * creates the monthly partitions up to {@link #MONTHS_AHEAD} months from
+     * {@code today}. The first run on an unsplit table copies its rows once.
+     *
+     * @return Number of partitions created
+     */
+    public int maintain(LocalDate today) throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            LocalDate cutoff = loadArchivedBefore(conn);
+            List<Partition> partitions = partitions(conn);
+            if (partitions.isEmpty()) {
+                return 0;
+            }
+            List<String> leftover = monthsBefore(partitions, cutoff);
+            if (!leftover.isEmpty()) {
+                // Rows written to them after the interrupted run's copy are
+                // copied again; REPLACE keeps their latest version.
+                moveToArchive(conn, leftover, "REPLACE", null);
+            }
+            partitions.removeIf(partition -> partition.end != null && !partition.end.isAfter(cutoff));
+            addEarlier(conn, partitions, cutoff);
+            return addMonths(conn, partitions, today, today.withDayOfMonth(1).plusMonths(MONTHS_AHEAD + 1));
+        }
+    }
+
+    /**
+     * Moves the partitions of every month before January 1st of {@code year}
+     * to {@code gastos_archivados}. The tables stay write-locked from the copy
+     * until the partitions are dropped, so no write to those months can land
+     * in between and be lost.
+     *
+     * @return Number of rows archived
+     */
+    public long archiveYearsBefore(int year, LocalDate today) throws SQLException {
+        if (year > today.getYear()) {
+            throw new IllegalArgumentException("Solo se pueden archivar años cerrados");
+        }
+        LocalDate cutoff = LocalDate.of(year, 1, 1);
+
+        try (Connection conn = pool.borrow()) {
+            LocalDate archived = loadArchivedBefore(conn);
+            if (!cutoff.isAfter(archived)) {
+                return 0;
+            }
+            List<Partition> partitions = partitions(conn);
+            if (partitions.isEmpty()) {
+                throw new IllegalStateException("La tabla gastos no está particionada");
+            }
+            addEarlier(conn, partitions, archived);
+            if (splitEarlier(conn, partitions, cutoff)) {
+                partitions = partitions(conn);
+            }
+            List<String> moving = monthsBefore(partitions, cutoff);
+            if (moving.isEmpty()) {
+                return 0;
+            }
+            long rows = moveToArchive(conn, moving, "INSERT", cutoff);
+            archivedBefore = cutoff;
+            return rows;
+        }
+    }
+
+    /**
+     * Copies the partitions to {@code gastos_archivados}, records the cutoff
+     * if given and drops the partitions, all under {@code LOCK TABLES}. The
+     * copy and its record commit together; if the drop fails, the next
+     * {@link #maintain} finishes it.
+     *
+     * @param verb {@code INSERT}, or {@code REPLACE} to overwrite rows copied before
+     * @param cutoff Cutoff to record in {@code cortes_archivo}, or null if it already is
+     * @return Number of rows copied
+     */
+    private long moveToArchive(Connection conn, List<String> names, String verb, LocalDate cutoff) throws SQLException {
+        long rows;
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("LOCK TABLES gastos WRITE, gastos_archivados WRITE, cortes_archivo WRITE");
+            try {
+                rows = stmt.executeUpdate(verb + " INTO gastos_archivados (id, descripcion, categoria, monto, fecha_gasto)"
+                        + " SELECT id, descripcion, categoria, monto, fecha_gasto FROM gastos"
+                        + " PARTITION (" + String.join(", ", names) + ")");
+                if (cutoff != null) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "INSERT INTO cortes_archivo (archivado_hasta, filas) VALUES (?, ?)")) {
+                        pstmt.setDate(1, Date.valueOf(cutoff));
+                        pstmt.setLong(2, rows);
+                        pstmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                dropPartitions(conn, names);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                stmt.execute("UNLOCK TABLES");
+            }
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return rows;
+    }
+
+    private LocalDate loadArchivedBefore(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(archivado_hasta) FROM cortes_archivo")) {
+            Date cutoff = rs.next() ? rs.getDate(1) : null;
+            archivedBefore = cutoff == null ? LocalDate.MIN : cutoff.toLocalDate();
+            return archivedBefore;
+        }
+    }
+
+    /**
+     * @return Partitions in order, or an empty list if the table is not partitioned
+     */
+    private List<Partition> partitions(Connection conn) throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(PARTITIONS_SQL)) {
+            while (rs.next()) {
+                String bound = rs.getString("PARTITION_DESCRIPTION").replace("'", "");
+                partitions.add(new Partition(rs.getString("PARTITION_NAME"),
+                        bound.equals("MAXVALUE") ? null : LocalDate.parse(bound)));
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * @return Names of the partitions, {@code p_anterior} included, that end on or before {@code cutoff}
+     */
+    private static List<String> monthsBefore(List<Partition> partitions, LocalDate cutoff) {
+        List<String> names = new ArrayList<>();
+        for (Partition partition : partitions) {
+            if (partition.end != null && !partition.end.isAfter(cutoff)) {
+                names.add(partition.name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Gives the rows dated before the first month their own partition, unless
+     * they are all archived already. Before this, they would land in the first
+     * month and never be selected for archiving.
+     */
+    private void addEarlier(Connection conn, List<Partition> partitions, LocalDate archivedBefore) throws SQLException {
+        Partition first = partitions.get(0);
+        if (first.name.equals(EARLIER_PARTITION) || first.end == null) {
+            // Unsplit tables get it from addMonths.
+            return;
+        }
+        LocalDate start = first.end.minusMonths(1);
+        if (!start.isAfter(archivedBefore)) {
+            return;
+        }
+        reorganize(conn, first.name, List.of(
+                definition(EARLIER_PARTITION, start),
+                definition(first.name, first.end)));
+        partitions.add(0, new Partition(EARLIER_PARTITION, start));
+    }
+
+    /**
+     * Splits {@code p_anterior} at {@code cutoff} when it reaches past it, so
+     * its rows before the cutoff can be archived and those after it get
+     * monthly partitions.
+     *
+     * @return True if the partitions changed
+     */
+    private boolean splitEarlier(Connection conn, List<Partition> partitions, LocalDate cutoff) throws SQLException {
+        Partition first = partitions.get(0);
+        if (!first.name.equals(EARLIER_PARTITION) || !first.end.isAfter(cutoff)) {
+            return false;
+        }
+        List<String> definitions = new ArrayList<>();
+        definitions.add(definition(EARLIER_PARTITION, cutoff));
+        for (LocalDate month = cutoff; month.isBefore(first.end); month = month.plusMonths(1)) {
+            definitions.add(definition(month.format(PARTITION_NAME), month.plusMonths(1)));
+        }
+        reorganize(conn, EARLIER_PARTITION, definitions);
+        return true;
+    }
+
+    private static String definition(String name, LocalDate end) {
+        return "PARTITION " + name + " VALUES LESS THAN ('" + end + "')";
+    }
+
+    private void reorganize(Connection conn, String partition, List<String> definitions) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE gastos REORGANIZE PARTITION " + partition
+                    + " INTO (" + String.join(", ", definitions) + ")");
+        }
+    }
+
+    private void dropPartitions(Connection conn, List<String> names) throws SQLException {
+        if (names.isEmpty()) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE gastos DROP PARTITION " + String.join(", ", names));
+        }
+    }
+
+    /**
+     * Splits {@code p_futuro} into one partition per month up to {@code until}.
+     * Without monthly partitions yet, the first month is that of the oldest
+     * row, preceded by {@code p_anterior} for rows written before it later.
+     */
+    private int addMonths(Connection conn, List<Partition> partitions, LocalDate today, LocalDate until) throws SQLException {
+        LocalDate month = null;
+        for (Partition partition : partitions) {
+            if (partition.end != null) {
+                month = partition.end;
+            }
+        }
+        List<String> definitions = new ArrayList<>();
+        if (month == null) {
+            month = oldestMonth(conn, today);
+            definitions.add(definition(EARLIER_PARTITION, month));
+        }
+
+        int months = 0;
+        for (; month.isBefore(until); month = month.plusMonths(1)) {
+            definitions.add(definition(month.format(PARTITION_NAME), month.plusMonths(1)));
+            months++;
+        }
+        if (definitions.isEmpty()) {
+            return 0;
+        }
+        definitions.add("PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        reorganize(conn, FUTURE_PARTITION, definitions);
+        return months;
+    }
+
+    /**
+     * @return First day of the month of the oldest live row, or of {@code today} if there are none
+     */
+    private LocalDate oldestMonth(Connection conn, LocalDate today) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(fecha_gasto) FROM gastos")) {
+            Date oldest = rs.next() ? rs.getDate(1) : null;
+            return (oldest == null ? today : oldest.toLocalDate()).withDayOfMonth(1);
+        }
+    }
+
+    private static final class Partition {
+        private final String name;
+
+        /**
+         * Exclusive upper bound; null for {@code MAXVALUE}.
+         */
+        private final LocalDate end;
+
+        Partition(String name, LocalDate end) {
+            this.name = name;
+            this.end = end;
+        }
+    }
+}
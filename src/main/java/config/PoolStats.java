@@ -0,0 +1,56 @@
+package config;
+
+import metrics.LatencyHistogram;
+
+/**
+ * Point-in-time view of a {@link ConnectionPool}'s counters.
+ */
+public class PoolStats {
+    private final int maxSize;
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final long created;
+    private final long destroyed;
+    private final long timeouts;
+    private final LatencyHistogram acquireTimes;
+
+    public PoolStats(int maxSize, int active, int idle, int waiters,
+            long created, long destroyed, long timeouts, LatencyHistogram acquireTimes) {
+        this.maxSize = maxSize;
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.timeouts = timeouts;
+        this.acquireTimes = acquireTimes;
+    }
+
+    public int getMaxSize() { return maxSize; }
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getWaiters() { return waiters; }
+    public long getCreated() { return created; }
+    public long getDestroyed() { return destroyed; }
+    public long getTimeouts() { return timeouts; }
+
+    /**
+     * Live histogram of the time spent in {@link ConnectionPool#borrow()}.
+     */
+    public LatencyHistogram getAcquireTimes() { return acquireTimes; }
+
+    @Override
+    public String toString() {
+        return "PoolStats{"
+                + "max=" + maxSize
+                + ", active=" + active
+                + ", idle=" + idle
+                + ", waiters=" + waiters
+                + ", created=" + created
+                + ", destroyed=" + destroyed
+                + ", timeouts=" + timeouts
+                + ", acquire=[" + acquireTimes + "]"
+                + '}';
+    }
+}
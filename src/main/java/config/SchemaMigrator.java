@@ -0,0 +1,125 @@
+package config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the versioned SQL scripts under {@code db/migration} in order and
+ * records each applied version in {@code schema_version}.
+ */
+public class SchemaMigrator {
+
+    /**
+     * Scripts in application order. File names follow {@code V<version>__<description>.sql}.
+     */
+    private static final String[] MIGRATIONS = {
+        "V1__create_gastos.sql",
+        "V2__gastos_fecha_categoria_monto_idx.sql",
+        "V3__create_gastos_mensuales.sql",
+        "V4__create_presupuesto_mensual.sql",
+        "V5__montos_decimal.sql",
+        "V6__particiones_gastos.sql",
+    };
+
+    private static final String MIGRATION_PATH = "/db/migration/";
+
+    private final ConnectionPool pool;
+
+    public SchemaMigrator(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Applies every migration newer than the current schema version.
+     *
+     * @return Number of migrations applied
+     */
+    public int migrate() throws SQLException {
+        int applied = 0;
+        try (Connection conn = pool.borrow()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                        + " version INT NOT NULL PRIMARY KEY,"
+                        + " descripcion VARCHAR(255) NOT NULL,"
+                        + " aplicado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            }
+            int current = currentVersion(conn);
+
+            for (String migration : MIGRATIONS) {
+                int version = versionOf(migration);
+                if (version <= current) {
+                    continue;
+                }
+                // MySQL commits DDL implicitly, so each statement is applied on its own.
+                try (Statement stmt = conn.createStatement()) {
+                    for (String sql : statementsOf(migration)) {
+                        stmt.execute(sql);
+                    }
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO schema_version (version, descripcion) VALUES (?, ?)")) {
+                    pstmt.setInt(1, version);
+                    pstmt.setString(2, migration);
+                    pstmt.executeUpdate();
+                }
+                System.out.println("Migración aplicada: " + migration);
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static int versionOf(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+
+    /**
+     * Splits a script into statements on semicolons that end a line, skipping
+     * {@code --} comment lines.
+     */
+    private static List<String> statementsOf(String migration) {
+        String script;
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(MIGRATION_PATH + migration)) {
+            if (in == null) {
+                throw new IllegalStateException("No se encontró la migración " + migration);
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo leer la migración " + migration, e);
+        }
+
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+}
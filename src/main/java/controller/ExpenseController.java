@@ -1,41 +1,102 @@
 package controller;
 import core.Controller;
+import export.ExpenseExporter;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import metrics.ControllerActionEvent;
+import metrics.FlightRecording;
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
 import model.Expense;
+import model.ExpenseListModel;
+import model.ExpenseListSnapshot;
+import repository.ExpenseRepositories;
+import search.SearchHits;
+import service.ExpenseDelta;
 import service.ExpenseService;
 import view.ExpenseView;
 
-public class ExpenseController extends Controller {
-    private ExpenseService expenseService;
-    private Expense expenseModel;
+public final class ExpenseController extends Controller {
+    private ExpenseListModel expenseModel;
     private ExpenseView expenseView;
 
+    /**
+     * Runs all database work off the EDT, one virtual thread per task.
+     */
+    private final ExecutorService backgroundExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Opened in the background, since opening the local store replays its
+     * log and loads its index; the window paints meanwhile.
+     */
+    private final CompletableFuture<ExpenseService> expenseService;
+
+    /**
+     * Operations started by the user that have not completed yet.
+     */
+    private final Set<Future<?>> pendingOperations = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Only touched on the EDT. A refresh result is shown only if no newer
+     * refresh started after it.
+     */
+    private long refreshGeneration;
+    private Future<?> pendingRefresh;
+    private int operationsInFlight;
+    private ExpenseService.ExpenseSummary currentSummary;
+
+    private final StartupTiming startup = new StartupTiming(diagnosticsDirectory().resolve("arranque.csv"),
+            backgroundExecutor);
+
     public ExpenseController() {
-        this.expenseService = new ExpenseService();
-        this.expenseModel = createInitialExpenseModel();
+        this.expenseService = CompletableFuture.supplyAsync(ExpenseService::new, backgroundExecutor);
+        this.expenseModel = new ExpenseListModel();
         this.expenseView = new ExpenseView(this, expenseModel);
     }
 
-    private Expense createInitialExpenseModel() {
-        Expense expense = new Expense.Builder()
-                .description("Initial Model")
-                .category(Expense.ExpenseCategory.OTROS)
-                .amount(0.01)
-                .expenseDate(LocalDate.now())
-                .build();
-        return expense;
-    }
-
     @Override
     public void run() {
         mainFrame.setContentPane(expenseView);
         mainFrame.setTitle("Sistema de Gestión de Gastos");
         mainFrame.setDefaultCloseOperation(javax.swing.JFrame.EXIT_ON_CLOSE);
         mainFrame.setSize(800, 600);
+
+        // Paint what the last run showed while storage is still being opened.
+        ExpenseListSnapshot snapshot = readSnapshot();
+        if (snapshot != null) {
+            expenseView.showSnapshot(snapshot);
+        }
+        startup.setFromSnapshot(snapshot != null);
+        expenseView.whenContentPainted(startup::firstPaint);
+        mainFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                saveSnapshot();
+                startup.close();
+            }
+        });
         mainFrame.setVisible(true);
 
         refreshExpenseList();
+        backgroundExecutor.execute(() -> service().prepareSearch());
     }
 
     public void registerExpense(String description,
@@ -49,44 +110,258 @@ public class ExpenseController extends Controller {
                     .amount(amount)
                     .expenseDate(expenseDate)
                     .build();
-            expenseService.registerExpense(expense);
-            refreshExpenseList();
+            runWriteAsync("registerExpense", "Registrando gasto...", () -> service().registerExpense(expense), this::applyDelta);
         } catch (IllegalArgumentException | IllegalStateException ex) {
             expenseView.showError(ex.getMessage());
         }
     }
 
+    /**
+     * Reloads the summary and table in the background. A refresh started
+     * while another is still running cancels it.
+     */
     public void refreshExpenseList() {
-        List<Expense> expenses = expenseService.listAllExpenses();
-        ExpenseService.ExpenseSummary summary = expenseService.getExpenseSummary(LocalDate.now());
-        
-        updateExpenseModel(expenses, summary);
+        long generation = ++refreshGeneration;
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(false);
+        }
+        pendingRefresh = runAsync("refreshExpenseList", "Actualizando...",
+                () -> service().getExpenseSummary(LocalDate.now()),
+                summary -> {
+                    if (generation == refreshGeneration) {
+                        updateExpenseModel(summary, null);
+                        startup.reconcile();
+                    }
+                });
+    }
+
+    /**
+     * Patches the shown state with one mutation: the table moves a single
+     * row and the summary adjusts only the affected categories.
+     */
+    private void applyDelta(ExpenseDelta delta) {
+        if (currentSummary == null || pendingRefresh != null && !pendingRefresh.isDone()) {
+            // Nothing to patch yet, or a full reload is about to replace it.
+            refreshExpenseList();
+            return;
+        }
+        updateExpenseModel(currentSummary.apply(delta, LocalDate.now()), delta);
+    }
+
+    /**
+     * Stops waiting for every operation still running. Their threads are not
+     * interrupted, since an interrupt closes the local store's file channel;
+     * the work finishes in the background and its result is dropped. The
+     * list is refreshed once a cancelled write finishes.
+     */
+    public void cancelPendingOperations() {
+        for (Future<?> operation : pendingOperations) {
+            operation.cancel(false);
+        }
+    }
+
+    /**
+     * Runs blocking work on a virtual thread and hands its result to
+     * {@code onSuccess} on the EDT. Must be called on the EDT.
+     * <p>
+     * The time from this call until {@code onSuccess} returns is recorded as
+     * {@code controller.<action>}.
+     *
+     * @param action Name the action's metrics are recorded under
+     * @param status Text shown in the view while the work is in flight
+     */
+    private <T> Future<?> runAsync(String action, String status, Callable<T> work, Consumer<T> onSuccess) {
+        operationsInFlight++;
+        expenseView.setBusy(true, status);
+        ActionTiming timing = new ActionTiming(action);
+
+        FutureTask<T> operation = new FutureTask<>(work) {
+            @Override
+            protected void done() {
+                SwingUtilities.invokeLater(() -> completeAsync(this, onSuccess, timing));
+            }
+        };
+        pendingOperations.add(operation);
+        backgroundExecutor.execute(operation);
+        return operation;
     }
 
-    private void updateExpenseModel(List<Expense> expenses, ExpenseService.ExpenseSummary summary) {
-        Expense expenseModel = new Expense.Builder()
-                .description("Expense List Model")
-                .category(Expense.ExpenseCategory.OTROS)
-                .amount(summary.getTotalAmount())
-                .expenseDate(LocalDate.now())
-                .build();
+    /**
+     * Like {@link #runAsync}, for work that changes expenses. If it is
+     * cancelled, the list is refreshed when the work actually finishes, since
+     * the change may have been saved.
+     */
+    private <T> Future<?> runWriteAsync(String action, String status, Callable<T> work, Consumer<T> onSuccess) {
+        AtomicReference<Future<?>> operation = new AtomicReference<>();
+        Future<?> started = runAsync(action, status, () -> {
+            try {
+                return work.call();
+            } finally {
+                // Still null only if the work finished before runAsync returned,
+                // in which case it cannot have been cancelled yet.
+                Future<?> self = operation.get();
+                if (self != null && self.isCancelled()) {
+                    SwingUtilities.invokeLater(this::refreshExpenseList);
+                }
+            }
+        }, onSuccess);
+        operation.set(started);
+        return started;
+    }
 
-        expenseModel.attach(expenseView);
+    /**
+     * Runs on the EDT once the operation finished, failed or was cancelled.
+     */
+    private <T> void completeAsync(FutureTask<T> operation, Consumer<T> onSuccess, ActionTiming timing) {
+        pendingOperations.remove(operation);
+        operationsInFlight--;
+        if (operationsInFlight == 0) {
+            expenseView.setBusy(false, "");
+        }
+        if (operation.isCancelled()) {
+            timing.finish("cancelled");
+            return;
+        }
+        try {
+            onSuccess.accept(operation.get());
+            timing.finish("ok");
+        } catch (ExecutionException ex) {
+            timing.finish("error");
+            Throwable error = ex.getCause();
+            if (error instanceof IllegalArgumentException || error instanceof IllegalStateException) {
+                expenseView.showError(error.getMessage());
+            } else {
+                error.printStackTrace();
+                expenseView.showError("Error inesperado: " + error.getMessage());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        this.expenseModel = expenseModel;
+    /**
+     * Hands the new state to the views, which see it on the next frame.
+     */
+    private void updateExpenseModel(ExpenseService.ExpenseSummary summary, ExpenseDelta delta) {
+        this.currentSummary = summary;
 
-        this.expenseModel.setCustomAttribute("expenses", expenses);
-        this.expenseModel.setCustomAttribute("summary", summary);
+        expenseModel.setState(summary, delta);
+    }
+
+    /**
+     * Waits for the service to open. Must not be called on the EDT before
+     * the window is shown.
+     */
+    private ExpenseService service() {
+        try {
+            return expenseService.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
 
-        this.expenseModel.notifyViews();
+    /**
+     * Saved view of the storage in use, next to the data directory.
+     */
+    private static Path snapshotFile() {
+        String storage = System.getProperty(ExpenseRepositories.STORAGE_PROPERTY, "mysql").toLowerCase();
+        return ExpenseRepositories.dataDirectory().resolveSibling("vista-" + storage + ".snapshot");
+    }
+
+    private static Path diagnosticsDirectory() {
+        return ExpenseRepositories.dataDirectory().resolveSibling("diagnostics");
+    }
+
+    /**
+     * Reads the saved view on the EDT; it is small and mapped, so this is
+     * far cheaper than waiting for storage.
+     *
+     * @return The saved view, or null if there is none or it cannot be read
+     */
+    private ExpenseListSnapshot readSnapshot() {
+        long start = System.nanoTime();
+        try {
+            ExpenseListSnapshot snapshot = ExpenseListSnapshot.read(snapshotFile());
+            MetricsRegistry.global().operation("startup.snapshotRead")
+                    .record(System.nanoTime() - start, snapshot == null ? 0 : snapshot.getFirstPage().size());
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Saves the shown summary and first page for the next start. Runs on the
+     * EDT while the window closes, before the process exits.
+     */
+    private void saveSnapshot() {
+        if (currentSummary == null) {
+            // Storage never answered; keep the previous snapshot.
+            return;
+        }
+        ExpenseListSnapshot snapshot = expenseView.captureSnapshot(currentSummary);
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            snapshot.write(snapshotFile());
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the metrics and a JFR snapshot to the diagnostics directory and
+     * shows the metrics.
+     */
+    public void dumpMetrics() {
+        Path directory = diagnosticsDirectory();
+        runAsync("dumpMetrics", "Guardando métricas...", () -> {
+            String metrics = MetricsRegistry.global().dump();
+            Path recording = FlightRecording.dump(directory);
+            Files.writeString(recording.resolveSibling(recording.getFileName().toString().replace(".jfr", ".txt")), metrics);
+            return metrics + "\nGrabación JFR: " + recording;
+        }, expenseView::showMetrics);
     }
 
     public List<Expense> listAllExpenses() {
-        return expenseService.listAllExpenses();
+        return service().listAllExpenses();
+    }
+
+    public ExecutorService getBackgroundExecutor() {
+        return backgroundExecutor;
+    }
+
+    public long countExpenses() {
+        return service().countExpenses();
+    }
+
+    public List<Expense> listExpensePageAfter(Expense last, int limit) {
+        return service().listExpensePageAfter(last, limit);
+    }
+
+    public List<Expense> listExpensePageAt(long offset, int limit) {
+        return service().listExpensePageAt(offset, limit);
+    }
+
+    /**
+     * Searches descriptions in the background and hands the hits, in
+     * table order, to {@code onResult} on the EDT.
+     */
+    public void searchExpenses(String query, Consumer<SearchHits> onResult) {
+        runAsync("searchExpenses", "Buscando...", () -> service().searchExpenseIds(query), onResult);
+    }
+
+    public List<Expense> findExpensesByIds(int[] ids, int from, int to) {
+        return service().findExpensesByIds(ids, from, to);
     }
 
     public List<Expense> listExpensesByCategory(Expense.ExpenseCategory category) {
-        return expenseService.listExpensesByCategory(category);
+        return service().listExpensesByCategory(category);
     }
 
     public void updateExpense(int id,
@@ -94,23 +369,86 @@ public class ExpenseController extends Controller {
             Expense.ExpenseCategory category,
             double amount,
             LocalDate expenseDate) {
-        Expense expense = new Expense.Builder()
-                .id(id)
-                .description(description)
-                .category(category)
-                .amount(amount)
-                .expenseDate(expenseDate)
-                .build();
-        expenseService.updateExpense(expense);
-        refreshExpenseList();
+        try {
+            Expense expense = new Expense.Builder()
+                    .id(id)
+                    .description(description)
+                    .category(category)
+                    .amount(amount)
+                    .expenseDate(expenseDate)
+                    .build();
+            runWriteAsync("updateExpense", "Actualizando gasto...", () -> service().updateExpense(expense), this::applyDelta);
+        } catch (IllegalArgumentException ex) {
+            expenseView.showError(ex.getMessage());
+        }
     }
 
     public void deleteExpense(int id) {
-        expenseService.deleteExpense(id);
-        refreshExpenseList();
+        runWriteAsync("deleteExpense", "Eliminando gasto...", () -> service().deleteExpense(id), this::applyDelta);
+    }
+
+    /**
+     * Imports a CSV file or restores an archive in the background, then
+     * reloads the list and reports the outcome.
+     */
+    public void importExpenses(Path file) {
+        if (isArchive(file)) {
+            runWriteAsync("importArchive", "Restaurando " + file.getFileName() + "...", () -> service().importArchive(file), rows -> {
+                refreshExpenseList();
+                expenseView.showMessage("Restaurados " + rows + " gastos");
+            });
+            return;
+        }
+        runWriteAsync("importExpenses", "Importando " + file.getFileName() + "...", () -> service().importExpenses(file), report -> {
+            refreshExpenseList();
+            expenseView.showImportReport(report);
+        });
+    }
+
+    /**
+     * Exports every expense in the background, as a columnar archive if the
+     * file has the archive extension and as CSV otherwise.
+     */
+    public void exportExpenses(Path file) {
+        runAsync("exportExpenses", "Exportando " + file.getFileName() + "...", () -> isArchive(file)
+                ? service().exportArchive(null, null, file)
+                : service().exportCsv(null, null, file),
+                rows -> expenseView.showMessage("Exportados " + rows + " gastos"));
+    }
+
+    private static boolean isArchive(Path file) {
+        return file.getFileName().toString().endsWith("." + ExpenseExporter.ARCHIVE_EXTENSION);
     }
 
     public double getTotalMonthlyExpenses(LocalDate month) {
-        return expenseService.getExpenseSummary(month).getTotalAmount();
+        return service().getExpenseSummary(month).getTotalAmount();
+    }
+
+    /**
+     * End-to-end timing of one controller action, started and finished on the EDT.
+     */
+    private static class ActionTiming {
+        private final String action;
+        private final long start = System.nanoTime();
+        private final ControllerActionEvent event = new ControllerActionEvent();
+
+        ActionTiming(String action) {
+            this.action = action;
+            event.begin();
+        }
+
+        void finish(String outcome) {
+            OperationMetrics metrics = MetricsRegistry.global().operation("controller." + action);
+            metrics.record(System.nanoTime() - start, 0);
+            if (outcome.equals("error")) {
+                metrics.recordError();
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.action = action;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
     }
-}
\ No newline at end of file
+}
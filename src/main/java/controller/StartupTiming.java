@@ -0,0 +1,109 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import metrics.MetricsRegistry;
+import metrics.StartupEvent;
+
+/**
+ * Times the window's startup from process launch: {@code firstPaint} when
+ * expenses are first painted, from the snapshot or from storage, and
+ * {@code reconcile} when storage first answers. Each milestone is recorded
+ * as {@code startup.<milestone>} and as a JFR event, and each run appends
+ * one line to {@code arranque.csv} so startups can be compared across runs.
+ * Only used on the EDT.
+ */
+class StartupTiming {
+    private static final String HEADER = "fecha,origen,primera_pintura_ms,reconciliacion_ms\n";
+
+    private final Instant launch = ProcessHandle.current().info().startInstant().orElseGet(Instant::now);
+    private final Path log;
+    private final Executor writer;
+
+    private boolean fromSnapshot;
+    private long firstPaintMillis = -1;
+    private long reconcileMillis = -1;
+    private boolean written;
+
+    /**
+     * @param log CSV file the run's line is appended to
+     * @param writer Executor the line is written on
+     */
+    StartupTiming(Path log, Executor writer) {
+        this.log = log;
+        this.writer = writer;
+    }
+
+    void setFromSnapshot(boolean fromSnapshot) {
+        this.fromSnapshot = fromSnapshot;
+    }
+
+    void firstPaint() {
+        if (firstPaintMillis < 0) {
+            firstPaintMillis = milestone("firstPaint");
+            writeIfComplete();
+        }
+    }
+
+    void reconcile() {
+        if (reconcileMillis < 0) {
+            reconcileMillis = milestone("reconcile");
+            writeIfComplete();
+        }
+    }
+
+    /**
+     * Writes the line with whatever milestones were reached, for a run
+     * closed before storage answered. Writes on the calling thread, since
+     * the process is about to exit.
+     */
+    void close() {
+        if (!written && firstPaintMillis >= 0) {
+            write(Runnable::run);
+        }
+    }
+
+    private long milestone(String name) {
+        long millis = Math.max(0, ChronoUnit.MILLIS.between(launch, Instant.now()));
+        MetricsRegistry.global().operation("startup." + name).record(TimeUnit.MILLISECONDS.toNanos(millis), 0);
+        StartupEvent event = new StartupEvent();
+        if (event.shouldCommit()) {
+            event.milestone = name;
+            event.fromSnapshot = fromSnapshot;
+            event.sinceLaunch = millis;
+            event.commit();
+        }
+        return millis;
+    }
+
+    private void writeIfComplete() {
+        if (!written && firstPaintMillis >= 0 && reconcileMillis >= 0) {
+            write(writer);
+        }
+    }
+
+    private void write(Executor executor) {
+        written = true;
+        String line = String.format("%s,%s,%d,%s%n", LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS),
+                fromSnapshot ? "instantanea" : "base de datos", firstPaintMillis,
+                reconcileMillis < 0 ? "" : Long.toString(reconcileMillis));
+        executor.execute(() -> {
+            try {
+                Files.createDirectories(log.getParent());
+                if (!Files.exists(log)) {
+                    Files.writeString(log, HEADER);
+                }
+                Files.writeString(log, line, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+}
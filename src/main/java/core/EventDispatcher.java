@@ -0,0 +1,86 @@
+package core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.Timer;
+
+/**
+ * Delivers model events to views on the EDT, at most once per frame.
+ * <p>
+ * Events published within a frame are coalesced per model, so every view
+ * gets a single update per model and frame. Publishing never waits for the
+ * views: it can be called from any thread, and while the EDT is busy with a
+ * slow view new events keep merging into the pending ones.
+ */
+public class EventDispatcher {
+
+    //-----------------------------------------------------------------------
+    //		Attributes
+    //-----------------------------------------------------------------------
+    /**
+     * About 60 updates per second.
+     */
+    public static final int DEFAULT_FRAME_MILLIS = 16;
+
+    private static final EventDispatcher DEFAULT = new EventDispatcher(DEFAULT_FRAME_MILLIS);
+
+    /**
+     * Events waiting for the next frame, by model, in publishing order.
+     * Guarded by {@code this}.
+     */
+    private Map<ObservableModel, ModelEvent> pending = new LinkedHashMap<>();
+
+    private final Timer frame;
+
+
+    //-----------------------------------------------------------------------
+    //		Constructors
+    //-----------------------------------------------------------------------
+    /**
+     * @param frameMillis Time events are collected before being delivered
+     */
+    public EventDispatcher(int frameMillis) {
+        this.frame = new Timer(frameMillis, e -> flush());
+        this.frame.setRepeats(false);
+    }
+
+
+    //-----------------------------------------------------------------------
+    //		Methods
+    //-----------------------------------------------------------------------
+    /**
+     * @return Dispatcher shared by the models of the application
+     */
+    public static EventDispatcher getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Queues an event for the views of its model.
+     *
+     * @param model Model whose views will receive the event
+     * @param event Event to be delivered
+     */
+    public void publish(ObservableModel model, ModelEvent event) {
+        boolean first;
+        synchronized (this) {
+            first = pending.isEmpty();
+            pending.merge(model, event, ModelEvent::coalesce);
+        }
+        if (first) {
+            frame.restart();
+        }
+    }
+
+    /**
+     * Delivers the pending events. Runs on the EDT.
+     */
+    private void flush() {
+        Map<ObservableModel, ModelEvent> events;
+        synchronized (this) {
+            events = pending;
+            pending = new LinkedHashMap<>();
+        }
+        events.forEach(ObservableModel::deliver);
+    }
+}
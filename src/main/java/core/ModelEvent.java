@@ -0,0 +1,30 @@
+package core;
+
+/**
+ * Change published by a model. Subclasses carry the data of the change.
+ */
+public class ModelEvent {
+    private final Model source;
+
+    public ModelEvent(Model source) {
+        this.source = source;
+    }
+
+    /**
+     * @return Model that published the event
+     */
+    public Model getSource() {
+        return source;
+    }
+
+    /**
+     * Merges an event published later by the same model, before views saw
+     * this one. By default the later event replaces this one.
+     *
+     * @param later Event published after this one
+     * @return Event that the views will receive instead of both
+     */
+    public ModelEvent coalesce(ModelEvent later) {
+        return later;
+    }
+}
@@ -0,0 +1,79 @@
+package core;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Model that hands its changes to an {@link EventDispatcher}, so views are
+ * updated on the EDT, once per frame, whatever thread changed the model.
+ */
+public abstract class ObservableModel implements Model {
+
+    //-----------------------------------------------------------------------
+    //		Attributes
+    //-----------------------------------------------------------------------
+    private final List<View> views = new CopyOnWriteArrayList<>();
+
+    private final EventDispatcher dispatcher;
+
+
+    //-----------------------------------------------------------------------
+    //		Constructors
+    //-----------------------------------------------------------------------
+    protected ObservableModel() {
+        this(EventDispatcher.getDefault());
+    }
+
+    protected ObservableModel(EventDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+
+    //-----------------------------------------------------------------------
+    //		Methods
+    //-----------------------------------------------------------------------
+    @Override
+    public void attach(View view) {
+        if (!views.contains(view)) {
+            views.add(view);
+        }
+    }
+
+    @Override
+    public void detach(View view) {
+        views.remove(view);
+    }
+
+    /**
+     * Tells the views that the model changed without saying what changed.
+     */
+    @Override
+    public void notifyViews() {
+        publish(new ModelEvent(this));
+    }
+
+    /**
+     * Queues a change for the views. Returns without waiting for them.
+     *
+     * @param event Change to be delivered
+     */
+    protected void publish(ModelEvent event) {
+        dispatcher.publish(this, event);
+    }
+
+    /**
+     * Passes an event to every attached view. Called by the dispatcher on the
+     * EDT; a view that fails does not keep the others from being updated.
+     *
+     * @param event Event to be delivered
+     */
+    void deliver(ModelEvent event) {
+        for (View view : views) {
+            try {
+                view.update(this, event);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import model.Expense;
+
+/**
+ * Writes expenses as CSV, with the columns and header the CSV importer reads
+ * back. Rows are encoded byte by byte into a direct buffer that is written
+ * to the channel whenever it fills, so no per-row strings are built.
+ */
+public class CsvExpenseWriter implements Consumer<Expense>, AutoCloseable {
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final byte[] HEADER = "id,descripcion,categoria,monto,fecha\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] CATEGORIES = new byte[Expense.ExpenseCategory.values().length][];
+
+    static {
+        for (Expense.ExpenseCategory category : Expense.ExpenseCategory.values()) {
+            CATEGORIES[category.ordinal()] = category.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final byte[] digits = new byte[20];
+    private long rows;
+
+    public CsvExpenseWriter(Path target) throws IOException {
+        this.channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.put(HEADER);
+    }
+
+    /**
+     * Appends one row.
+     *
+     * @throws UncheckedIOException If the buffer could not be written out
+     */
+    @Override
+    public void accept(Expense expense) {
+        String description = expense.getDescription() == null ? "" : expense.getDescription();
+        // Worst case: every char quoted and encoded as three bytes.
+        ensure(64 + description.length() * 6);
+
+        putLong(expense.id());
+        buffer.put((byte) ',');
+        putDescription(description);
+        buffer.put((byte) ',');
+        if (expense.getCategory() != null) {
+            buffer.put(CATEGORIES[expense.getCategory().ordinal()]);
+        }
+        buffer.put((byte) ',');
+        putCents(expense.getAmountCents());
+        buffer.put((byte) ',');
+        putDate(expense.getExpenseDate());
+        buffer.put((byte) '\n');
+        rows++;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void putDescription(String description) {
+        boolean quote = false;
+        for (int i = 0; i < description.length() && !quote; i++) {
+            char c = description.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) {
+            buffer.put((byte) '"');
+        }
+        for (int i = 0; i < description.length(); i++) {
+            char c = description.charAt(i);
+            if (c == '"') {
+                buffer.put((byte) '"').put((byte) '"');
+            } else if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < description.length()
+                    && Character.isLowSurrogate(description.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, description.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18))
+                        .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                        .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+                        .put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12))
+                        .put((byte) (0x80 | c >> 6 & 0x3F))
+                        .put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        if (quote) {
+            buffer.put((byte) '"');
+        }
+    }
+
+    /**
+     * Writes cents as {@code 12.50}.
+     */
+    private void putCents(long cents) {
+        if (cents < 0) {
+            buffer.put((byte) '-');
+            cents = -cents;
+        }
+        putLong(cents / 100);
+        buffer.put((byte) '.');
+        putPadded((int) (cents % 100), 2);
+    }
+
+    private void putDate(LocalDate date) {
+        if (date == null) {
+            return;
+        }
+        putPadded(date.getYear(), 4);
+        buffer.put((byte) '-');
+        putPadded(date.getMonthValue(), 2);
+        buffer.put((byte) '-');
+        putPadded(date.getDayOfMonth(), 2);
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    private void putPadded(int value, int width) {
+        int divisor = 1;
+        for (int i = 1; i < width; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package export;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import model.Expense;
+
+/**
+ * Reads an archive written by {@link ExpenseArchiveWriter} one block at a time.
+ */
+public class ExpenseArchiveReader implements AutoCloseable {
+    private final FileChannel channel;
+    private final ByteBuffer frame = ByteBuffer.allocateDirect(Long.BYTES + Integer.BYTES);
+    private ByteBuffer body = ByteBuffer.allocateDirect(1 << 20);
+    private final CRC32 crc = new CRC32();
+    private long rows;
+    private boolean finished;
+
+    public ExpenseArchiveReader(Path source) throws IOException {
+        this.channel = FileChannel.open(source, StandardOpenOption.READ);
+        readFully(frame, Integer.BYTES * 2);
+        if (frame.getInt() != ExpenseArchiveWriter.MAGIC) {
+            throw new IOException("El archivo no es un archivo de gastos");
+        }
+        int version = frame.getInt();
+        if (version != ExpenseArchiveWriter.VERSION) {
+            throw new IOException("Versión de archivo de gastos no soportada");
+        }
+    }
+
+    /**
+     * @return The rows of the next block, with their original ids, or null after the last block
+     * @throws IOException If the file is truncated or a block fails its checksum
+     */
+    public List<Expense> nextBlock() throws IOException {
+        if (finished) {
+            return null;
+        }
+        readFully(frame, Integer.BYTES);
+        int size = frame.getInt();
+        if (size == ExpenseArchiveWriter.END_OF_BLOCKS) {
+            readFully(frame, Long.BYTES);
+            if (frame.getLong() != rows) {
+                throw new IOException("El archivo de gastos no tiene las filas que declara");
+            }
+            finished = true;
+            return null;
+        }
+        readFully(frame, Integer.BYTES);
+        int bodyLength = frame.getInt();
+        if (size < 0 || size > ExpenseArchiveWriter.BLOCK_ROWS || bodyLength < size * ExpenseArchiveWriter.FIXED_ROW_BYTES) {
+            throw new IOException("Bloque inválido en el archivo de gastos");
+        }
+        if (body.capacity() < bodyLength) {
+            body = ByteBuffer.allocateDirect(Integer.highestOneBit(bodyLength) << 1);
+        }
+        readFully(body, bodyLength);
+        crc.reset();
+        crc.update(body.duplicate());
+        readFully(frame, Integer.BYTES);
+        if (frame.getInt() != (int) crc.getValue()) {
+            throw new IOException("Checksum inválido en el archivo de gastos");
+        }
+
+        int idsAt = 0;
+        int daysAt = idsAt + size * Integer.BYTES;
+        int categoriesAt = daysAt + size * Integer.BYTES;
+        int amountsAt = categoriesAt + size;
+        body.position(amountsAt + size * Long.BYTES);
+        String[] dictionary = new String[body.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[body.getShort() & 0xFFFF];
+            body.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int codesAt = body.position();
+
+        Expense.ExpenseCategory[] categories = Expense.ExpenseCategory.values();
+        List<Expense> expenses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            expenses.add(Expense.of(
+                    body.getInt(idsAt + i * Integer.BYTES),
+                    dictionary[body.getInt(codesAt + i * Integer.BYTES)],
+                    categories[body.get(categoriesAt + i)],
+                    body.getLong(amountsAt + i * Long.BYTES),
+                    LocalDate.ofEpochDay(body.getInt(daysAt + i * Integer.BYTES))));
+        }
+        rows += size;
+        return expenses;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    private void readFully(ByteBuffer buffer, int bytes) throws IOException {
+        buffer.clear().limit(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("El archivo de gastos está truncado");
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
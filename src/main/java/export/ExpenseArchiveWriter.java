@@ -0,0 +1,159 @@
+package export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import model.Expense;
+
+/**
+ * Writes expenses to a compact columnar archive.
+ * <p>
+ * Layout: {@code [int magic][int version]}, then blocks of up to
+ * {@link #BLOCK_ROWS} rows, each {@code [int rows][int bodyLength][body][int crc32]},
+ * and a trailer {@code [int -1][long totalRows]}. A block body stores each
+ * column contiguously: ids, epoch days, category ordinals, amounts in cents,
+ * then a dictionary of the block's distinct descriptions and one code per row.
+ * Archives of another version are refused.
+ */
+public class ExpenseArchiveWriter implements Consumer<Expense>, AutoCloseable {
+    static final int MAGIC = 0x47535441;
+    static final int VERSION = 2;
+    static final int BLOCK_ROWS = 8192;
+    static final int END_OF_BLOCKS = -1;
+
+    /**
+     * Bytes per row of the fixed-width columns: id, epoch day, category, amount and description code.
+     */
+    static final int FIXED_ROW_BYTES = Integer.BYTES * 2 + 1 + Long.BYTES + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final ByteBuffer frame = ByteBuffer.allocateDirect(Long.BYTES + Integer.BYTES);
+    private final ByteBuffer checksum = ByteBuffer.allocateDirect(Integer.BYTES);
+    private ByteBuffer body = ByteBuffer.allocateDirect(1 << 20);
+    private final CRC32 crc = new CRC32();
+
+    private final int[] ids = new int[BLOCK_ROWS];
+    private final int[] epochDays = new int[BLOCK_ROWS];
+    private final byte[] categories = new byte[BLOCK_ROWS];
+    private final long[] amounts = new long[BLOCK_ROWS];
+    private final int[] codes = new int[BLOCK_ROWS];
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<byte[]> descriptions = new ArrayList<>();
+    private int descriptionBytes;
+    private int size;
+    private long rows;
+
+    public ExpenseArchiveWriter(Path target) throws IOException {
+        this.channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        frame.clear().putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(frame);
+    }
+
+    /**
+     * Buffers one row, writing out the block once it is full.
+     *
+     * @throws UncheckedIOException If a block could not be written
+     */
+    @Override
+    public void accept(Expense expense) {
+        ids[size] = expense.id();
+        epochDays[size] = (int) expense.getExpenseDate().toEpochDay();
+        categories[size] = (byte) expense.getCategory().ordinal();
+        amounts[size] = expense.getAmountCents();
+        String description = expense.getDescription() == null ? "" : expense.getDescription();
+        codes[size] = dictionary.computeIfAbsent(description, key -> {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            descriptions.add(bytes);
+            descriptionBytes += Short.BYTES + bytes.length;
+            return descriptions.size() - 1;
+        });
+        size++;
+        rows++;
+        if (size == BLOCK_ROWS) {
+            try {
+                writeBlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    private void writeBlock() throws IOException {
+        int bodyLength = size * FIXED_ROW_BYTES + Integer.BYTES + descriptionBytes;
+        if (body.capacity() < bodyLength) {
+            body = ByteBuffer.allocateDirect(Integer.highestOneBit(bodyLength) << 1);
+        }
+        body.clear();
+        for (int i = 0; i < size; i++) {
+            body.putInt(ids[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            body.putInt(epochDays[i]);
+        }
+        body.put(categories, 0, size);
+        for (int i = 0; i < size; i++) {
+            body.putLong(amounts[i]);
+        }
+        body.putInt(descriptions.size());
+        for (byte[] description : descriptions) {
+            body.putShort((short) description.length).put(description);
+        }
+        for (int i = 0; i < size; i++) {
+            body.putInt(codes[i]);
+        }
+        body.flip();
+
+        crc.reset();
+        crc.update(body.duplicate());
+        frame.clear().putInt(size).putInt(bodyLength).flip();
+        checksum.clear().putInt((int) crc.getValue()).flip();
+        writeFully(frame, body, checksum);
+
+        size = 0;
+        dictionary.clear();
+        descriptions.clear();
+        descriptionBytes = 0;
+    }
+
+    private void writeFully(ByteBuffer... buffers) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    /**
+     * Writes the last block and the trailer.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (size > 0) {
+                writeBlock();
+            }
+            frame.clear().putInt(END_OF_BLOCKS).putLong(rows).flip();
+            writeFully(frame);
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+}
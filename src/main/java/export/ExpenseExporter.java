@@ -0,0 +1,91 @@
+package export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import model.Expense;
+import repository.ExpenseColumn;
+import repository.ExpenseRepository;
+import repository.PartialWriteException;
+
+/**
+ * Streams expenses from the repository's cursor into export files, and
+ * restores archives. Only one block or buffer of rows is held at a time.
+ */
+public class ExpenseExporter {
+    /**
+     * File extension used for columnar archives.
+     */
+    public static final String ARCHIVE_EXTENSION = "gastos";
+
+    private final ExpenseRepository repository;
+
+    public ExpenseExporter(ExpenseRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Exports the expenses dated in {@code [from, to)} as CSV.
+     *
+     * @param from First date included, or null for no lower bound
+     * @param to First date excluded, or null for no upper bound
+     * @return Number of rows written
+     */
+    public long exportCsv(LocalDate from, LocalDate to, Path target) throws IOException {
+        try (CsvExpenseWriter writer = new CsvExpenseWriter(target)) {
+            stream(from, to, writer);
+            return writer.getRows();
+        }
+    }
+
+    /**
+     * Exports the expenses dated in {@code [from, to)} as a columnar archive.
+     *
+     * @return Number of rows written
+     * @see #exportCsv(LocalDate, LocalDate, Path)
+     */
+    public long exportArchive(LocalDate from, LocalDate to, Path target) throws IOException {
+        try (ExpenseArchiveWriter writer = new ExpenseArchiveWriter(target)) {
+            stream(from, to, writer);
+            return writer.getRows();
+        }
+    }
+
+    private void stream(LocalDate from, LocalDate to, Consumer<Expense> writer) throws IOException {
+        try {
+            repository.forEachByDateRange(from, to, ExpenseColumn.ALL, writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Saves every archived row as a new expense, one {@code saveAll} per
+     * block. Rows get new ids and, having passed the monthly limit when
+     * first written, are not checked against it again. Rows dated in an
+     * archived year are skipped.
+     *
+     * @return Number of rows saved
+     * @throws IOException If the archive cannot be read, or a block fails to
+     * save; the message then says how many rows were saved before it
+     */
+    public long importArchive(Path source) throws IOException {
+        long saved = 0;
+        try (ExpenseArchiveReader reader = new ExpenseArchiveReader(source)) {
+            for (List<Expense> block = reader.nextBlock(); block != null; block = reader.nextBlock()) {
+                saved += savedCount(repository.saveAll(block));
+            }
+        } catch (PartialWriteException e) {
+            saved += savedCount(e.getIds());
+            throw new IOException("Se restauraron " + saved + " gastos antes del error. " + e.getMessage(), e);
+        }
+        return saved;
+    }
+
+    private static long savedCount(List<Integer> ids) {
+        return ids.stream().filter(id -> id >= 0).count();
+    }
+}
@@ -0,0 +1,601 @@
+package importer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import model.Expense;
+import repository.ExpenseRepository;
+import repository.PartialWriteException;
+
+/**
+ * Imports expenses from a CSV file, such as a bank statement export.
+ * <p>
+ * A reader thread maps the file one window at a time, splits each window into
+ * line-aligned chunks and parses them in parallel on a fork-join pool. Parsed
+ * rows go through a bounded queue to the calling thread, which writes them
+ * in batches with {@link ExpenseRepository#saveAll}. Memory use depends on
+ * the window and queue sizes, not on the file size.
+ * <p>
+ * The monthly limit is checked once per batch: the batch's months are locked,
+ * their totals read, and each row is accepted against the running total.
+ * <p>
+ * Columns are taken by name from the header (descripcion, categoria, monto,
+ * fecha, or their English names), or in that order when there is no header.
+ * Quoted fields may not span lines.
+ */
+public class CsvExpenseImporter {
+    private static final int MAX_REPORTED_REJECTIONS = 1000;
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+    private static final DateTimeFormatter SLASH_DATE = DateTimeFormatter.ofPattern("d/M/uuuu");
+    private static final List<ParsedRow> END = new ArrayList<>();
+
+    private final ExpenseRepository repository;
+    private final long monthlyLimitCents;
+    private final Function<Collection<LocalDate>, List<? extends Lock>> monthLocks;
+    private final char delimiter;
+    private final boolean header;
+    private final int batchSize;
+    private final int windowBytes;
+    private final int chunkBytes;
+    private final int queueCapacity;
+    private final ForkJoinPool pool;
+
+    private CsvExpenseImporter(Builder builder) {
+        this.repository = builder.repository;
+        this.monthlyLimitCents = builder.monthlyLimitCents;
+        this.monthLocks = builder.monthLocks;
+        this.delimiter = builder.delimiter;
+        this.header = builder.header;
+        this.batchSize = builder.batchSize;
+        this.windowBytes = builder.windowBytes;
+        this.chunkBytes = builder.chunkBytes;
+        this.queueCapacity = builder.queueCapacity;
+        this.pool = builder.pool;
+    }
+
+    /**
+     * Imports the file and returns once every row was written or rejected.
+     */
+    public ImportReport importFile(Path file) throws IOException {
+        long begin = System.nanoTime();
+        ImportReport report = new ImportReport(MAX_REPORTED_REJECTIONS);
+        BlockingQueue<List<ParsedRow>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> readError = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            try {
+                read(file, queue);
+            } catch (Throwable e) {
+                readError.set(e);
+            } finally {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    // The writer stopped and is no longer waiting.
+                }
+            }
+        }, "csv-import-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            for (List<ParsedRow> batch = queue.take(); batch != END; batch = queue.take()) {
+                write(batch, report);
+            }
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Importación interrumpida");
+        } finally {
+            reader.interrupt();
+        }
+
+        Throwable error = readError.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error != null) {
+            throw new IllegalStateException(error);
+        }
+        report.finish(System.nanoTime() - begin);
+        return report;
+    }
+
+    //-----------------------------------------------------------------------
+    //		Reading
+    //-----------------------------------------------------------------------
+    private void read(Path file, BlockingQueue<List<ParsedRow>> queue) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            long nextLine = 1;
+            Columns columns = Columns.DEFAULT;
+            List<ParsedRow> batch = new ArrayList<>(batchSize);
+
+            while (position < size) {
+                int length = (int) Math.min(windowBytes, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = length;
+                if (position + length < size) {
+                    end = lastNewline(window, 0, length) + 1;
+                    if (end == 0) {
+                        throw new IOException("La línea " + nextLine + " es demasiado larga");
+                    }
+                }
+
+                int start = 0;
+                if (position == 0) {
+                    start = hasBom(window, end) ? 3 : 0;
+                    if (header) {
+                        int newline = nextNewline(window, start, end);
+                        int headerEnd = newline < 0 ? end : newline;
+                        columns = Columns.fromHeader(splitFields(decodeLine(window, start, headerEnd), delimiter));
+                        start = newline < 0 ? end : newline + 1;
+                        nextLine++;
+                    }
+                }
+
+                List<ParseChunk> chunks = split(window, start, end, columns);
+                pool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        invokeAll(chunks);
+                    }
+                });
+
+                for (ParseChunk chunk : chunks) {
+                    for (ParsedRow row : chunk.join()) {
+                        row.line += nextLine;
+                        batch.add(row);
+                        if (batch.size() == batchSize) {
+                            queue.put(batch);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                    nextLine += chunk.lines;
+                }
+                position += end;
+            }
+            if (!batch.isEmpty()) {
+                queue.put(batch);
+            }
+        }
+    }
+
+    /**
+     * Splits {@code [start, end)} into chunks of about {@code chunkBytes}
+     * that end on a line boundary.
+     */
+    private List<ParseChunk> split(ByteBuffer window, int start, int end, Columns columns) {
+        List<ParseChunk> chunks = new ArrayList<>();
+        while (start < end) {
+            int chunkEnd = end;
+            if (end - start > chunkBytes) {
+                int newline = lastNewline(window, start, start + chunkBytes);
+                chunkEnd = newline < 0 ? nextNewline(window, start + chunkBytes, end) + 1 : newline + 1;
+                if (chunkEnd <= start) {
+                    chunkEnd = end;
+                }
+            }
+            chunks.add(new ParseChunk(window.slice(start, chunkEnd - start), columns));
+            start = chunkEnd;
+        }
+        return chunks;
+    }
+
+    private static int lastNewline(ByteBuffer buffer, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int nextNewline(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean hasBom(ByteBuffer buffer, int end) {
+        return end >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF;
+    }
+
+    private static String decodeLine(ByteBuffer buffer, int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //-----------------------------------------------------------------------
+    //		Parsing
+    //-----------------------------------------------------------------------
+    private ParsedRow parse(String line, Columns columns) {
+        List<String> fields = splitFields(line, delimiter);
+        if (fields.size() <= columns.max) {
+            return ParsedRow.rejected("Faltan columnas: se esperaban " + (columns.max + 1) + " y hay " + fields.size());
+        }
+
+        String description = fields.get(columns.description).trim();
+        if (description.isEmpty()) {
+            return ParsedRow.rejected("La descripción está vacía");
+        }
+        if (description.length() > MAX_DESCRIPTION_LENGTH) {
+            return ParsedRow.rejected("La descripción supera " + MAX_DESCRIPTION_LENGTH + " caracteres");
+        }
+
+        String categoryText = normalize(fields.get(columns.category));
+        Expense.ExpenseCategory category;
+        try {
+            category = categoryText.isEmpty() ? Expense.ExpenseCategory.OTROS : Expense.ExpenseCategory.valueOf(categoryText);
+        } catch (IllegalArgumentException e) {
+            return ParsedRow.rejected("Categoría desconocida: " + fields.get(columns.category).trim());
+        }
+
+        double amount;
+        try {
+            amount = parseAmount(fields.get(columns.amount));
+        } catch (NumberFormatException e) {
+            return ParsedRow.rejected("Monto inválido: " + fields.get(columns.amount).trim());
+        }
+
+        LocalDate date;
+        try {
+            String dateText = fields.get(columns.date).trim();
+            date = dateText.indexOf('/') >= 0 ? LocalDate.parse(dateText, SLASH_DATE) : LocalDate.parse(dateText);
+        } catch (DateTimeParseException e) {
+            return ParsedRow.rejected("Fecha inválida: " + fields.get(columns.date).trim());
+        }
+
+        try {
+            return ParsedRow.accepted(new Expense.Builder()
+                    .description(description)
+                    .category(category)
+                    .amount(amount)
+                    .expenseDate(date)
+                    .build());
+        } catch (IllegalArgumentException e) {
+            return ParsedRow.rejected(e.getMessage());
+        }
+    }
+
+    /**
+     * Splits a line on the delimiter. Fields may be quoted, with {@code ""}
+     * standing for a quote inside a quoted field.
+     */
+    static List<String> splitFields(String line, char delimiter) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Parses amounts such as {@code 12.50}, {@code S/ 1,234.50} or
+     * {@code 1.234,50}; the last separator is taken as the decimal one.
+     */
+    static double parseAmount(String text) {
+        StringBuilder digits = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isDigit(c) || c == '-' || ((c == '.' || c == ',') && !digits.isEmpty())) {
+                digits.append(c);
+            }
+        }
+        String number = digits.toString();
+        int comma = number.lastIndexOf(',');
+        int dot = number.lastIndexOf('.');
+        number = comma > dot ? number.replace(".", "").replace(',', '.') : number.replace(",", "");
+        return Double.parseDouble(number);
+    }
+
+    /**
+     * Strips accents and case so "Alimentación" matches {@code ALIMENTACION}.
+     */
+    static String normalize(String text) {
+        return Normalizer.normalize(text.trim(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toUpperCase(Locale.ROOT);
+    }
+
+    //-----------------------------------------------------------------------
+    //		Writing
+    //-----------------------------------------------------------------------
+    /**
+     * Saves the valid rows in one call that accepts each while its month
+     * stays within the limit, holding the batch's month locks throughout.
+     * The repository checks the limit in the same transaction as the insert.
+     */
+    private void write(List<ParsedRow> batch, ImportReport report) {
+        List<ParsedRow> valid = new ArrayList<>(batch.size());
+        Set<LocalDate> months = new TreeSet<>();
+        for (ParsedRow row : batch) {
+            report.rowRead();
+            if (row.expense == null) {
+                report.reject(row.line, row.reason);
+            } else {
+                valid.add(row);
+                months.add(row.expense.getExpenseDate().withDayOfMonth(1));
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        List<? extends Lock> locks = monthLocks.apply(months);
+        locks.forEach(Lock::lock);
+        try {
+            List<ParsedRow> writtenRows = new ArrayList<>(valid.size());
+            List<Expense> written = new ArrayList<>(valid.size());
+            LocalDate archivedBefore = repository.archivedBefore();
+            for (ParsedRow row : valid) {
+                if (row.expense.getExpenseDate().isBefore(archivedBefore)) {
+                    report.reject(row.line, "Los gastos anteriores a " + archivedBefore
+                            + " están archivados y no se pueden importar");
+                } else {
+                    writtenRows.add(row);
+                    written.add(row.expense);
+                }
+            }
+
+            List<Integer> ids;
+            String failure = "No se pudo guardar el gasto";
+            try {
+                ids = written.isEmpty() ? List.of() : repository.saveAllWithinMonthlyLimit(written, monthlyLimitCents);
+            } catch (PartialWriteException e) {
+                ids = e.getIds();
+                failure += ": " + e.getMessage();
+            }
+            String overLimit = String.format("El gasto excede el límite mensual de S/%.0f", monthlyLimitCents / 100.0);
+            int saved = 0;
+            for (int i = 0; i < writtenRows.size(); i++) {
+                if (i >= ids.size()) {
+                    report.reject(writtenRows.get(i).line, failure);
+                } else if (ids.get(i) < 0) {
+                    report.reject(writtenRows.get(i).line, overLimit);
+                } else {
+                    saved++;
+                }
+            }
+            report.imported(saved);
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    //		Nested classes
+    //-----------------------------------------------------------------------
+    /**
+     * Parses the lines of one chunk. Line numbers are relative to the chunk
+     * until the reader rebases them.
+     */
+    @SuppressWarnings("serial")
+    private final class ParseChunk extends RecursiveTask<List<ParsedRow>> {
+        private final ByteBuffer bytes;
+        private final Columns columns;
+        private long lines;
+
+        ParseChunk(ByteBuffer bytes, Columns columns) {
+            this.bytes = bytes;
+            this.columns = columns;
+        }
+
+        @Override
+        protected List<ParsedRow> compute() {
+            List<ParsedRow> rows = new ArrayList<>();
+            int limit = bytes.limit();
+            int start = 0;
+            while (start < limit) {
+                int newline = nextNewline(bytes, start, limit);
+                int end = newline < 0 ? limit : newline;
+                String line = decodeLine(bytes, start, end);
+                if (!line.isBlank()) {
+                    ParsedRow row = parse(line, columns);
+                    row.line = lines;
+                    rows.add(row);
+                }
+                lines++;
+                start = end + 1;
+            }
+            return rows;
+        }
+    }
+
+    private static final class ParsedRow {
+        private long line;
+        private final Expense expense;
+        private final String reason;
+
+        private ParsedRow(Expense expense, String reason) {
+            this.expense = expense;
+            this.reason = reason;
+        }
+
+        static ParsedRow accepted(Expense expense) {
+            return new ParsedRow(expense, null);
+        }
+
+        static ParsedRow rejected(String reason) {
+            return new ParsedRow(null, reason);
+        }
+    }
+
+    /**
+     * Field positions of each expense attribute.
+     */
+    private static final class Columns {
+        static final Columns DEFAULT = new Columns(0, 1, 2, 3);
+
+        final int description;
+        final int category;
+        final int amount;
+        final int date;
+        final int max;
+
+        Columns(int description, int category, int amount, int date) {
+            this.description = description;
+            this.category = category;
+            this.amount = amount;
+            this.date = date;
+            this.max = Math.max(Math.max(description, category), Math.max(amount, date));
+        }
+
+        static Columns fromHeader(List<String> names) throws IOException {
+            int description = -1;
+            int category = -1;
+            int amount = -1;
+            int date = -1;
+            for (int i = 0; i < names.size(); i++) {
+                switch (normalize(names.get(i))) {
+                    case "DESCRIPCION", "DESCRIPTION", "CONCEPTO":
+                        description = i;
+                        break;
+                    case "CATEGORIA", "CATEGORY":
+                        category = i;
+                        break;
+                    case "MONTO", "AMOUNT", "IMPORTE":
+                        amount = i;
+                        break;
+                    case "FECHA", "FECHA_GASTO", "DATE":
+                        date = i;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (description < 0 || category < 0 || amount < 0 || date < 0) {
+                throw new IOException("La cabecera debe tener las columnas descripcion, categoria, monto y fecha");
+            }
+            return new Columns(description, category, amount, date);
+        }
+    }
+
+    public static class Builder {
+        private final ExpenseRepository repository;
+        private long monthlyLimitCents = Long.MAX_VALUE;
+        private Function<Collection<LocalDate>, List<? extends Lock>> monthLocks = months -> List.of();
+        private char delimiter = ',';
+        private boolean header = true;
+        private int batchSize = 1000;
+        private int windowBytes = 16 << 20;
+        private int chunkBytes = 1 << 20;
+        private int queueCapacity = 8;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public Builder(ExpenseRepository repository) {
+            this.repository = repository;
+        }
+
+        public Builder monthlyLimitCents(long monthlyLimitCents) {
+            this.monthlyLimitCents = monthlyLimitCents;
+            return this;
+        }
+
+        /**
+         * @param monthLocks Returns the locks guarding the given months, in a
+         * consistent acquisition order
+         */
+        public Builder monthLocks(Function<Collection<LocalDate>, List<? extends Lock>> monthLocks) {
+            this.monthLocks = monthLocks;
+            return this;
+        }
+
+        public Builder delimiter(char delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        public Builder header(boolean header) {
+            this.header = header;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param windowBytes Bytes of the file mapped at a time; bounds the longest line
+         */
+        public Builder windowBytes(int windowBytes) {
+            this.windowBytes = windowBytes;
+            return this;
+        }
+
+        public Builder chunkBytes(int chunkBytes) {
+            this.chunkBytes = chunkBytes;
+            return this;
+        }
+
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public CsvExpenseImporter build() {
+            if (batchSize <= 0 || chunkBytes <= 0 || windowBytes < chunkBytes || queueCapacity <= 0) {
+                throw new IllegalArgumentException("Configuración de importación inválida");
+            }
+            return new CsvExpenseImporter(this);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of one import. Only the first rejected lines are kept, so the
+ * report stays small however many lines fail.
+ */
+public class ImportReport {
+    private final int maxReportedRejections;
+    private final List<RejectedLine> rejections = new ArrayList<>();
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private long elapsedNanos;
+
+    ImportReport(int maxReportedRejections) {
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    void rowRead() {
+        rowsRead++;
+    }
+
+    void imported(int rows) {
+        rowsImported += rows;
+    }
+
+    void reject(long lineNumber, String reason) {
+        rowsRejected++;
+        if (rejections.size() < maxReportedRejections) {
+            rejections.add(new RejectedLine(lineNumber, reason));
+        }
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    /**
+     * @return The first rejected lines, in file order
+     */
+    public List<RejectedLine> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowsRead / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Importados %d de %d gastos (%d rechazados) en %.1f s, %.0f filas/s",
+                rowsImported, rowsRead, rowsRejected, elapsedNanos / 1e9, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,27 @@
+package importer;
+
+/**
+ * A CSV line that was not imported, with the reason.
+ */
+public class RejectedLine {
+    private final long lineNumber;
+    private final String reason;
+
+    public RejectedLine(long lineNumber, String reason) {
+        this.lineNumber = lineNumber;
+        this.reason = reason;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "Línea " + lineNumber + ": " + reason;
+    }
+}
@@ -0,0 +1,24 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("gastos.ConnectionAcquire")
+@Label("Connection Acquire")
+@Description("Time spent borrowing a connection from the pool, including opening a new one")
+@Category({"Gastos Personales", "Database"})
+@StackTrace(false)
+public class ConnectionAcquireEvent extends jdk.jfr.Event {
+    @Label("Opened")
+    @Description("Whether a new physical connection was opened")
+    public boolean opened;
+
+    @Label("Active")
+    public int active;
+
+    @Label("Timed Out")
+    public boolean timedOut;
+}
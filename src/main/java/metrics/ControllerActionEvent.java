@@ -0,0 +1,21 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("gastos.ControllerAction")
+@Label("Controller Action")
+@Description("A user action from the moment it is started on the EDT until its result is shown")
+@Category({"Gastos Personales", "UI"})
+@StackTrace(false)
+public class ControllerActionEvent extends jdk.jfr.Event {
+    @Label("Action")
+    public String action;
+
+    @Label("Outcome")
+    @Description("ok, error or cancelled")
+    public String outcome;
+}
@@ -0,0 +1,74 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+/**
+ * Keeps a rolling in-app JFR recording so a snapshot can be dumped on demand.
+ * <p>
+ * By default only the application's own events are enabled, which costs next
+ * to nothing. {@code -Dgastos.jfr=default} or {@code profile} also records
+ * the JDK's events with that configuration, and {@code off} disables it.
+ */
+public final class FlightRecording {
+    private static final String PROPERTY = "gastos.jfr";
+    private static final Duration MAX_AGE = Duration.ofMinutes(10);
+    private static final String[] EVENTS = {
+        "gastos.RepositoryOperation", "gastos.ConnectionAcquire", "gastos.ControllerAction", "gastos.ViewUpdate",
+        "gastos.HttpRequest", "gastos.Startup"
+    };
+
+    private static Recording recording;
+
+    private FlightRecording() {
+    }
+
+    public static synchronized void start() {
+        String mode = System.getProperty(PROPERTY, "app");
+        if (recording != null || mode.equals("off") || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        try {
+            Map<String, String> settings = mode.equals("app")
+                    ? new HashMap<>()
+                    : new HashMap<>(Configuration.getConfiguration(mode).getSettings());
+            for (String event : EVENTS) {
+                settings.put(event + "#enabled", "true");
+                settings.put(event + "#threshold", "0 ms");
+            }
+            recording = new Recording(settings);
+            recording.setName("gastos");
+            recording.setMaxAge(MAX_AGE);
+            recording.setToDisk(true);
+            recording.start();
+        } catch (IOException | ParseException | IllegalStateException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes what every running recording holds, this one or one started
+     * with {@code -XX:StartFlightRecording}, to a new file in the directory.
+     *
+     * @return The file written
+     */
+    public static Path dump(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("gastos-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr");
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            snapshot.dump(file);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,21 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("gastos.HttpRequest")
+@Label("HTTP Request")
+@Description("A request to the API server from the moment its handler starts until the response is written")
+@Category({"Gastos Personales", "Server"})
+@StackTrace(false)
+public class HttpRequestEvent extends jdk.jfr.Event {
+    @Label("Route")
+    @Description("Method and path template, e.g. GET /gastos/{id}")
+    public String route;
+
+    @Label("Status")
+    public int status;
+}
@@ -0,0 +1,50 @@
+package metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-process registry of per-operation metrics, named like
+ * {@code repository.findAll} or {@code controller.registerExpense}.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentSkipListMap<>();
+
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, key -> new OperationMetrics());
+    }
+
+    /**
+     * @return Live view of the operations, sorted by name
+     */
+    public Map<String, OperationMetrics> getOperations() {
+        return Collections.unmodifiableMap(operations);
+    }
+
+    public void reset() {
+        operations.values().forEach(OperationMetrics::reset);
+    }
+
+    /**
+     * @return One line per operation with its calls, errors, rows and latency percentiles
+     */
+    public String dump() {
+        StringBuilder text = new StringBuilder(String.format("%-40s %9s %7s %10s %10s %9s %9s %9s%n",
+                "operación", "llamadas", "errores", "filas", "media(us)", "p50(us)", "p99(us)", "max(us)"));
+        for (Map.Entry<String, OperationMetrics> entry : operations.entrySet()) {
+            OperationMetrics metrics = entry.getValue();
+            LatencyHistogram latency = metrics.getLatency();
+            text.append(String.format("%-40s %9d %7d %10d %10.1f %9d %9d %9d%n", entry.getKey(), metrics.getCalls(),
+                    metrics.getErrors(), metrics.getRows(), latency.getMeanMicros(), latency.getPercentileMicros(50),
+                    latency.getPercentileMicros(99), latency.getMaxMicros()));
+        }
+        return text.toString();
+    }
+}
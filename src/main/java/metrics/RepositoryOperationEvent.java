@@ -0,0 +1,23 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("gastos.RepositoryOperation")
+@Label("Repository Operation")
+@Description("One call to an expense repository method")
+@Category({"Gastos Personales", "Repository"})
+@StackTrace(false)
+public class RepositoryOperationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("gastos.Startup")
+@Label("Startup")
+@Description("A startup milestone of the window: its first paint with expenses, or the first data read from storage")
+@Category({"Gastos Personales", "UI"})
+@StackTrace(false)
+public class StartupEvent extends jdk.jfr.Event {
+    @Label("Milestone")
+    @Description("firstPaint or reconcile")
+    public String milestone;
+
+    @Label("From Snapshot")
+    @Description("Whether the window started from the view saved by the previous run")
+    public boolean fromSnapshot;
+
+    @Label("Since Launch")
+    @Timespan(Timespan.MILLISECONDS)
+    public long sinceLaunch;
+}
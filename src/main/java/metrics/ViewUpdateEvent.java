@@ -0,0 +1,18 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("gastos.ViewUpdate")
+@Label("View Update")
+@Description("Views applying a model change on the EDT, before Swing repaints")
+@Category({"Gastos Personales", "UI"})
+@StackTrace(false)
+public class ViewUpdateEvent extends jdk.jfr.Event {
+    @Label("Incremental")
+    @Description("Whether the update patched a single change instead of reloading")
+    public boolean incremental;
+}
@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * Number of expenses and their summed amount for a category or period.
+ * The amount is held as whole cents, so totals are exact.
+ */
+public class CategoryTotal {
+    public static final CategoryTotal EMPTY = new CategoryTotal(0, 0);
+
+    private final long count;
+    private final long cents;
+
+    public CategoryTotal(long count, long cents) {
+        this.count = count;
+        this.cents = cents;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public double getAmount() {
+        return cents / 100.0;
+    }
+
+    public CategoryTotal plus(CategoryTotal other) {
+        return new CategoryTotal(count + other.count, cents + other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return "CategoryTotal{count=" + count + ", amount=" + getAmount() + '}';
+    }
+}
@@ -1,39 +1,88 @@
 package model;
 
-import core.Model;
-import core.View;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
-public class Expense implements Model {
+/**
+ * Immutable expense row. The amount is held as whole cents.
+ * <p>
+ * Rows read from storage are created with {@link #of}, which does no
+ * validation; input from the user goes through the {@link Builder}.
+ */
+public final class Expense {
 
     public static boolean ExpenseCategory(String name) {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
-    private Integer id;
-    private String description;
-    private ExpenseCategory category;
-    private double amount;
-    private LocalDate expenseDate;
+    /**
+     * Id of an expense that has not been saved yet.
+     */
+    public static final int NO_ID = 0;
 
-    private List<View> observers = new ArrayList<>();
+    private final int id;
+    private final String description;
+    private final ExpenseCategory category;
+    private final long amountCents;
+    private final LocalDate expenseDate;
 
     public enum ExpenseCategory {
         ALIMENTACION, TRANSPORTE, ENTRETENIMIENTO, SALUD, OTROS
     }
 
-    private Expense() {
+    private Expense(int id, String description, ExpenseCategory category, long amountCents, LocalDate expenseDate) {
+        this.id = id;
+        this.description = description;
+        this.category = category;
+        this.amountCents = amountCents;
+        this.expenseDate = expenseDate;
     }
 
+    /**
+     * Creates a row as stored, without validation. Columns that were not
+     * read may be null, or zero for the amount.
+     *
+     * @param id Stored id, or {@link #NO_ID}
+     */
+    public static Expense of(int id, String description, ExpenseCategory category, long amountCents,
+            LocalDate expenseDate) {
+        return new Expense(id, description, category, amountCents, expenseDate);
+    }
+
+    /**
+     * @return The amount rounded to whole cents
+     */
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * @return A copy of this expense with the given id
+     */
+    public Expense withId(int id) {
+        return new Expense(id, description, category, amountCents, expenseDate);
+    }
+
+    /**
+     * @return The id, or null if the expense has not been saved
+     */
     public Integer getId() {
+        return id == NO_ID ? null : id;
+    }
+
+    /**
+     * Unboxed {@link #getId}, for code that handles many rows.
+     *
+     * @return The id, or {@link #NO_ID} if the expense has not been saved
+     */
+    public int id() {
         return id;
     }
 
+    public boolean hasId() {
+        return id != NO_ID;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -42,71 +91,62 @@ public class Expense implements Model {
         return category;
     }
 
+    public long getAmountCents() {
+        return amountCents;
+    }
+
     public double getAmount() {
-        return amount;
+        return amountCents / 100.0;
     }
 
     public LocalDate getExpenseDate() {
         return expenseDate;
     }
 
-    @Override
-    public void attach(View view) {
-        if (!observers.contains(view)) {
-            observers.add(view);
-        }
-    }
-
-    @Override
-    public void detach(View view) {
-        observers.remove(view);
-    }
-
-    @Override
-    public void notifyViews() {
-        for (View observer : observers) {
-            observer.update(this, this);
-        }
-    }
-
     public static class Builder {
-
-        private Expense expense;
+        private int id = NO_ID;
+        private String description;
+        private ExpenseCategory category;
+        private long amountCents;
+        private LocalDate expenseDate;
 
         public Builder() {
-            expense = new Expense();
         }
 
         public Builder id(Integer id) {
-            expense.id = id;
+            this.id = id == null ? NO_ID : id;
             return this;
         }
 
         public Builder description(String description) {
-            expense.description = description;
+            this.description = description;
             return this;
         }
 
         public Builder category(ExpenseCategory category) {
-            expense.category = category;
+            this.category = category;
             return this;
         }
 
         public Builder amount(double amount) {
-            if (amount <= 0) {
+            return amountCents(toCents(amount));
+        }
+
+        public Builder amountCents(long amountCents) {
+            if (amountCents <= 0) {
                 throw new IllegalArgumentException("El monto debe ser mayor que cero");
             }
-            expense.amount = amount;
+            this.amountCents = amountCents;
             return this;
         }
 
         public Builder expenseDate(LocalDate expenseDate) {
-            expense.expenseDate = expenseDate;
+            this.expenseDate = expenseDate;
             return this;
         }
 
         public Expense build() {
-            return expense;
+            return new Expense(id, description, category, amountCents, expenseDate);
         }
     }
 
@@ -119,35 +159,31 @@ public class Expense implements Model {
             return false;
         }
         Expense expense = (Expense) o;
-        return Double.compare(expense.amount, amount) == 0
-                && Objects.equals(id, expense.id)
-                && Objects.equals(description, expense.description)
+        return id == expense.id
+                && amountCents == expense.amountCents
                 && category == expense.category
+                && Objects.equals(description, expense.description)
                 && Objects.equals(expenseDate, expense.expenseDate);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, description, category, amount, expenseDate);
+        int result = id;
+        result = 31 * result + Objects.hashCode(description);
+        result = 31 * result + Objects.hashCode(category);
+        result = 31 * result + Long.hashCode(amountCents);
+        result = 31 * result + Objects.hashCode(expenseDate);
+        return result;
     }
 
     @Override
     public String toString() {
         return "Expense{"
-                + "id=" + id
+                + "id=" + getId()
                 + ", description='" + description + '\''
                 + ", category=" + category
-                + ", amount=" + amount
+                + ", amount=" + getAmount()
                 + ", expenseDate=" + expenseDate
                 + '}';
     }
-    private Map<String, Object> customAttributes = new HashMap<>();
-
-    public void setCustomAttribute(String key, Object value) {
-        customAttributes.put(key, value);
-    }
-
-    public Object getCustomAttribute(String key) {
-        return customAttributes.get(key);
-    }
 }
@@ -0,0 +1,44 @@
+package model;
+
+import core.Model;
+import core.ModelEvent;
+import service.ExpenseDelta;
+import service.ExpenseService;
+
+/**
+ * New state of the expense list screen.
+ */
+public class ExpenseListEvent extends ModelEvent {
+    private final ExpenseService.ExpenseSummary summary;
+    private final ExpenseDelta delta;
+
+    public ExpenseListEvent(Model source, ExpenseService.ExpenseSummary summary, ExpenseDelta delta) {
+        super(source);
+        this.summary = summary;
+        this.delta = delta;
+    }
+
+    public ExpenseService.ExpenseSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * @return The single change that produced the state, or null if the list
+     * must be reloaded as a whole
+     */
+    public ExpenseDelta getDelta() {
+        return delta;
+    }
+
+    /**
+     * Keeps the later summary. Two changes cannot be patched with one delta,
+     * so the merged event asks for a reload.
+     */
+    @Override
+    public ModelEvent coalesce(ModelEvent later) {
+        if (!(later instanceof ExpenseListEvent)) {
+            return later;
+        }
+        return new ExpenseListEvent(getSource(), ((ExpenseListEvent) later).summary, null);
+    }
+}
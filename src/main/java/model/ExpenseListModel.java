@@ -0,0 +1,38 @@
+package model;
+
+import core.ObservableModel;
+import service.ExpenseDelta;
+import service.ExpenseService;
+
+/**
+ * Observable state of the expense list screen: the month's summary and the
+ * last change applied to the list.
+ * <p>
+ * Views receive an {@link ExpenseListEvent} per frame; changes made within
+ * the same frame are merged into one.
+ */
+public class ExpenseListModel extends ObservableModel {
+    private volatile ExpenseService.ExpenseSummary summary;
+    private volatile ExpenseDelta delta;
+
+    public ExpenseService.ExpenseSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * @return The single change that produced the current state, or null if
+     * the list was reloaded as a whole
+     */
+    public ExpenseDelta getDelta() {
+        return delta;
+    }
+
+    /**
+     * Replaces the state and queues an event for the views.
+     */
+    public void setState(ExpenseService.ExpenseSummary summary, ExpenseDelta delta) {
+        this.summary = summary;
+        this.delta = delta;
+        publish(new ExpenseListEvent(this, summary, delta));
+    }
+}
@@ -0,0 +1,179 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import service.ExpenseService;
+
+/**
+ * The state the expense list last showed: the month's summary, the row count
+ * and the first page of rows, saved on exit so the next start can paint it
+ * before the database answers.
+ * <p>
+ * Layout: {@code [int magic][int version][int bodyLength][int crc32]}, then
+ * the body: {@code [long savedAtMillis][int yearMonth][long rowCount][long totalCents]},
+ * {@code [byte categories]} times {@code [byte ordinal][long count][long cents]},
+ * and {@code [int rows]} times
+ * {@code [int id][int epochDay][byte category][long cents][short length][utf-8 description]}.
+ */
+public final class ExpenseListSnapshot {
+    private static final int MAGIC = 0x47534e50;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 4;
+
+    private final Instant savedAt;
+    private final YearMonth month;
+    private final ExpenseService.ExpenseSummary summary;
+    private final long rowCount;
+    private final List<Expense> firstPage;
+
+    public ExpenseListSnapshot(Instant savedAt, YearMonth month, ExpenseService.ExpenseSummary summary,
+            long rowCount, List<Expense> firstPage) {
+        this.savedAt = savedAt;
+        this.month = month;
+        this.summary = summary;
+        this.rowCount = rowCount;
+        this.firstPage = firstPage;
+    }
+
+    public Instant getSavedAt() { return savedAt; }
+    public YearMonth getMonth() { return month; }
+    public ExpenseService.ExpenseSummary getSummary() { return summary; }
+    public long getRowCount() { return rowCount; }
+    public List<Expense> getFirstPage() { return firstPage; }
+
+    /**
+     * Maps the file and decodes it.
+     *
+     * @return The snapshot, or null if there is none or it is damaged or of another version
+     */
+    public static ExpenseListSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt() != MAGIC || map.getInt() != VERSION) {
+                return null;
+            }
+            int bodyLength = map.getInt();
+            int checksum = map.getInt();
+            if (bodyLength != map.remaining()) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(map.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            return decode(map);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static ExpenseListSnapshot decode(ByteBuffer body) {
+        Expense.ExpenseCategory[] categories = Expense.ExpenseCategory.values();
+        Instant savedAt = Instant.ofEpochMilli(body.getLong());
+        int yearMonth = body.getInt();
+        long rowCount = body.getLong();
+        long totalCents = body.getLong();
+
+        Map<Expense.ExpenseCategory, Long> counts = new EnumMap<>(Expense.ExpenseCategory.class);
+        Map<Expense.ExpenseCategory, Long> cents = new EnumMap<>(Expense.ExpenseCategory.class);
+        for (int i = body.get(); i > 0; i--) {
+            Expense.ExpenseCategory category = categories[body.get()];
+            counts.put(category, body.getLong());
+            cents.put(category, body.getLong());
+        }
+
+        int rows = body.getInt();
+        List<Expense> firstPage = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            int id = body.getInt();
+            LocalDate date = LocalDate.ofEpochDay(body.getInt());
+            Expense.ExpenseCategory category = categories[body.get()];
+            long amountCents = body.getLong();
+            byte[] description = new byte[body.getShort() & 0xffff];
+            body.get(description);
+            firstPage.add(Expense.of(id, new String(description, StandardCharsets.UTF_8), category, amountCents, date));
+        }
+        return new ExpenseListSnapshot(savedAt, YearMonth.of(yearMonth / 100, yearMonth % 100),
+                new ExpenseService.ExpenseSummary(totalCents, counts, cents), rowCount,
+                Collections.unmodifiableList(firstPage));
+    }
+
+    /**
+     * Writes the snapshot to a temporary file and moves it over {@code file},
+     * so a crash never leaves a partial snapshot behind.
+     */
+    public void write(Path file) throws IOException {
+        List<byte[]> descriptions = new ArrayList<>(firstPage.size());
+        int bodyLength = Long.BYTES * 3 + Integer.BYTES + 1
+                + summary.getCategoryCents().size() * (1 + Long.BYTES * 2) + Integer.BYTES;
+        for (Expense expense : firstPage) {
+            byte[] description = (expense.getDescription() == null ? "" : expense.getDescription())
+                    .getBytes(StandardCharsets.UTF_8);
+            descriptions.add(description);
+            bodyLength += Integer.BYTES * 2 + 1 + Long.BYTES + Short.BYTES + description.length;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        body.putLong(savedAt.toEpochMilli())
+                .putInt(month.getYear() * 100 + month.getMonthValue())
+                .putLong(rowCount)
+                .putLong(summary.getTotalCents())
+                .put((byte) summary.getCategoryCents().size());
+        for (Map.Entry<Expense.ExpenseCategory, Long> entry : summary.getCategoryCents().entrySet()) {
+            body.put((byte) entry.getKey().ordinal())
+                    .putLong(summary.getCategoryCounts().getOrDefault(entry.getKey(), 0L))
+                    .putLong(entry.getValue());
+        }
+        body.putInt(firstPage.size());
+        for (int i = 0; i < firstPage.size(); i++) {
+            Expense expense = firstPage.get(i);
+            body.putInt(expense.id())
+                    .putInt((int) expense.getExpenseDate().toEpochDay())
+                    .put((byte) expense.getCategory().ordinal())
+                    .putLong(expense.getAmountCents())
+                    .putShort((short) descriptions.get(i).length)
+                    .put(descriptions.get(i));
+        }
+        body.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC).putInt(VERSION).putInt(bodyLength).putInt((int) crc.getValue());
+        header.flip();
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] buffers = {header, body};
+            long remaining = HEADER_BYTES + bodyLength;
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
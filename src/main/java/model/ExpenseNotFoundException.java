@@ -0,0 +1,12 @@
+package model;
+
+/**
+ * The expense an operation refers to does not exist.
+ */
+public class ExpenseNotFoundException extends ExpenseRejectedException {
+    private static final long serialVersionUID = 1L;
+
+    public ExpenseNotFoundException(int id) {
+        super("No existe el gasto con ID " + id);
+    }
+}
@@ -0,0 +1,16 @@
+package model;
+
+/**
+ * An expense operation refused by a business rule, such as the monthly
+ * limit or an archived year, rather than failed by the storage.
+ * <p>
+ * Extends {@link IllegalStateException} so callers that show any refused
+ * operation to the user keep handling it the same way.
+ */
+public class ExpenseRejectedException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public ExpenseRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,114 @@
+package repository;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Weight-bounded LRU cache. Each entry has a weight and the least recently
+ * used entries are evicted once the total weight exceeds the maximum.
+ * <p>
+ * Every invalidation bumps an epoch. A reader captures the epoch before
+ * loading from the database and stores its result only if no write
+ * invalidated anything meanwhile, so a slow read cannot cache stale data.
+ */
+class BoundedCache<K, V> {
+    private final long maxWeight;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+    private long epoch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    BoundedCache(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("El peso máximo de la caché debe ser mayor que cero");
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Like {@link #get} but without touching recency or the hit counters.
+     */
+    synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry == null ? null : entry.value;
+    }
+
+    synchronized long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Stores the value unless an invalidation happened since {@code readEpoch}
+     * or it alone would exceed the maximum weight.
+     */
+    synchronized void putIfCurrent(K key, V value, long valueWeight, long readEpoch) {
+        if (readEpoch != epoch || valueWeight > maxWeight) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, valueWeight));
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += valueWeight;
+        evictToFit();
+    }
+
+    synchronized void invalidate(K key) {
+        epoch++;
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    /**
+     * Removes the given keys with a single epoch bump, without walking the
+     * rest of the cache.
+     */
+    synchronized void invalidateAll(Collection<K> keys) {
+        epoch++;
+        for (K key : keys) {
+            Entry<V> removed = entries.remove(key);
+            if (removed != null) {
+                weight -= removed.weight;
+            }
+        }
+    }
+
+    private void evictToFit() {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            weight -= it.next().weight;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size(), weight, maxWeight);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+
+        Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import model.CategoryTotal;
+import model.Expense;
+
+/**
+ * Read-through cache in front of another repository. It assumes this process
+ * makes every write, so it never expires entries by time.
+ * <p>
+ * Caches rows by id, the ids of each category and of the whole table,
+ * monthly totals and the per-category totals of single months, all within
+ * one weight budget: a row or a total weighs 1, an id list its length and a
+ * month's category totals their number. Writes go straight to the delegate
+ * and then invalidate, by key, every entry they may have changed.
+ */
+public class CachingExpenseRepository extends ForwardingExpenseRepository {
+    private static final long DEFAULT_MAX_WEIGHT = 100_000;
+
+    private final BoundedCache<Key, Object> cache;
+
+    /**
+     * Every month a total was cached for, so a write whose previous version
+     * is unknown can drop them by key. Only grows; removing an absent key is free.
+     */
+    private final Set<Integer> cachedMonths = ConcurrentHashMap.newKeySet();
+
+    public CachingExpenseRepository(ExpenseRepository delegate) {
+        this(delegate, DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * @param maxWeight Maximum cached rows, totals and list ids combined
+     */
+    public CachingExpenseRepository(ExpenseRepository delegate, long maxWeight) {
+        super(delegate);
+        this.cache = new BoundedCache<>(maxWeight);
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    //-----------------------------------------------------------------------
+    //		Reads
+    //-----------------------------------------------------------------------
+    @Override
+    public Expense findById(int id) {
+        Key key = Key.id(id);
+        Expense cached = (Expense) cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long epoch = cache.epoch();
+        Expense expense = delegate.findById(id);
+        if (expense != null) {
+            cache.putIfCurrent(key, expense, 1, epoch);
+        }
+        return expense;
+    }
+
+    /**
+     * Reads only the ids that are not cached, in one call to the delegate.
+     */
+    @Override
+    public List<Expense> findByIds(Collection<Integer> ids) {
+        Map<Integer, Expense> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (int id : ids) {
+            Expense cached = (Expense) cache.get(Key.id(id));
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long epoch = cache.epoch();
+            for (Expense expense : delegate.findByIds(missing)) {
+                found.put(expense.id(), expense);
+                cache.putIfCurrent(Key.id(expense.id()), expense, 1, epoch);
+            }
+        }
+        List<Expense> expenses = new ArrayList<>(found.size());
+        for (int id : ids) {
+            Expense expense = found.get(id);
+            if (expense != null) {
+                expenses.add(expense);
+            }
+        }
+        return expenses;
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        List<Expense> cached = resolve(Key.ALL);
+        if (cached != null) {
+            return cached;
+        }
+        long epoch = cache.epoch();
+        return remember(Key.ALL, delegate.findAll(), epoch);
+    }
+
+    @Override
+    public List<Expense> findByCategory(Expense.ExpenseCategory category) {
+        Key key = Key.category(category);
+        List<Expense> cached = resolve(key);
+        if (cached != null) {
+            return cached;
+        }
+        long epoch = cache.epoch();
+        return remember(key, delegate.findByCategory(category), epoch);
+    }
+
+    @Override
+    public long getMonthlyTotalCents(LocalDate month) {
+        Key key = Key.month(month);
+        Long cached = (Long) cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long epoch = cache.epoch();
+        long total = delegate.getMonthlyTotalCents(month);
+        cachedMonths.add((Integer) key.value);
+        cache.putIfCurrent(key, total, 1, epoch);
+        return total;
+    }
+
+    /**
+     * Cached when the range is exactly one month, as the summary view asks.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Expense.ExpenseCategory, CategoryTotal> totalsByCategory(LocalDate from, LocalDate to) {
+        if (!isOneMonth(from, to)) {
+            return delegate.totalsByCategory(from, to);
+        }
+        Key key = Key.monthTotals(from);
+        Map<Expense.ExpenseCategory, CategoryTotal> cached = (Map<Expense.ExpenseCategory, CategoryTotal>) cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long epoch = cache.epoch();
+        Map<Expense.ExpenseCategory, CategoryTotal> totals = new EnumMap<>(Expense.ExpenseCategory.class);
+        totals.putAll(delegate.totalsByCategory(from, to));
+        totals = Collections.unmodifiableMap(totals);
+        cachedMonths.add((Integer) key.value);
+        cache.putIfCurrent(key, totals, Math.max(1, totals.size()), epoch);
+        return totals;
+    }
+
+    @Override
+    public CategoryTotal summarize(LocalDate from, LocalDate to) {
+        if (!isOneMonth(from, to)) {
+            return delegate.summarize(from, to);
+        }
+        CategoryTotal total = CategoryTotal.EMPTY;
+        for (CategoryTotal category : totalsByCategory(from, to).values()) {
+            total = total.plus(category);
+        }
+        return total;
+    }
+
+    private static boolean isOneMonth(LocalDate from, LocalDate to) {
+        return from != null && to != null && from.getDayOfMonth() == 1 && to.equals(from.plusMonths(1));
+    }
+
+    /**
+     * Rebuilds a cached list from its ids, or returns null if the list or any
+     * of its rows is no longer cached.
+     */
+    private List<Expense> resolve(Key key) {
+        int[] ids = (int[]) cache.get(key);
+        if (ids == null) {
+            return null;
+        }
+        List<Expense> expenses = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Expense expense = (Expense) cache.peek(Key.id(id));
+            if (expense == null) {
+                return null;
+            }
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    private List<Expense> remember(Key key, List<Expense> expenses, long epoch) {
+        int[] ids = new int[expenses.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Expense expense = expenses.get(i);
+            ids[i] = expense.id();
+            cache.putIfCurrent(Key.id(ids[i]), expense, 1, epoch);
+        }
+        cache.putIfCurrent(key, ids, Math.max(1, ids.length), epoch);
+        return expenses;
+    }
+
+    //-----------------------------------------------------------------------
+    //		Writes
+    //-----------------------------------------------------------------------
+    @Override
+    public int save(Expense expense) {
+        int id = delegate.save(expense);
+        invalidateFor(expense);
+        return id;
+    }
+
+    @Override
+    public int saveWithinMonthlyLimit(Expense expense, long monthlyLimitCents) {
+        int id = delegate.saveWithinMonthlyLimit(expense, monthlyLimitCents);
+        invalidateFor(expense);
+        return id;
+    }
+
+    @Override
+    public void update(Expense expense) {
+        Expense previous = (Expense) cache.peek(Key.id(expense.getId()));
+        delegate.update(expense);
+        invalidateReplaced(expense.getId(), previous);
+        invalidateFor(expense);
+    }
+
+    @Override
+    public void delete(int id) {
+        Expense previous = (Expense) cache.peek(Key.id(id));
+        delegate.delete(id);
+        invalidateReplaced(id, previous);
+    }
+
+    @Override
+    public List<Integer> saveAll(List<Expense> expenses) {
+        // Invalidated even on a PartialWriteException, whose first chunks were written.
+        try {
+            return delegate.saveAll(expenses);
+        } finally {
+            invalidateSaved(expenses);
+        }
+    }
+
+    @Override
+    public List<Integer> saveAllWithinMonthlyLimit(List<Expense> expenses, long monthlyLimitCents) {
+        try {
+            return delegate.saveAllWithinMonthlyLimit(expenses, monthlyLimitCents);
+        } finally {
+            invalidateSaved(expenses);
+        }
+    }
+
+    @Override
+    public int updateAll(List<Expense> expenses) {
+        try {
+            return delegate.updateAll(expenses);
+        } finally {
+            Set<Integer> ids = new HashSet<>();
+            for (Expense expense : expenses) {
+                ids.add(expense.getId());
+            }
+            invalidateRows(ids);
+        }
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        try {
+            return delegate.deleteAll(ids);
+        } finally {
+            invalidateRows(new HashSet<>(ids));
+        }
+    }
+
+    /**
+     * Drops the entries a new or changed row belongs to.
+     */
+    private void invalidateFor(Expense expense) {
+        Set<Key> affected = new HashSet<>();
+        affected.add(Key.ALL);
+        addGroups(affected, expense);
+        cache.invalidateAll(affected);
+    }
+
+    /**
+     * Drops the entries new rows belong to.
+     */
+    private void invalidateSaved(List<Expense> expenses) {
+        Set<Key> affected = new HashSet<>();
+        affected.add(Key.ALL);
+        for (Expense expense : expenses) {
+            addGroups(affected, expense);
+        }
+        cache.invalidateAll(affected);
+    }
+
+    /**
+     * Drops a row and the entries its previous version belonged to. Without
+     * the previous version every list and total is dropped.
+     */
+    private void invalidateReplaced(int id, Expense previous) {
+        if (previous == null) {
+            invalidateRows(Set.of(id));
+            return;
+        }
+        Set<Key> affected = new HashSet<>();
+        affected.add(Key.ALL);
+        affected.add(Key.id(id));
+        addGroups(affected, previous);
+        cache.invalidateAll(affected);
+    }
+
+    /**
+     * Drops the rows and every list and total, since their previous versions
+     * are not known.
+     */
+    private void invalidateRows(Set<Integer> ids) {
+        Set<Key> affected = new HashSet<>();
+        affected.add(Key.ALL);
+        for (int id : ids) {
+            affected.add(Key.id(id));
+        }
+        for (Expense.ExpenseCategory category : Expense.ExpenseCategory.values()) {
+            affected.add(Key.category(category));
+        }
+        for (int yearMonth : cachedMonths) {
+            affected.add(new Key(Kind.MONTH, yearMonth));
+            affected.add(new Key(Kind.MONTH_TOTALS, yearMonth));
+        }
+        cache.invalidateAll(affected);
+    }
+
+    /**
+     * Adds the keys of the month and category the row belongs to.
+     */
+    private static void addGroups(Set<Key> keys, Expense expense) {
+        keys.add(Key.month(expense.getExpenseDate()));
+        keys.add(Key.monthTotals(expense.getExpenseDate()));
+        keys.add(Key.category(expense.getCategory()));
+    }
+
+    //-----------------------------------------------------------------------
+    //		Nested classes
+    //-----------------------------------------------------------------------
+    private enum Kind {
+        ID, CATEGORY, MONTH, MONTH_TOTALS, ALL
+    }
+
+    private static final class Key {
+        static final Key ALL = new Key(Kind.ALL, null);
+
+        private final Kind kind;
+        private final Object value;
+
+        private Key(Kind kind, Object value) {
+            this.kind = kind;
+            this.value = value;
+        }
+
+        static Key id(int id) {
+            return new Key(Kind.ID, id);
+        }
+
+        static Key category(Expense.ExpenseCategory category) {
+            return new Key(Kind.CATEGORY, category);
+        }
+
+        static Key month(LocalDate date) {
+            return new Key(Kind.MONTH, MonthlyAggregates.yearMonth(date));
+        }
+
+        static Key monthTotals(LocalDate date) {
+            return new Key(Kind.MONTH_TOTALS, MonthlyAggregates.yearMonth(date));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return kind == key.kind && Objects.equals(value, key.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * kind.hashCode() + Objects.hashCode(value);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package repository;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Columns of the {@code gastos} table that a streaming query can project.
+ */
+public enum ExpenseColumn {
+    ID("id"),
+    DESCRIPTION("descripcion"),
+    CATEGORY("categoria"),
+    AMOUNT("monto"),
+    EXPENSE_DATE("fecha_gasto");
+
+    public static final Set<ExpenseColumn> ALL = Collections.unmodifiableSet(EnumSet.allOf(ExpenseColumn.class));
+
+    private final String columnName;
+
+    ExpenseColumn(String columnName) {
+        this.columnName = columnName;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    static String selectList(Set<ExpenseColumn> columns) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("Debe seleccionar al menos una columna");
+        }
+        return EnumSet.copyOf(columns).stream()
+                .map(ExpenseColumn::getColumnName)
+                .collect(Collectors.joining(", "));
+    }
+}
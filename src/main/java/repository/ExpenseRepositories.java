@@ -0,0 +1,55 @@
+package repository;
+
+import config.Mysql;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import repository.local.LocalExpenseRepository;
+
+/**
+ * Chooses the storage backend from system properties:
+ * {@code gastos.storage} is {@code mysql} (default) or {@code local}, and
+ * {@code gastos.data.dir} is where the local store keeps its files. Opening
+ * MySQL migrates its schema and starts partition maintenance. Storage
+ * calls are instrumented; the MySQL cache sits above the instrumentation so
+ * its hits are not counted as repository calls.
+ */
+public final class ExpenseRepositories {
+    public static final String STORAGE_PROPERTY = "gastos.storage";
+    public static final String DATA_DIR_PROPERTY = "gastos.data.dir";
+
+    private ExpenseRepositories() {
+    }
+
+    public static ExpenseRepository create() {
+        if ("local".equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY, "mysql"))) {
+            return new InstrumentedExpenseRepository(openLocal(dataDirectory()));
+        }
+        Mysql.migrate();
+        Mysql.startPartitionMaintenance();
+        return new CachingExpenseRepository(new InstrumentedExpenseRepository(new ExpenseRepositoryImpl()));
+    }
+
+    /**
+     * Opens the local store and closes it on shutdown so the next start has
+     * no log to replay.
+     */
+    public static LocalExpenseRepository openLocal(Path directory) {
+        try {
+            LocalExpenseRepository repository = LocalExpenseRepository.open(directory);
+            Runtime.getRuntime().addShutdownHook(new Thread(repository::close, "local-store-close"));
+            return repository;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el almacenamiento local en " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    public static Path dataDirectory() {
+        String configured = System.getProperty(DATA_DIR_PROPERTY);
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".gastos-personales", "data");
+    }
+}
@@ -3,14 +3,166 @@ package repository;
 
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import model.CategoryTotal;
 import model.Expense;
 
 public interface ExpenseRepository {
-    void save(Expense expense);
+    /**
+     * @return Generated id of the new row, or -1 if it could not be saved
+     */
+    int save(Expense expense);
+
+    /**
+     * Saves the expense only if its month's total stays within the limit.
+     * The check and the insert are atomic with respect to other writers of
+     * the same month.
+     *
+     * @param monthlyLimitCents Maximum total of the month, in cents
+     * @return Generated id of the new row, or -1 if it could not be saved
+     * @throws ExpenseRejectedException If the expense would exceed the limit
+     */
+    int saveWithinMonthlyLimit(Expense expense, long monthlyLimitCents);
+
+    /**
+     * @throws IllegalStateException If no row was updated, because it does
+     * not exist or the storage failed
+     */
     void update(Expense expense);
+
+    /**
+     * @throws IllegalStateException If no row was deleted, because it does
+     * not exist or the storage failed
+     */
     void delete(int id);
+
+    /**
+     * Inserts the expenses in batches, one transaction per chunk. Expenses
+     * dated before {@link #archivedBefore} are not saved.
+     *
+     * @return Generated ids, in the same order as the input, with -1 for
+     * each expense that was not saved
+     * @throws PartialWriteException If a chunk fails; the chunks before it
+     * stay saved and the exception carries their ids
+     */
+    List<Integer> saveAll(List<Expense> expenses);
+
+    /**
+     * Inserts the expenses in one transaction, accepting each in order while
+     * its month's total stays within the limit. The check and the inserts are
+     * atomic with respect to other writers of the same months.
+     *
+     * @param monthlyLimitCents Maximum total of each month, in cents
+     * @return Generated ids, in the same order as the input, with -1 for each
+     * expense that would exceed the limit or is dated before {@link #archivedBefore}
+     * @throws PartialWriteException If the write fails; the expenses before
+     * {@link PartialWriteException#getCommitted} stay saved
+     */
+    List<Integer> saveAllWithinMonthlyLimit(List<Expense> expenses, long monthlyLimitCents);
+
+    /**
+     * @return First date that can still be written, or {@link LocalDate#MIN}
+     * if the storage archives nothing
+     */
+    default LocalDate archivedBefore() {
+        return LocalDate.MIN;
+    }
+
+    /**
+     * Updates the expenses in batches, one transaction per chunk.
+     *
+     * @return Number of rows updated
+     * @throws PartialWriteException If a chunk fails; the chunks before it stay updated
+     */
+    int updateAll(List<Expense> expenses);
+
+    /**
+     * Deletes the expenses in batches, one transaction per chunk.
+     *
+     * @return Number of rows deleted
+     * @throws PartialWriteException If a chunk fails; the chunks before it stay deleted
+     */
+    int deleteAll(Collection<Integer> ids);
+
+    /**
+     * @return The expense with the id, or null if there is none
+     */
+    Expense findById(int id);
+
+    /**
+     * Reads the rows with the given ids in one round trip.
+     *
+     * @return The expenses that exist, in the order of the ids
+     */
+    List<Expense> findByIds(Collection<Integer> ids);
+
     List<Expense> findAll();
     List<Expense> findByCategory(Expense.ExpenseCategory category);
-    double getTotalMonthlyExpenses(LocalDate month);
-}
\ No newline at end of file
+
+    /**
+     * @return Sum of the amounts of the month, in cents
+     */
+    long getMonthlyTotalCents(LocalDate month);
+
+    /**
+     * Streams expenses dated in {@code [from, to)} ordered by date and id,
+     * reading rows lazily. The stream may hold a connection until it is
+     * closed, so use it in a try-with-resources. Columns that are not
+     * selected may be left unset on the returned expenses.
+     *
+     * @param from First date included, or null for no lower bound
+     * @param to First date excluded, or null for no upper bound
+     * @param columns Columns to read
+     */
+    Stream<Expense> streamByDateRange(LocalDate from, LocalDate to, Set<ExpenseColumn> columns);
+
+    /**
+     * Visits expenses dated in {@code [from, to)} one row at a time and
+     * releases the cursor before returning.
+     *
+     * @see #streamByDateRange(LocalDate, LocalDate, Set)
+     */
+    void forEachByDateRange(LocalDate from, LocalDate to, Set<ExpenseColumn> columns, Consumer<Expense> action);
+
+    /**
+     * @return Number of rows in the table
+     */
+    long count();
+
+    /**
+     * Keyset pagination over expenses ordered by date and id.
+     *
+     * @param afterDate Date of the last row of the previous page, or null for the first page
+     * @param afterId Id of the last row of the previous page
+     * @param limit Maximum rows to return
+     */
+    List<Expense> findPageAfter(LocalDate afterDate, int afterId, int limit);
+
+    /**
+     * Offset pagination over the same ordering as {@link #findPageAfter}, used
+     * to jump to a page whose predecessor is not known.
+     */
+    List<Expense> findPageAt(long offset, int limit);
+
+    /**
+     * @return Number of rows that sort strictly before the given date and id,
+     * i.e. the row index of that key in the date/id ordering
+     */
+    long countBefore(LocalDate date, int id);
+
+    /**
+     * Counts and sums the expenses dated in {@code [from, to)}.
+     */
+    CategoryTotal summarize(LocalDate from, LocalDate to);
+
+    /**
+     * Counts and sums the expenses dated in {@code [from, to)} per category.
+     * Categories without expenses are absent from the map.
+     */
+    Map<Expense.ExpenseCategory, CategoryTotal> totalsByCategory(LocalDate from, LocalDate to);
+}
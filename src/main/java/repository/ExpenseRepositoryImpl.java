@@ -2,68 +2,607 @@
 package repository;
 
 import config.Mysql;
+import config.PartitionManager;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import metrics.MetricsRegistry;
+import model.CategoryTotal;
 import model.Expense;
+import model.ExpenseRejectedException;
 
 public class ExpenseRepositoryImpl implements ExpenseRepository {
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO gastos (descripcion, categoria, monto, fecha_gasto) VALUES (?, ?, ?, ?)";
+    /**
+     * Rows are addressed by id and current date, so each write touches one
+     * partition. MySQL moves a row whose date changes to its new partition.
+     */
+    private static final String UPDATE_SQL = "UPDATE gastos SET descripcion = ?, categoria = ?, monto = ?, fecha_gasto = ?"
+            + " WHERE id = ? AND fecha_gasto = ?";
+    private static final String DELETE_SQL = "DELETE FROM gastos WHERE id = ? AND fecha_gasto = ?";
+
+    /**
+     * {@code gastos} plus the archived years.
+     */
+    private static final String ALL_ROWS = "gastos_todos";
+
+    private static final Set<ExpenseColumn> LOCKED_COLUMNS = EnumSet.of(
+            ExpenseColumn.ID, ExpenseColumn.CATEGORY, ExpenseColumn.AMOUNT, ExpenseColumn.EXPENSE_DATE);
+
+    /**
+     * Rounds of {@link #lockRows} before a row that keeps changing its date is given up on.
+     */
+    private static final int LOCK_ATTEMPTS = 3;
+
     private Mysql mysqlConnection;
+    private int batchSize;
 
     public ExpenseRepositoryImpl() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize Rows sent per JDBC batch and committed per transaction by the bulk methods
+     */
+    public ExpenseRepositoryImpl(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor que cero");
+        }
         this.mysqlConnection = new Mysql();
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
     }
 
     @Override
-    public void save(Expense expense) {
-        String sql = "INSERT INTO gastos (descripcion, categoria, monto, fecha_gasto) VALUES (?, ?, ?, ?)";
-        
+    public int save(Expense expense) {
+        try (Connection conn = mysqlConnection.getConnection()) {
+            return inTransaction(conn, () -> {
+                int id = -1;
+                try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                    bindExpense(pstmt, expense);
+                    pstmt.executeUpdate();
+
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            id = keys.getInt(1);
+                        }
+                    }
+                }
+
+                MonthlyAggregates.Deltas deltas = new MonthlyAggregates.Deltas();
+                deltas.add(expense);
+                deltas.apply(conn);
+                return id;
+            });
+        } catch (SQLException e) {
+            failed("save", e);
+        }
+        return -1;
+    }
+
+    @Override
+    public int saveWithinMonthlyLimit(Expense expense, long monthlyLimitCents) {
+        int yearMonth = MonthlyAggregates.yearMonth(expense.getExpenseDate());
+
+        try (Connection conn = mysqlConnection.getConnection()) {
+            return inTransaction(conn, () -> {
+                lockMonth(conn, yearMonth);
+
+                long monthTotal = lockedMonthTotal(conn, yearMonth);
+                if (monthTotal + expense.getAmountCents() > monthlyLimitCents) {
+                    throw new ExpenseRejectedException(
+                            String.format("El gasto excede el límite mensual de S/%.0f", monthlyLimitCents / 100.0));
+                }
+
+                int id = -1;
+                try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                    bindExpense(pstmt, expense);
+                    pstmt.executeUpdate();
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            id = keys.getInt(1);
+                        }
+                    }
+                }
+
+                MonthlyAggregates.Deltas deltas = new MonthlyAggregates.Deltas();
+                deltas.add(expense);
+                deltas.apply(conn);
+                return id;
+            });
+        } catch (SQLException e) {
+            failed("saveWithinMonthlyLimit", e);
+        }
+        return -1;
+    }
+
+    /**
+     * Months are locked in ascending order so two batches cannot deadlock.
+     */
+    @Override
+    public List<Integer> saveAllWithinMonthlyLimit(List<Expense> expenses, long monthlyLimitCents) {
+        List<Integer> ids = new ArrayList<>(expenses.size());
+        if (expenses.isEmpty()) {
+            return ids;
+        }
+        Set<Integer> yearMonths = new TreeSet<>();
+        for (Expense expense : expenses) {
+            if (!isArchived(expense)) {
+                yearMonths.add(MonthlyAggregates.yearMonth(expense.getExpenseDate()));
+            }
+        }
+
         try (Connection conn = mysqlConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setString(1, expense.getDescription());
-            pstmt.setString(2, expense.getCategory().name());
-            pstmt.setDouble(3, expense.getAmount());
-            pstmt.setDate(4, Date.valueOf(expense.getExpenseDate()));
-            
-            pstmt.executeUpdate();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+            ids.addAll(inTransaction(conn, () -> {
+                Map<Integer, Long> totals = new HashMap<>();
+                for (int yearMonth : yearMonths) {
+                    lockMonth(conn, yearMonth);
+                    totals.put(yearMonth, lockedMonthTotal(conn, yearMonth));
+                }
+
+                MonthlyAggregates.Deltas deltas = new MonthlyAggregates.Deltas();
+                boolean[] accepted = new boolean[expenses.size()];
+                boolean batched = false;
+                for (int i = 0; i < expenses.size(); i++) {
+                    Expense expense = expenses.get(i);
+                    if (isArchived(expense)) {
+                        continue;
+                    }
+                    int yearMonth = MonthlyAggregates.yearMonth(expense.getExpenseDate());
+                    long total = totals.get(yearMonth) + expense.getAmountCents();
+                    if (total > monthlyLimitCents) {
+                        continue;
+                    }
+                    totals.put(yearMonth, total);
+                    bindExpense(pstmt, expense);
+                    pstmt.addBatch();
+                    deltas.add(expense);
+                    accepted[i] = true;
+                    batched = true;
+                }
+                List<Integer> batchIds = new ArrayList<>(expenses.size());
+                if (!batched) {
+                    expenses.forEach(expense -> batchIds.add(-1));
+                    return batchIds;
+                }
+                pstmt.executeBatch();
+
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    for (boolean saved : accepted) {
+                        batchIds.add(saved && keys.next() ? keys.getInt(1) : -1);
+                    }
+                }
+                deltas.apply(conn);
+                return batchIds;
+            }));
         } catch (SQLException e) {
             e.printStackTrace();
+            throw new PartialWriteException(0, expenses.size(), List.of(), e);
+        }
+        return ids;
+    }
+
+    /**
+     * @return The month's total, read with its {@code gastos_mensuales} rows
+     * locked until the transaction ends
+     */
+    private long lockedMonthTotal(Connection conn, int yearMonth) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COALESCE(SUM(total), 0) FROM gastos_mensuales WHERE anio_mes = ? FOR UPDATE")) {
+            pstmt.setInt(1, yearMonth);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? cents(rs.getBigDecimal(1)) : 0;
+            }
+        }
+    }
+
+    /**
+     * Takes the month's row lock in {@code presupuesto_mensual}, creating the
+     * row on first use. Held until the transaction ends.
+     */
+    private void lockMonth(Connection conn, int yearMonth) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT IGNORE INTO presupuesto_mensual (anio_mes) VALUES (?)")) {
+            pstmt.setInt(1, yearMonth);
+            pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT anio_mes FROM presupuesto_mensual WHERE anio_mes = ? FOR UPDATE")) {
+            pstmt.setInt(1, yearMonth);
+            pstmt.executeQuery().close();
         }
     }
 
     @Override
     public void update(Expense expense) {
-        String sql = "UPDATE gastos SET descripcion = ?, categoria = ?, monto = ?, fecha_gasto = ? WHERE id = ?";
-        
+        int updated;
+        try {
+            updated = updateAll(List.of(expense));
+        } catch (PartialWriteException e) {
+            throw new IllegalStateException("No se pudo actualizar el gasto con ID " + expense.getId(), e.getCause());
+        }
+        if (updated == 0) {
+            rejectIfArchived(expense.getId());
+            throw new IllegalStateException("No se pudo actualizar el gasto con ID " + expense.getId());
+        }
+    }
+
+    @Override
+    public void delete(int id) {
+        int deleted;
+        try {
+            deleted = deleteAll(List.of(id));
+        } catch (PartialWriteException e) {
+            throw new IllegalStateException("No se pudo eliminar el gasto con ID " + id, e.getCause());
+        }
+        if (deleted == 0) {
+            rejectIfArchived(id);
+            throw new IllegalStateException("No se pudo eliminar el gasto con ID " + id);
+        }
+    }
+
+    /**
+     * An archived row is still found through {@code gastos_todos} but is not
+     * in {@code gastos}, so writing it changes nothing; that is a refusal,
+     * not a storage failure.
+     */
+    private void rejectIfArchived(int id) {
+        Expense row = findById(id);
+        if (row != null && isArchived(row)) {
+            throw archivedRejection();
+        }
+    }
+
+    private static ExpenseRejectedException archivedRejection() {
+        return new ExpenseRejectedException("Los gastos anteriores a " + PartitionManager.archivedBefore()
+                + " están archivados y no se pueden modificar");
+    }
+
+    @Override
+    public List<Integer> saveAll(List<Expense> expenses) {
+        List<Integer> ids = new ArrayList<>(expenses.size());
+        if (expenses.isEmpty()) {
+            return ids;
+        }
+
+        int from = 0;
         try (Connection conn = mysqlConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, expense.getDescription());
-            pstmt.setString(2, expense.getCategory().name());
-            pstmt.setDouble(3, expense.getAmount());
-            pstmt.setDate(4, Date.valueOf(expense.getExpenseDate()));
-            pstmt.setInt(5, expense.getId());
-            
-            pstmt.executeUpdate();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+            for (; from < expenses.size(); from += batchSize) {
+                List<Expense> chunk = expenses.subList(from, Math.min(from + batchSize, expenses.size()));
+                ids.addAll(inTransaction(conn, () -> {
+                    MonthlyAggregates.Deltas deltas = new MonthlyAggregates.Deltas();
+                    boolean batched = false;
+                    for (Expense expense : chunk) {
+                        if (isArchived(expense)) {
+                            continue;
+                        }
+                        bindExpense(pstmt, expense);
+                        pstmt.addBatch();
+                        deltas.add(expense);
+                        batched = true;
+                    }
+                    List<Integer> chunkIds = new ArrayList<>(chunk.size());
+                    if (!batched) {
+                        chunk.forEach(expense -> chunkIds.add(-1));
+                        return chunkIds;
+                    }
+                    pstmt.executeBatch();
+
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        for (Expense expense : chunk) {
+                            chunkIds.add(!isArchived(expense) && keys.next() ? keys.getInt(1) : -1);
+                        }
+                    }
+                    deltas.apply(conn);
+                    return chunkIds;
+                }));
+            }
         } catch (SQLException e) {
             e.printStackTrace();
+            throw new PartialWriteException(Math.min(from, expenses.size()), expenses.size(), ids, e);
         }
+        return ids;
     }
 
     @Override
-    public void delete(int id) {
-        String sql = "DELETE FROM gastos WHERE id = ?";
-        
+    public int updateAll(List<Expense> expenses) {
+        int updated = 0;
+        if (expenses.isEmpty()) {
+            return updated;
+        }
+
+        int from = 0;
+        try (Connection conn = mysqlConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
+
+            for (; from < expenses.size(); from += batchSize) {
+                List<Expense> chunk = expenses.subList(from, Math.min(from + batchSize, expenses.size()));
+                updated += inTransaction(conn, () -> {
+                    List<Integer> ids = new ArrayList<>(chunk.size());
+                    for (Expense expense : chunk) {
+                        ids.add(expense.getId());
+                    }
+                    Map<Integer, Expense> previous = lockRows(conn, ids);
+
+                    MonthlyAggregates.Deltas deltas = new MonthlyAggregates.Deltas();
+                    for (Expense expense : chunk) {
+                        Expense old = previous.get(expense.getId());
+                        if (old == null) {
+                            continue;
+                        }
+                        bindExpense(pstmt, expense);
+                        pstmt.setInt(5, expense.getId());
+                        pstmt.setDate(6, Date.valueOf(old.getExpenseDate()));
+                        pstmt.addBatch();
+                        deltas.remove(old);
+                        deltas.add(expense);
+                    }
+                    int affected = executeBatch(pstmt);
+                    deltas.apply(conn);
+                    return affected;
+                });
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PartialWriteException(Math.min(from, expenses.size()), expenses.size(), List.of(), e);
+        }
+        return updated;
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        int deleted = 0;
+        if (ids.isEmpty()) {
+            return deleted;
+        }
+
+        int committed = 0;
+        try (Connection conn = mysqlConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
+
+            Iterator<Integer> it = ids.iterator();
+            while (it.hasNext()) {
+                List<Integer> chunk = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize && it.hasNext(); i++) {
+                    chunk.add(it.next());
+                }
+                deleted += inTransaction(conn, () -> {
+                    Map<Integer, Expense> previous = lockRows(conn, chunk);
+
+                    MonthlyAggregates.Deltas deltas = new MonthlyAggregates.Deltas();
+                    for (Expense old : previous.values()) {
+                        pstmt.setInt(1, old.getId());
+                        pstmt.setDate(2, Date.valueOf(old.getExpenseDate()));
+                        pstmt.addBatch();
+                        deltas.remove(old);
+                    }
+                    int affected = executeBatch(pstmt);
+                    deltas.apply(conn);
+                    return affected;
+                });
+                committed += chunk.size();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PartialWriteException(committed, ids.size(), List.of(), e);
+        }
+        return deleted;
+    }
+
+    /**
+     * Reads the current state of the given rows and locks them until the
+     * transaction ends, so their old amounts can be taken out of the aggregates.
+     * <p>
+     * Their dates are read first without locking, so the locking read names
+     * them and only touches their partitions. A row moved to another date in
+     * between is looked up again.
+     */
+    private Map<Integer, Expense> lockRows(Connection conn, List<Integer> ids) throws SQLException {
+        Map<Integer, Expense> rows = new HashMap<>();
+        List<Integer> pending = ids;
+        for (int attempt = 0; attempt < LOCK_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            Map<Integer, LocalDate> dates = currentDates(conn, pending);
+            if (dates.isEmpty()) {
+                break;
+            }
+            List<Integer> found = new ArrayList<>(dates.keySet());
+            List<LocalDate> days = new ArrayList<>(new HashSet<>(dates.values()));
+            String sql = "SELECT id, categoria, monto, fecha_gasto FROM gastos"
+                    + " WHERE id IN (" + placeholders(found.size()) + ")"
+                    + " AND fecha_gasto IN (" + placeholders(days.size()) + ") FOR UPDATE";
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int parameter = 1;
+                for (int id : found) {
+                    pstmt.setInt(parameter++, id);
+                }
+                for (LocalDate day : days) {
+                    pstmt.setDate(parameter++, Date.valueOf(day));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Expense row = mapRow(rs, LOCKED_COLUMNS);
+                        rows.put(row.id(), row);
+                    }
+                }
+            }
+            found.removeIf(rows::containsKey);
+            pending = found;
+        }
+        return rows;
+    }
+
+    /**
+     * @return Date of each of the rows that exists in {@code gastos}
+     */
+    private Map<Integer, LocalDate> currentDates(Connection conn, List<Integer> ids) throws SQLException {
+        Map<Integer, LocalDate> dates = new HashMap<>();
+        if (ids.isEmpty()) {
+            return dates;
+        }
+        String sql = "SELECT id, fecha_gasto FROM gastos WHERE id IN (" + placeholders(ids.size()) + ")";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    dates.put(rs.getInt(1), rs.getDate(2).toLocalDate());
+                }
+            }
+        }
+        return dates;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Runs the work as one transaction on the connection, rolling it back if it fails.
+     */
+    private <T> T inTransaction(Connection conn, TransactionWork<T> work) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            T result = work.run();
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * @return Number of affected rows reported by the driver; a rewritten
+     * statement that reports no count is counted as one row
+     */
+    private int executeBatch(PreparedStatement pstmt) throws SQLException {
+        int affected = 0;
+        for (int count : pstmt.executeBatch()) {
+            if (count > 0) {
+                affected += count;
+            } else if (count == Statement.SUCCESS_NO_INFO) {
+                affected++;
+            }
+        }
+        return affected;
+    }
+
+    private static boolean isArchived(Expense expense) {
+        return expense.getExpenseDate().isBefore(PartitionManager.archivedBefore());
+    }
+
+    @Override
+    public LocalDate archivedBefore() {
+        return PartitionManager.archivedBefore();
+    }
+
+    /**
+     * @throws IllegalStateException If the expense is dated in an archived year
+     */
+    private void bindExpense(PreparedStatement pstmt, Expense expense) throws SQLException {
+        if (isArchived(expense)) {
+            throw archivedRejection();
+        }
+        pstmt.setString(1, expense.getDescription());
+        pstmt.setString(2, expense.getCategory().name());
+        pstmt.setBigDecimal(3, decimal(expense.getAmountCents()));
+        pstmt.setDate(4, Date.valueOf(expense.getExpenseDate()));
+    }
+
+    /**
+     * Also finds archived expenses.
+     */
+    @Override
+    public Expense findById(int id) {
+        String sql = "SELECT id, descripcion, categoria, monto, fecha_gasto FROM " + tableFrom(null) + " WHERE id = ?";
+
         try (Connection conn = mysqlConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+
             pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+
+            try (ResultSet rs = executeQuery(pstmt)) {
+                if (rs.next()) {
+                    return mapRow(rs, ExpenseColumn.ALL);
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed("findById", e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Also finds archived expenses.
+     */
+    @Override
+    public List<Expense> findByIds(Collection<Integer> ids) {
+        List<Expense> expenses = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) {
+            return expenses;
+        }
+        String sql = "SELECT id, descripcion, categoria, monto, fecha_gasto FROM " + tableFrom(null)
+                + " WHERE id IN (" + placeholders(ids.size()) + ")";
+
+        try (Connection conn = mysqlConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (int id : ids) {
+                pstmt.setInt(index++, id);
+            }
+
+            Map<Integer, Expense> found = new HashMap<>();
+            try (ResultSet rs = executeQuery(pstmt)) {
+                while (rs.next()) {
+                    Expense expense = mapRow(rs, ExpenseColumn.ALL);
+                    found.put(expense.id(), expense);
+                }
+            }
+            for (int id : ids) {
+                Expense expense = found.get(id);
+                if (expense != null) {
+                    expenses.add(expense);
+                }
+            }
+        } catch (SQLException e) {
+            failed("findByIds", e);
         }
+
+        return expenses;
     }
 
     @Override
@@ -72,20 +611,12 @@ public class ExpenseRepositoryImpl implements ExpenseRepository {
         String sql = "SELECT * FROM gastos";
         
         try (Connection conn = mysqlConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = executeQuery(pstmt)) {
             
-            while (rs.next()) {
-                expenses.add(new Expense.Builder()
-                    .id(rs.getInt("id"))
-                    .description(rs.getString("descripcion"))
-                    .category(Expense.ExpenseCategory.valueOf(rs.getString("categoria")))
-                    .amount(rs.getDouble("monto"))
-                    .expenseDate(rs.getDate("fecha_gasto").toLocalDate())
-                    .build());
-            }
+            mapRows(rs, ExpenseColumn.ALL, expenses);
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed("findAll", e);
         }
         
         return expenses;
@@ -101,43 +632,361 @@ public class ExpenseRepositoryImpl implements ExpenseRepository {
             
             pstmt.setString(1, category.name());
             
-            try (ResultSet rs = pstmt.executeQuery()) {
+            try (ResultSet rs = executeQuery(pstmt)) {
+                mapRows(rs, ExpenseColumn.ALL, expenses);
+            }
+        } catch (SQLException e) {
+            failed("findByCategory", e);
+        }
+        
+        return expenses;
+    }
+
+    /**
+     * @return The amount as a {@code DECIMAL(_, 2)} value
+     */
+    static BigDecimal decimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * @return The unscaled value of a {@code DECIMAL(_, 2)} amount, or 0 for NULL
+     */
+    static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    @Override
+    public long getMonthlyTotalCents(LocalDate month) {
+        String sql = "SELECT COALESCE(SUM(total), 0) AS total FROM gastos_mensuales WHERE anio_mes = ?";
+
+        try (Connection conn = mysqlConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, MonthlyAggregates.yearMonth(month));
+
+            try (ResultSet rs = executeQuery(pstmt)) {
+                if (rs.next()) {
+                    return cents(rs.getBigDecimal("total"));
+                }
+            }
+        } catch (SQLException e) {
+            failed("getMonthlyTotalCents", e);
+        }
+
+        return 0;
+    }
+
+    @Override
+    public CategoryTotal summarize(LocalDate from, LocalDate to) {
+        CategoryTotal total = CategoryTotal.EMPTY;
+        for (CategoryTotal categoryTotal : totalsByCategory(from, to).values()) {
+            total = total.plus(categoryTotal);
+        }
+        return total;
+    }
+
+    /**
+     * Whole-month ranges are answered from {@code gastos_mensuales}, which
+     * keeps the totals of archived months; any other range scans the covering
+     * date index of the partitions it spans.
+     */
+    @Override
+    public Map<Expense.ExpenseCategory, CategoryTotal> totalsByCategory(LocalDate from, LocalDate to) {
+        Map<Expense.ExpenseCategory, CategoryTotal> totals = new EnumMap<>(Expense.ExpenseCategory.class);
+        boolean wholeMonths = from.getDayOfMonth() == 1 && to.getDayOfMonth() == 1;
+        String sql = wholeMonths
+                ? "SELECT categoria, SUM(cantidad) AS cantidad, SUM(total) AS total FROM gastos_mensuales"
+                        + " WHERE anio_mes >= ? AND anio_mes < ?"
+                        + " GROUP BY categoria HAVING SUM(cantidad) > 0"
+                : "SELECT categoria, COUNT(*) AS cantidad, SUM(monto) AS total FROM " + tableFrom(from)
+                        + " WHERE fecha_gasto >= ? AND fecha_gasto < ?"
+                        + " GROUP BY categoria";
+
+        try (Connection conn = mysqlConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            if (wholeMonths) {
+                pstmt.setInt(1, MonthlyAggregates.yearMonth(from));
+                pstmt.setInt(2, MonthlyAggregates.yearMonth(to));
+            } else {
+                pstmt.setDate(1, Date.valueOf(from));
+                pstmt.setDate(2, Date.valueOf(to));
+            }
+
+            try (ResultSet rs = executeQuery(pstmt)) {
                 while (rs.next()) {
-                    expenses.add(new Expense.Builder()
-                        .id(rs.getInt("id"))
-                        .description(rs.getString("descripcion"))
-                        .category(Expense.ExpenseCategory.valueOf(rs.getString("categoria")))
-                        .amount(rs.getDouble("monto"))
-                        .expenseDate(rs.getDate("fecha_gasto").toLocalDate())
-                        .build());
+                    totals.put(Expense.ExpenseCategory.valueOf(rs.getString("categoria")),
+                            new CategoryTotal(rs.getLong("cantidad"), cents(rs.getBigDecimal("total"))));
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed("totalsByCategory", e);
         }
-        
+
+        return totals;
+    }
+
+    @Override
+    public long count() {
+        try (Connection conn = mysqlConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM gastos")) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            failed("count", e);
+        }
+        return 0;
+    }
+
+    @Override
+    public List<Expense> findPageAfter(LocalDate afterDate, int afterId, int limit) {
+        if (afterDate == null) {
+            return findPageAt(0, limit);
+        }
+        List<Expense> expenses = new ArrayList<>(limit);
+        // The leading range on fecha_gasto lets MySQL skip the partitions before the page.
+        String sql = "SELECT id, descripcion, categoria, monto, fecha_gasto FROM gastos"
+                + " WHERE fecha_gasto >= ? AND (fecha_gasto > ? OR id > ?)"
+                + " ORDER BY fecha_gasto, id LIMIT ?";
+
+        try (Connection conn = mysqlConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(afterDate));
+            pstmt.setDate(2, Date.valueOf(afterDate));
+            pstmt.setInt(3, afterId);
+            pstmt.setInt(4, limit);
+
+            try (ResultSet rs = executeQuery(pstmt)) {
+                mapRows(rs, ExpenseColumn.ALL, expenses);
+            }
+        } catch (SQLException e) {
+            failed("findPageAfter", e);
+        }
+
         return expenses;
     }
 
     @Override
-    public double getTotalMonthlyExpenses(LocalDate month) {
-        String sql = "SELECT SUM(monto) AS total FROM gastos WHERE YEAR(fecha_gasto) = ? AND MONTH(fecha_gasto) = ?";
-        
+    public List<Expense> findPageAt(long offset, int limit) {
+        List<Expense> expenses = new ArrayList<>(limit);
+        String sql = "SELECT id, descripcion, categoria, monto, fecha_gasto FROM gastos"
+                + " ORDER BY fecha_gasto, id LIMIT ? OFFSET ?";
+
         try (Connection conn = mysqlConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, month.getYear());
-            pstmt.setInt(2, month.getMonthValue());
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
+
+            pstmt.setInt(1, limit);
+            pstmt.setLong(2, offset);
+
+            try (ResultSet rs = executeQuery(pstmt)) {
+                mapRows(rs, ExpenseColumn.ALL, expenses);
+            }
+        } catch (SQLException e) {
+            failed("findPageAt", e);
+        }
+
+        return expenses;
+    }
+
+    @Override
+    public long countBefore(LocalDate date, int id) {
+        String sql = "SELECT COUNT(*) FROM gastos WHERE fecha_gasto <= ? AND (fecha_gasto < ? OR id < ?)";
+
+        try (Connection conn = mysqlConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(date));
+            pstmt.setDate(2, Date.valueOf(date));
+            pstmt.setInt(3, id);
+
+            try (ResultSet rs = executeQuery(pstmt)) {
                 if (rs.next()) {
-                    return rs.getDouble("total");
+                    return rs.getLong(1);
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed("countBefore", e);
         }
-        
-        return 0.0;
+        return 0;
+    }
+
+    @Override
+    public Stream<Expense> streamByDateRange(LocalDate from, LocalDate to, Set<ExpenseColumn> columns) {
+        String sql = rangeQuery(from, to, columns);
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = mysqlConnection.getConnection();
+            pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(STREAM_FETCH_SIZE);
+            bindRange(pstmt, from, to);
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            closeQuietly(rs, pstmt, conn);
+            throw new IllegalStateException("No se pudo consultar los gastos", e);
+        }
+
+        Cursor cursor = new Cursor(conn, pstmt, rs, columns);
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    @Override
+    public void forEachByDateRange(LocalDate from, LocalDate to, Set<ExpenseColumn> columns, Consumer<Expense> action) {
+        try (Stream<Expense> expenses = streamByDateRange(from, to, columns)) {
+            expenses.forEach(action);
+        }
+    }
+
+    private String rangeQuery(LocalDate from, LocalDate to, Set<ExpenseColumn> columns) {
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(ExpenseColumn.selectList(columns))
+                .append(" FROM ").append(tableFrom(from));
+        if (from != null || to != null) {
+            sql.append(" WHERE ");
+            if (from != null) {
+                sql.append("fecha_gasto >= ?");
+            }
+            if (from != null && to != null) {
+                sql.append(" AND ");
+            }
+            if (to != null) {
+                sql.append("fecha_gasto < ?");
+            }
+        }
+        return sql.append(" ORDER BY fecha_gasto, id").toString();
+    }
+
+    /**
+     * @return The view that adds the archived years if a range starting at
+     * {@code from} reaches into them, else {@code gastos}
+     */
+    private static String tableFrom(LocalDate from) {
+        LocalDate archivedBefore = PartitionManager.archivedBefore();
+        if (archivedBefore.equals(LocalDate.MIN)) {
+            return "gastos";
+        }
+        return from == null || from.isBefore(archivedBefore) ? ALL_ROWS : "gastos";
+    }
+
+    private void bindRange(PreparedStatement pstmt, LocalDate from, LocalDate to) throws SQLException {
+        int index = 1;
+        if (from != null) {
+            pstmt.setDate(index++, Date.valueOf(from));
+        }
+        if (to != null) {
+            pstmt.setDate(index, Date.valueOf(to));
+        }
+    }
+
+    /**
+     * Runs the query, timing it under {@code jdbc.executeQuery}.
+     */
+    private static ResultSet executeQuery(PreparedStatement pstmt) throws SQLException {
+        long start = System.nanoTime();
+        ResultSet rs = pstmt.executeQuery();
+        MetricsRegistry.global().operation("jdbc.executeQuery").record(System.nanoTime() - start, 0);
+        return rs;
+    }
+
+    /**
+     * Maps every remaining row, timing the fetch and mapping under {@code jdbc.mapRows}.
+     */
+    private void mapRows(ResultSet rs, Set<ExpenseColumn> columns, List<Expense> expenses) throws SQLException {
+        long start = System.nanoTime();
+        int before = expenses.size();
+        while (rs.next()) {
+            expenses.add(mapRow(rs, columns));
+        }
+        MetricsRegistry.global().operation("jdbc.mapRows").record(System.nanoTime() - start, expenses.size() - before);
+    }
+
+    private Expense mapRow(ResultSet rs, Set<ExpenseColumn> columns) throws SQLException {
+        int id = columns.contains(ExpenseColumn.ID) ? rs.getInt("id") : Expense.NO_ID;
+        String description = columns.contains(ExpenseColumn.DESCRIPTION) ? rs.getString("descripcion") : null;
+        Expense.ExpenseCategory category = columns.contains(ExpenseColumn.CATEGORY)
+                ? Expense.ExpenseCategory.valueOf(rs.getString("categoria"))
+                : null;
+        long amountCents = columns.contains(ExpenseColumn.AMOUNT) ? cents(rs.getBigDecimal("monto")) : 0;
+        LocalDate expenseDate = columns.contains(ExpenseColumn.EXPENSE_DATE)
+                ? rs.getDate("fecha_gasto").toLocalDate()
+                : null;
+        return Expense.of(id, description, category, amountCents, expenseDate);
+    }
+
+    /**
+     * Logs an error the method handles without throwing. No decorator sees
+     * it, so it is counted here under the method's repository metric.
+     */
+    private static void failed(String method, SQLException e) {
+        MetricsRegistry.global().operation("repository." + method).recordError();
+        e.printStackTrace();
+    }
+
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks an open result set row by row and owns its statement and
+     * connection until closed, either explicitly or once rows run out.
+     */
+    private class Cursor extends Spliterators.AbstractSpliterator<Expense> implements AutoCloseable {
+        private final Connection conn;
+        private final PreparedStatement pstmt;
+        private final ResultSet rs;
+        private final Set<ExpenseColumn> columns;
+        private boolean closed;
+
+        Cursor(Connection conn, PreparedStatement pstmt, ResultSet rs, Set<ExpenseColumn> columns) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.pstmt = pstmt;
+            this.rs = rs;
+            this.columns = columns;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Expense> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(mapRow(rs, columns));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw new IllegalStateException("Error leyendo los gastos", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                closeQuietly(rs, pstmt, conn);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface TransactionWork<T> {
+        T run() throws SQLException;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import model.CategoryTotal;
+import model.Expense;
+
+/**
+ * Repository that forwards every call to another one. Decorators extend it
+ * and override only the methods they change.
+ */
+public abstract class ForwardingExpenseRepository implements ExpenseRepository {
+    protected final ExpenseRepository delegate;
+
+    protected ForwardingExpenseRepository(ExpenseRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int save(Expense expense) {
+        return delegate.save(expense);
+    }
+
+    @Override
+    public int saveWithinMonthlyLimit(Expense expense, long monthlyLimitCents) {
+        return delegate.saveWithinMonthlyLimit(expense, monthlyLimitCents);
+    }
+
+    @Override
+    public void update(Expense expense) {
+        delegate.update(expense);
+    }
+
+    @Override
+    public void delete(int id) {
+        delegate.delete(id);
+    }
+
+    @Override
+    public List<Integer> saveAll(List<Expense> expenses) {
+        return delegate.saveAll(expenses);
+    }
+
+    @Override
+    public LocalDate archivedBefore() {
+        return delegate.archivedBefore();
+    }
+
+    @Override
+    public List<Integer> saveAllWithinMonthlyLimit(List<Expense> expenses, long monthlyLimitCents) {
+        return delegate.saveAllWithinMonthlyLimit(expenses, monthlyLimitCents);
+    }
+
+    @Override
+    public int updateAll(List<Expense> expenses) {
+        return delegate.updateAll(expenses);
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        return delegate.deleteAll(ids);
+    }
+
+    @Override
+    public Expense findById(int id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Expense> findByIds(Collection<Integer> ids) {
+        return delegate.findByIds(ids);
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Expense> findByCategory(Expense.ExpenseCategory category) {
+        return delegate.findByCategory(category);
+    }
+
+    @Override
+    public long getMonthlyTotalCents(LocalDate month) {
+        return delegate.getMonthlyTotalCents(month);
+    }
+
+    @Override
+    public Stream<Expense> streamByDateRange(LocalDate from, LocalDate to, Set<ExpenseColumn> columns) {
+        return delegate.streamByDateRange(from, to, columns);
+    }
+
+    @Override
+    public void forEachByDateRange(LocalDate from, LocalDate to, Set<ExpenseColumn> columns, Consumer<Expense> action) {
+        delegate.forEachByDateRange(from, to, columns, action);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public List<Expense> findPageAfter(LocalDate afterDate, int afterId, int limit) {
+        return delegate.findPageAfter(afterDate, afterId, limit);
+    }
+
+    @Override
+    public List<Expense> findPageAt(long offset, int limit) {
+        return delegate.findPageAt(offset, limit);
+    }
+
+    @Override
+    public long countBefore(LocalDate date, int id) {
+        return delegate.countBefore(date, id);
+    }
+
+    @Override
+    public CategoryTotal summarize(LocalDate from, LocalDate to) {
+        return delegate.summarize(from, to);
+    }
+
+    @Override
+    public Map<Expense.ExpenseCategory, CategoryTotal> totalsByCategory(LocalDate from, LocalDate to) {
+        return delegate.totalsByCategory(from, to);
+    }
+}
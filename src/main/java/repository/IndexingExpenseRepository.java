@@ -0,0 +1,140 @@
+package repository;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import model.Expense;
+import search.SearchHits;
+import search.SearchIndex;
+
+/**
+ * Keeps a {@link SearchIndex} of descriptions current with every write made
+ * through it. The index is filled from the delegate on the first search.
+ */
+public class IndexingExpenseRepository extends ForwardingExpenseRepository {
+    private static final Set<ExpenseColumn> INDEXED_COLUMNS
+            = EnumSet.of(ExpenseColumn.ID, ExpenseColumn.DESCRIPTION, ExpenseColumn.EXPENSE_DATE);
+
+    private final SearchIndex index;
+
+    public IndexingExpenseRepository(ExpenseRepository delegate) {
+        this(delegate, new SearchIndex());
+    }
+
+    public IndexingExpenseRepository(ExpenseRepository delegate, SearchIndex index) {
+        super(delegate);
+        this.index = index;
+    }
+
+    /**
+     * @return The matching expenses in date/id order
+     * @see SearchIndex#search(String)
+     */
+    public SearchHits search(String query) {
+        loadIndex();
+        return index.search(query);
+    }
+
+    /**
+     * Fills the index now instead of on the first search.
+     */
+    public void loadIndex() {
+        if (!index.isLoaded()) {
+            index.load(action -> delegate.forEachByDateRange(null, null, INDEXED_COLUMNS, action));
+        }
+    }
+
+    @Override
+    public int save(Expense expense) {
+        int id = delegate.save(expense);
+        if (id >= 0) {
+            index.put(expense.withId(id));
+        }
+        return id;
+    }
+
+    @Override
+    public int saveWithinMonthlyLimit(Expense expense, long monthlyLimitCents) {
+        int id = delegate.saveWithinMonthlyLimit(expense, monthlyLimitCents);
+        if (id >= 0) {
+            index.put(expense.withId(id));
+        }
+        return id;
+    }
+
+    @Override
+    public void update(Expense expense) {
+        delegate.update(expense);
+        index.replace(expense);
+    }
+
+    @Override
+    public void delete(int id) {
+        delegate.delete(id);
+        index.remove(id);
+    }
+
+    @Override
+    public List<Integer> saveAll(List<Expense> expenses) {
+        List<Integer> ids;
+        try {
+            ids = delegate.saveAll(expenses);
+        } catch (PartialWriteException e) {
+            putSaved(expenses, e.getIds());
+            throw e;
+        }
+        putSaved(expenses, ids);
+        return ids;
+    }
+
+    @Override
+    public List<Integer> saveAllWithinMonthlyLimit(List<Expense> expenses, long monthlyLimitCents) {
+        List<Integer> ids;
+        try {
+            ids = delegate.saveAllWithinMonthlyLimit(expenses, monthlyLimitCents);
+        } catch (PartialWriteException e) {
+            putSaved(expenses, e.getIds());
+            throw e;
+        }
+        putSaved(expenses, ids);
+        return ids;
+    }
+
+    private void putSaved(List<Expense> expenses, List<Integer> ids) {
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) >= 0) {
+                index.put(expenses.get(i).withId(ids.get(i)));
+            }
+        }
+    }
+
+    /**
+     * On a {@link PartialWriteException} only the committed rows are applied to the index.
+     */
+    @Override
+    public int updateAll(List<Expense> expenses) {
+        int updated;
+        try {
+            updated = delegate.updateAll(expenses);
+        } catch (PartialWriteException e) {
+            expenses.subList(0, e.getCommitted()).forEach(index::replace);
+            throw e;
+        }
+        expenses.forEach(index::replace);
+        return updated;
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        int deleted;
+        try {
+            deleted = delegate.deleteAll(ids);
+        } catch (PartialWriteException e) {
+            ids.stream().limit(e.getCommitted()).forEach(index::remove);
+            throw e;
+        }
+        ids.forEach(index::remove);
+        return deleted;
+    }
+}
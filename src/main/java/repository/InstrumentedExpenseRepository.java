@@ -0,0 +1,239 @@
+package repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+import metrics.RepositoryOperationEvent;
+import model.CategoryTotal;
+import model.Expense;
+import model.ExpenseRejectedException;
+
+/**
+ * Records latency, rows and errors of every call in the metrics registry
+ * under {@code repository.<method>}, and emits a JFR event per call.
+ * <p>
+ * Errors are counted when a call throws. Implementations that log an error
+ * and return an empty result count it themselves under the same name.
+ */
+public class InstrumentedExpenseRepository extends ForwardingExpenseRepository {
+    private static final String PREFIX = "repository.";
+
+    private final MetricsRegistry registry;
+
+    public InstrumentedExpenseRepository(ExpenseRepository delegate) {
+        this(delegate, MetricsRegistry.global());
+    }
+
+    public InstrumentedExpenseRepository(ExpenseRepository delegate, MetricsRegistry registry) {
+        super(delegate);
+        this.registry = registry;
+    }
+
+    private <T> T measure(String method, Supplier<T> call, ToLongFunction<T> rows) {
+        OperationMetrics metrics = registry.operation(PREFIX + method);
+        RepositoryOperationEvent event = new RepositoryOperationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long count = 0;
+        boolean failed = true;
+        try {
+            T result = call.get();
+            count = rows.applyAsLong(result);
+            failed = false;
+            return result;
+        } finally {
+            metrics.record(System.nanoTime() - start, count);
+            if (failed) {
+                metrics.recordError();
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = method;
+                event.rows = count;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private void measure(String method, Runnable call, long rows) {
+        measure(method, () -> {
+            call.run();
+            return null;
+        }, result -> rows);
+    }
+
+    /**
+     * @return Number of ids that belong to saved rows, skipping the -1 of those not saved
+     */
+    private static long saved(List<Integer> ids) {
+        long saved = 0;
+        for (int id : ids) {
+            if (id >= 0) {
+                saved++;
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    public int save(Expense expense) {
+        return measure("save", () -> delegate.save(expense), id -> id < 0 ? 0 : 1);
+    }
+
+    /**
+     * A rejection for exceeding the limit is an expected outcome, not an error.
+     */
+    @Override
+    public int saveWithinMonthlyLimit(Expense expense, long monthlyLimitCents) {
+        ExpenseRejectedException[] rejected = new ExpenseRejectedException[1];
+        int id = measure("saveWithinMonthlyLimit", () -> {
+            try {
+                return delegate.saveWithinMonthlyLimit(expense, monthlyLimitCents);
+            } catch (ExpenseRejectedException e) {
+                rejected[0] = e;
+                return -1;
+            }
+        }, saved -> saved < 0 ? 0 : 1);
+        if (rejected[0] != null) {
+            throw rejected[0];
+        }
+        return id;
+    }
+
+    @Override
+    public void update(Expense expense) {
+        measure("update", () -> delegate.update(expense), 1);
+    }
+
+    @Override
+    public void delete(int id) {
+        measure("delete", () -> delegate.delete(id), 1);
+    }
+
+    @Override
+    public List<Integer> saveAll(List<Expense> expenses) {
+        return measure("saveAll", () -> delegate.saveAll(expenses), InstrumentedExpenseRepository::saved);
+    }
+
+    @Override
+    public List<Integer> saveAllWithinMonthlyLimit(List<Expense> expenses, long monthlyLimitCents) {
+        return measure("saveAllWithinMonthlyLimit",
+                () -> delegate.saveAllWithinMonthlyLimit(expenses, monthlyLimitCents),
+                InstrumentedExpenseRepository::saved);
+    }
+
+    @Override
+    public int updateAll(List<Expense> expenses) {
+        return measure("updateAll", () -> delegate.updateAll(expenses), updated -> updated);
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        return measure("deleteAll", () -> delegate.deleteAll(ids), deleted -> deleted);
+    }
+
+    @Override
+    public Expense findById(int id) {
+        return measure("findById", () -> delegate.findById(id), expense -> expense == null ? 0 : 1);
+    }
+
+    @Override
+    public List<Expense> findByIds(Collection<Integer> ids) {
+        return measure("findByIds", () -> delegate.findByIds(ids), List::size);
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        return measure("findAll", delegate::findAll, List::size);
+    }
+
+    @Override
+    public List<Expense> findByCategory(Expense.ExpenseCategory category) {
+        return measure("findByCategory", () -> delegate.findByCategory(category), List::size);
+    }
+
+    @Override
+    public long getMonthlyTotalCents(LocalDate month) {
+        return measure("getMonthlyTotalCents", () -> delegate.getMonthlyTotalCents(month), total -> 0);
+    }
+
+    /**
+     * Measures the stream from creation until it is closed, counting the rows consumed.
+     */
+    @Override
+    public Stream<Expense> streamByDateRange(LocalDate from, LocalDate to, Set<ExpenseColumn> columns) {
+        OperationMetrics metrics = registry.operation(PREFIX + "streamByDateRange");
+        RepositoryOperationEvent event = new RepositoryOperationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Stream<Expense> stream;
+        try {
+            stream = delegate.streamByDateRange(from, to, columns);
+        } catch (RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        }
+        LongAdder rows = new LongAdder();
+        return stream.peek(expense -> rows.increment()).onClose(() -> {
+            metrics.record(System.nanoTime() - start, rows.sum());
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = "streamByDateRange";
+                event.rows = rows.sum();
+                event.commit();
+            }
+        });
+    }
+
+    @Override
+    public void forEachByDateRange(LocalDate from, LocalDate to, Set<ExpenseColumn> columns, Consumer<Expense> action) {
+        long[] rows = new long[1];
+        measure("forEachByDateRange", () -> {
+            delegate.forEachByDateRange(from, to, columns, expense -> {
+                rows[0]++;
+                action.accept(expense);
+            });
+            return null;
+        }, result -> rows[0]);
+    }
+
+    @Override
+    public long count() {
+        return measure("count", delegate::count, count -> 0);
+    }
+
+    @Override
+    public List<Expense> findPageAfter(LocalDate afterDate, int afterId, int limit) {
+        return measure("findPageAfter", () -> delegate.findPageAfter(afterDate, afterId, limit), List::size);
+    }
+
+    @Override
+    public List<Expense> findPageAt(long offset, int limit) {
+        return measure("findPageAt", () -> delegate.findPageAt(offset, limit), List::size);
+    }
+
+    @Override
+    public long countBefore(LocalDate date, int id) {
+        return measure("countBefore", () -> delegate.countBefore(date, id), count -> 0);
+    }
+
+    @Override
+    public CategoryTotal summarize(LocalDate from, LocalDate to) {
+        return measure("summarize", () -> delegate.summarize(from, to), total -> 0);
+    }
+
+    @Override
+    public Map<Expense.ExpenseCategory, CategoryTotal> totalsByCategory(LocalDate from, LocalDate to) {
+        return measure("totalsByCategory", () -> delegate.totalsByCategory(from, to), Map::size);
+    }
+}
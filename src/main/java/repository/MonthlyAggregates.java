@@ -0,0 +1,185 @@
+package repository;
+
+import config.Mysql;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import model.Expense;
+
+/**
+ * Maintains {@code gastos_mensuales}, the per month and category running
+ * totals of {@code gastos}.
+ * <p>
+ * Writers collect their changes in a {@link Deltas} and apply it on the same
+ * connection and transaction as the row changes, so the totals never drift
+ * from the rows they summarize.
+ */
+public class MonthlyAggregates {
+
+    private static final String UPSERT_SQL = "INSERT INTO gastos_mensuales (anio_mes, categoria, cantidad, total)"
+            + " VALUES (?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE cantidad = cantidad + VALUES(cantidad), total = total + VALUES(total)";
+
+    private static final String REBUILD_SQL = "INSERT INTO gastos_mensuales (anio_mes, categoria, cantidad, total)"
+            + " SELECT EXTRACT(YEAR_MONTH FROM fecha_gasto), categoria, COUNT(*), SUM(monto)"
+            + " FROM gastos_todos GROUP BY EXTRACT(YEAR_MONTH FROM fecha_gasto), categoria";
+
+    private static final String VERIFY_SQL = "SELECT COALESCE(g.anio_mes, m.anio_mes) AS anio_mes,"
+            + " COALESCE(g.categoria, m.categoria) AS categoria,"
+            + " g.cantidad AS cantidad_real, g.total AS total_real,"
+            + " m.cantidad AS cantidad_agregada, m.total AS total_agregado"
+            + " FROM (SELECT EXTRACT(YEAR_MONTH FROM fecha_gasto) AS anio_mes, categoria,"
+            + "       COUNT(*) AS cantidad, SUM(monto) AS total"
+            + "       FROM gastos_todos GROUP BY EXTRACT(YEAR_MONTH FROM fecha_gasto), categoria) g"
+            + " LEFT JOIN gastos_mensuales m ON m.anio_mes = g.anio_mes AND m.categoria = g.categoria"
+            + " UNION ALL"
+            + " SELECT m.anio_mes, m.categoria, NULL, NULL, m.cantidad, m.total"
+            + " FROM gastos_mensuales m"
+            + " WHERE m.cantidad <> 0 AND NOT EXISTS (SELECT 1 FROM gastos_todos g"
+            + "       WHERE g.fecha_gasto >= STR_TO_DATE(CONCAT(m.anio_mes, '01'), '%Y%m%d')"
+            + "       AND g.fecha_gasto < STR_TO_DATE(CONCAT(m.anio_mes, '01'), '%Y%m%d') + INTERVAL 1 MONTH"
+            + "       AND g.categoria = m.categoria)";
+
+    private final Mysql mysqlConnection;
+
+    public MonthlyAggregates() {
+        this.mysqlConnection = new Mysql();
+    }
+
+    /**
+     * @return Month key used by {@code gastos_mensuales.anio_mes}, e.g. 202410
+     */
+    public static int yearMonth(LocalDate date) {
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+
+    /**
+     * Recomputes every aggregate from the live and archived rows in one transaction.
+     */
+    public void rebuild() throws SQLException {
+        try (Connection conn = mysqlConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            try {
+                stmt.executeUpdate("DELETE FROM gastos_mensuales");
+                stmt.executeUpdate(REBUILD_SQL);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Compares the aggregates against a fresh GROUP BY over the live and archived rows.
+     *
+     * @return One description per mismatching month and category; empty if consistent
+     */
+    public List<String> verify() throws SQLException {
+        List<String> mismatches = new ArrayList<>();
+        try (Connection conn = mysqlConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(VERIFY_SQL)) {
+            while (rs.next()) {
+                long actualCount = rs.getLong("cantidad_real");
+                long actualCents = ExpenseRepositoryImpl.cents(rs.getBigDecimal("total_real"));
+                long storedCount = rs.getLong("cantidad_agregada");
+                long storedCents = ExpenseRepositoryImpl.cents(rs.getBigDecimal("total_agregado"));
+                if (actualCount != storedCount || actualCents != storedCents) {
+                    mismatches.add(String.format("%d %s: gastos=%d/%.2f agregados=%d/%.2f",
+                            rs.getInt("anio_mes"), rs.getString("categoria"),
+                            actualCount, actualCents / 100.0, storedCount, storedCents / 100.0));
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Pending changes to the aggregates, keyed by month and category. Keys are
+     * applied in sorted order so concurrent writers lock rows in the same order.
+     */
+    static class Deltas {
+        private final Map<Key, long[]> changes = new TreeMap<>();
+
+        void add(Expense expense) {
+            add(expense.getExpenseDate(), expense.getCategory(), 1, expense.getAmountCents());
+        }
+
+        void remove(Expense expense) {
+            add(expense.getExpenseDate(), expense.getCategory(), -1, -expense.getAmountCents());
+        }
+
+        void add(LocalDate date, Expense.ExpenseCategory category, long count, long cents) {
+            long[] change = changes.computeIfAbsent(new Key(yearMonth(date), category), k -> new long[2]);
+            change[0] += count;
+            change[1] += cents;
+        }
+
+        boolean isEmpty() {
+            return changes.isEmpty();
+        }
+
+        /**
+         * Applies the pending changes on the caller's connection and transaction.
+         */
+        void apply(Connection conn) throws SQLException {
+            if (changes.isEmpty()) {
+                return;
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+                for (Map.Entry<Key, long[]> entry : changes.entrySet()) {
+                    pstmt.setInt(1, entry.getKey().yearMonth);
+                    pstmt.setString(2, entry.getKey().category.name());
+                    pstmt.setLong(3, entry.getValue()[0]);
+                    pstmt.setBigDecimal(4, ExpenseRepositoryImpl.decimal(entry.getValue()[1]));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            changes.clear();
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        private final int yearMonth;
+        private final Expense.ExpenseCategory category;
+
+        Key(int yearMonth, Expense.ExpenseCategory category) {
+            this.yearMonth = yearMonth;
+            this.category = category;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byMonth = Integer.compare(yearMonth, other.yearMonth);
+            return byMonth != 0 ? byMonth : category.name().compareTo(other.category.name());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return yearMonth == key.yearMonth && category == key.category;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(yearMonth, category);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package repository;
+
+import java.util.List;
+
+/**
+ * A batch write that failed part way through. Batches are written one
+ * transaction per chunk, so the first {@link #getCommitted} inputs stay
+ * written and none after them were; a caller can retry from there.
+ */
+public class PartialWriteException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final int committed;
+    private final int total;
+    @SuppressWarnings("serial") // always an immutable List.copyOf
+    private final List<Integer> ids;
+
+    /**
+     * @param committed Number of leading inputs, in the caller's order, whose chunks were committed
+     * @param ids Ids of the committed inputs for {@code saveAll}, with -1 for those not saved; empty otherwise
+     */
+    public PartialWriteException(int committed, int total, List<Integer> ids, Throwable cause) {
+        super("Solo se escribieron " + committed + " de " + total + " gastos: "
+                + (cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName()), cause);
+        this.committed = committed;
+        this.total = total;
+        this.ids = List.copyOf(ids);
+    }
+
+    public int getCommitted() {
+        return committed;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+}
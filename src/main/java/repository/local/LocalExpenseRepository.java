@@ -0,0 +1,804 @@
+package repository.local;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import metrics.MetricsRegistry;
+import model.CategoryTotal;
+import model.Expense;
+import model.ExpenseRejectedException;
+import repository.ExpenseColumn;
+import repository.ExpenseRepositories;
+import repository.ExpenseRepository;
+import repository.MonthlyAggregates;
+import repository.PartialWriteException;
+
+/**
+ * Embedded, single-process storage for expenses that needs no database server.
+ * <p>
+ * Every change is appended to a {@link RecordLog}. A memory-mapped
+ * {@link OffsetIndex} points each id at its latest record. A sorted array of
+ * (date, id) keys serves ordered reads, and per-month totals are kept in
+ * memory. Opening maps the index and replays only the log written after the
+ * last checkpoint.
+ * <p>
+ * Updates and deletes leave dead records behind. Once they make up half of
+ * the log, live records are copied to a new generation of files. The
+ * {@code CURRENT} file is then switched to it atomically, so a crash during
+ * compaction leaves the previous generation in use.
+ * <p>
+ * Only one process may open a directory at a time: opening takes an
+ * exclusive lock on its {@code LOCK} file and fails if another holds it.
+ */
+public class LocalExpenseRepository implements ExpenseRepository, AutoCloseable {
+    private static final int BATCH_SIZE = 1000;
+    private static final int CHECKPOINT_INTERVAL = 1000;
+    private static final double COMPACTION_DEAD_RATIO = 0.5;
+    private static final long COMPACTION_MIN_BYTES = 1 << 20;
+    private static final int CATEGORY_COUNT = Expense.ExpenseCategory.values().length;
+
+    private final Path directory;
+    private final boolean syncWrites;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Directories opened by this process.
+     */
+    private static final Set<Path> OPEN_DIRECTORIES = ConcurrentHashMap.newKeySet();
+
+    private FileChannel lockFile;
+    private Path lockedDirectory;
+    private long generation;
+    private RecordLog log;
+    private OffsetIndex index;
+    private SortedKeys dates;
+    private final Map<Integer, MonthTotals> months = new HashMap<>();
+    private long liveBytes;
+    private int writesSinceCheckpoint;
+
+    private LocalExpenseRepository(Path directory, boolean syncWrites) {
+        this.directory = directory;
+        this.syncWrites = syncWrites;
+    }
+
+    /**
+     * Opens or creates the store in the directory.
+     *
+     * @param syncWrites Whether every write is forced to disk before returning
+     */
+    public static LocalExpenseRepository open(Path directory, boolean syncWrites) throws IOException {
+        LocalExpenseRepository repository = new LocalExpenseRepository(directory, syncWrites);
+        try {
+            repository.recover();
+        } catch (IOException | RuntimeException e) {
+            repository.unlockDirectory();
+            throw e;
+        }
+        return repository;
+    }
+
+    public static LocalExpenseRepository open(Path directory) throws IOException {
+        return open(directory, true);
+    }
+
+    //-----------------------------------------------------------------------
+    //		Recovery
+    //-----------------------------------------------------------------------
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        lockDirectory();
+        Path current = directory.resolve("CURRENT");
+        generation = Files.exists(current)
+                ? Long.parseLong(Files.readString(current, StandardCharsets.US_ASCII).trim())
+                : 0;
+        deleteOtherGenerations();
+
+        log = new RecordLog(logPath(generation));
+        index = new OffsetIndex(indexPath(generation));
+        if (index.checkpoint() > log.end()) {
+            // The log is shorter than what the index claims; rebuild it from scratch.
+            index.close();
+            Files.delete(indexPath(generation));
+            index = new OffsetIndex(indexPath(generation));
+        }
+
+        log.replay(index.checkpoint(), this::replayRecord);
+        loadFromIndex();
+        index.checkpoint(log.end());
+    }
+
+    private void replayRecord(RecordLog.Record record) throws IOException {
+        if (record.type == RecordLog.PUT) {
+            Expense expense = record.expense;
+            index.put(record.id, record.offset, record.length, (int) expense.getExpenseDate().toEpochDay(),
+                    expense.getCategory().ordinal(), expense.getAmountCents());
+        } else {
+            index.remove(record.id);
+        }
+        if (record.id >= index.nextId()) {
+            index.setNextId(record.id + 1);
+        }
+    }
+
+    /**
+     * Scans the slots once to build the date order and monthly totals. Slots
+     * pointing past the end of the log, left by a torn write, are cleared.
+     */
+    private void loadFromIndex() {
+        long[] keys = new long[1024];
+        int size = 0;
+        liveBytes = 0;
+        months.clear();
+        for (int id = 1; id < index.capacity(); id++) {
+            if (!index.contains(id)) {
+                continue;
+            }
+            if (index.offset(id) + index.length(id) > log.end()) {
+                index.remove(id);
+                continue;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = SortedKeys.key(index.epochDay(id), id);
+            liveBytes += index.length(id);
+            monthOf(index.epochDay(id)).add(index.category(id), 1, index.cents(id));
+        }
+        dates = new SortedKeys(keys, size);
+    }
+
+    /**
+     * Takes the directory's lock, held until {@link #close}. Another process
+     * would otherwise delete this one's compaction output and interleave
+     * records in the same log.
+     *
+     * @throws IOException If another process, or this one, has the directory open
+     */
+    private void lockDirectory() throws IOException {
+        lockedDirectory = directory.toRealPath();
+        // File locks belong to the process, and closing any channel of the
+        // file releases them, so a second open within it is refused first.
+        if (!OPEN_DIRECTORIES.add(lockedDirectory)) {
+            lockedDirectory = null;
+            throw alreadyOpen();
+        }
+        lockFile = FileChannel.open(directory.resolve("LOCK"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (lockFile.tryLock() == null) {
+            unlockDirectory();
+            throw alreadyOpen();
+        }
+    }
+
+    private void unlockDirectory() throws IOException {
+        try {
+            if (lockFile != null) {
+                // Closing the channel releases the lock.
+                lockFile.close();
+            }
+        } finally {
+            if (lockedDirectory != null) {
+                OPEN_DIRECTORIES.remove(lockedDirectory);
+            }
+        }
+    }
+
+    private IOException alreadyOpen() {
+        return new IOException("El almacenamiento local en " + directory
+                + " ya está abierto por otro proceso; ciérrelo o use otro -D"
+                + ExpenseRepositories.DATA_DIR_PROPERTY);
+    }
+
+    private void deleteOtherGenerations() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if ((name.startsWith("expenses-") && !name.startsWith("expenses-" + generation + "."))
+                        || name.equals("CURRENT.tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path logPath(long gen) {
+        return directory.resolve("expenses-" + gen + ".log");
+    }
+
+    private Path indexPath(long gen) {
+        return directory.resolve("expenses-" + gen + ".idx");
+    }
+
+    //-----------------------------------------------------------------------
+    //		Writes
+    //-----------------------------------------------------------------------
+    @Override
+    public int save(Expense expense) {
+        try {
+            return saveAll(List.of(expense)).get(0);
+        } catch (PartialWriteException e) {
+            MetricsRegistry.global().operation("repository.save").recordError();
+            return -1;
+        }
+    }
+
+    @Override
+    public int saveWithinMonthlyLimit(Expense expense, long monthlyLimitCents) {
+        lock.writeLock().lock();
+        try {
+            long monthTotal = monthOf((int) expense.getExpenseDate().toEpochDay()).totalCents();
+            if (monthTotal + expense.getAmountCents() > monthlyLimitCents) {
+                throw new ExpenseRejectedException(
+                        String.format("El gasto excede el límite mensual de S/%.0f", monthlyLimitCents / 100.0));
+            }
+            return save(expense);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(Expense expense) {
+        int updated;
+        try {
+            updated = updateAll(List.of(expense));
+        } catch (PartialWriteException e) {
+            throw new IllegalStateException("No se pudo actualizar el gasto con ID " + expense.getId(), e.getCause());
+        }
+        if (updated == 0) {
+            throw new IllegalStateException("No se pudo actualizar el gasto con ID " + expense.getId());
+        }
+    }
+
+    @Override
+    public void delete(int id) {
+        int deleted;
+        try {
+            deleted = deleteAll(List.of(id));
+        } catch (PartialWriteException e) {
+            throw new IllegalStateException("No se pudo eliminar el gasto con ID " + id, e.getCause());
+        }
+        if (deleted == 0) {
+            throw new IllegalStateException("No se pudo eliminar el gasto con ID " + id);
+        }
+    }
+
+    @Override
+    public List<Integer> saveAll(List<Expense> expenses) {
+        List<Integer> ids = new ArrayList<>(expenses.size());
+        lock.writeLock().lock();
+        try {
+            for (int from = 0; from < expenses.size(); from += BATCH_SIZE) {
+                List<Expense> chunk = expenses.subList(from, Math.min(from + BATCH_SIZE, expenses.size()));
+                int firstId = index.nextId();
+                writePuts(chunk, i -> firstId + i);
+                index.setNextId(firstId + chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    ids.add(firstId + i);
+                }
+            }
+            afterWrite(expenses.size());
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new PartialWriteException(ids.size(), expenses.size(), ids, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return ids;
+    }
+
+    @Override
+    public List<Integer> saveAllWithinMonthlyLimit(List<Expense> expenses, long monthlyLimitCents) {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Long> totals = new HashMap<>();
+            List<Integer> positions = new ArrayList<>(expenses.size());
+            List<Expense> accepted = new ArrayList<>(expenses.size());
+            for (int i = 0; i < expenses.size(); i++) {
+                Expense expense = expenses.get(i);
+                int epochDay = (int) expense.getExpenseDate().toEpochDay();
+                int yearMonth = MonthlyAggregates.yearMonth(expense.getExpenseDate());
+                long total = totals.computeIfAbsent(yearMonth, key -> monthOf(epochDay).totalCents())
+                        + expense.getAmountCents();
+                if (total <= monthlyLimitCents) {
+                    totals.put(yearMonth, total);
+                    positions.add(i);
+                    accepted.add(expense);
+                }
+            }
+
+            List<Integer> ids = new ArrayList<>(Collections.nCopies(expenses.size(), -1));
+            try {
+                List<Integer> savedIds = saveAll(accepted);
+                for (int i = 0; i < positions.size(); i++) {
+                    ids.set(positions.get(i), savedIds.get(i));
+                }
+                return ids;
+            } catch (PartialWriteException e) {
+                // Report the input up to the first accepted expense that was not saved.
+                int committed = e.getCommitted() < positions.size() ? positions.get(e.getCommitted()) : expenses.size();
+                for (int i = 0; i < e.getCommitted(); i++) {
+                    ids.set(positions.get(i), e.getIds().get(i));
+                }
+                throw new PartialWriteException(committed, expenses.size(), ids.subList(0, committed), e.getCause());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateAll(List<Expense> expenses) {
+        int updated = 0;
+        int from = 0;
+        lock.writeLock().lock();
+        try {
+            for (; from < expenses.size(); from += BATCH_SIZE) {
+                List<Expense> chunk = new ArrayList<>(BATCH_SIZE);
+                for (Expense expense : expenses.subList(from, Math.min(from + BATCH_SIZE, expenses.size()))) {
+                    if (expense.hasId() && index.contains(expense.id())) {
+                        chunk.add(expense);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    writePuts(chunk, i -> chunk.get(i).id());
+                    updated += chunk.size();
+                }
+            }
+            afterWrite(updated);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new PartialWriteException(Math.min(from, expenses.size()), expenses.size(), List.of(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return updated;
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        int deleted = 0;
+        int committed = 0;
+        lock.writeLock().lock();
+        try {
+            Iterator<Integer> it = ids.iterator();
+            while (it.hasNext()) {
+                List<Integer> chunk = new ArrayList<>(BATCH_SIZE);
+                int taken = 0;
+                for (; taken < BATCH_SIZE && it.hasNext(); taken++) {
+                    Integer id = it.next();
+                    if (id != null && index.contains(id)) {
+                        chunk.add(id);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    ByteBuffer buffer = ByteBuffer.allocate(RecordLog.deleteLength() * chunk.size());
+                    for (int id : chunk) {
+                        RecordLog.encodeDelete(buffer, id);
+                    }
+                    buffer.flip();
+                    log.append(buffer, syncWrites);
+                    for (int id : chunk) {
+                        unlink(id);
+                        index.remove(id);
+                    }
+                    deleted += chunk.size();
+                }
+                committed += taken;
+            }
+            afterWrite(deleted);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new PartialWriteException(committed, ids.size(), List.of(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return deleted;
+    }
+
+    /**
+     * Appends one PUT record per expense in a single write and points the index at them.
+     */
+    private void writePuts(List<Expense> chunk, IdForRow idForRow) throws IOException {
+        int[] lengths = new int[chunk.size()];
+        int total = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            lengths[i] = RecordLog.encodedLength(chunk.get(i));
+            total += lengths[i];
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (int i = 0; i < chunk.size(); i++) {
+            RecordLog.encodePut(buffer, idForRow.id(i), chunk.get(i));
+        }
+        buffer.flip();
+        long offset = log.append(buffer, syncWrites);
+
+        for (int i = 0; i < chunk.size(); i++) {
+            Expense expense = chunk.get(i);
+            int id = idForRow.id(i);
+            unlink(id);
+            int epochDay = (int) expense.getExpenseDate().toEpochDay();
+            index.put(id, offset, lengths[i], epochDay, expense.getCategory().ordinal(), expense.getAmountCents());
+            dates.add(SortedKeys.key(epochDay, id));
+            monthOf(epochDay).add(expense.getCategory().ordinal(), 1, expense.getAmountCents());
+            liveBytes += lengths[i];
+            offset += lengths[i];
+        }
+    }
+
+    /**
+     * Takes the current version of a row out of the in-memory indexes.
+     */
+    private void unlink(int id) {
+        if (!index.contains(id)) {
+            return;
+        }
+        int epochDay = index.epochDay(id);
+        dates.remove(SortedKeys.key(epochDay, id));
+        monthOf(epochDay).add(index.category(id), -1, -index.cents(id));
+        liveBytes -= index.length(id);
+    }
+
+    private void afterWrite(int writes) throws IOException {
+        writesSinceCheckpoint += writes;
+        if (writesSinceCheckpoint >= CHECKPOINT_INTERVAL) {
+            if (!syncWrites) {
+                log.force();
+            }
+            index.checkpoint(log.end());
+            writesSinceCheckpoint = 0;
+        }
+        long deadBytes = log.end() - liveBytes;
+        if (log.end() >= COMPACTION_MIN_BYTES && deadBytes > log.end() * COMPACTION_DEAD_RATIO) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the live records, in date order, into a new generation of files.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            long nextGeneration = generation + 1;
+            Files.deleteIfExists(logPath(nextGeneration));
+            Files.deleteIfExists(indexPath(nextGeneration));
+
+            RecordLog newLog = new RecordLog(logPath(nextGeneration));
+            OffsetIndex newIndex = new OffsetIndex(indexPath(nextGeneration));
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+            long position = 0;
+            for (int i = 0; i < dates.size(); i++) {
+                int id = SortedKeys.idOf(dates.get(i));
+                int length = index.length(id);
+                if (buffer.remaining() < length) {
+                    buffer.flip();
+                    newLog.append(buffer, false);
+                    buffer = ByteBuffer.allocate(Math.max(1 << 20, length));
+                }
+                RecordLog.Record record = log.read(index.offset(id), length);
+                RecordLog.encodePut(buffer, id, record.expense);
+                newIndex.put(id, position, length, index.epochDay(id), index.category(id), index.cents(id));
+                position += length;
+            }
+            buffer.flip();
+            newLog.append(buffer, false);
+            newLog.force();
+            newIndex.setNextId(index.nextId());
+            newIndex.checkpoint(newLog.end());
+
+            Path currentTmp = directory.resolve("CURRENT.tmp");
+            Files.writeString(currentTmp, Long.toString(nextGeneration), StandardCharsets.US_ASCII);
+            Files.move(currentTmp, directory.resolve("CURRENT"),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            log.close();
+            index.close();
+            Files.deleteIfExists(logPath(generation));
+            Files.deleteIfExists(indexPath(generation));
+            generation = nextGeneration;
+            log = newLog;
+            index = newIndex;
+            liveBytes = newLog.end();
+            writesSinceCheckpoint = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    //		Reads
+    //-----------------------------------------------------------------------
+    @Override
+    public Expense findById(int id) {
+        lock.readLock().lock();
+        try {
+            return read(id);
+        } catch (IOException e) {
+            failed("findById", e);
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Expense> findByIds(Collection<Integer> ids) {
+        List<Expense> expenses = new ArrayList<>(ids.size());
+        lock.readLock().lock();
+        try {
+            for (int id : ids) {
+                Expense expense = read(id);
+                if (expense != null) {
+                    expenses.add(expense);
+                }
+            }
+        } catch (IOException e) {
+            failed("findByIds", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return expenses;
+    }
+
+    private Expense read(int id) throws IOException {
+        if (!index.contains(id)) {
+            return null;
+        }
+        return log.read(index.offset(id), index.length(id)).expense;
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        return readRange("findAll", 0, Integer.MAX_VALUE, null);
+    }
+
+    @Override
+    public List<Expense> findByCategory(Expense.ExpenseCategory category) {
+        return readRange("findByCategory", 0, Integer.MAX_VALUE, category);
+    }
+
+    /**
+     * Reads the rows at sorted positions {@code [from, to)}, optionally only of one category.
+     *
+     * @param method Repository method reading, to report errors under
+     */
+    private List<Expense> readRange(String method, int from, int to, Expense.ExpenseCategory category) {
+        List<Expense> expenses = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int end = Math.min(to, dates.size());
+            for (int i = Math.max(0, from); i < end; i++) {
+                int id = SortedKeys.idOf(dates.get(i));
+                if (category == null || index.category(id) == category.ordinal()) {
+                    expenses.add(read(id));
+                }
+            }
+        } catch (IOException e) {
+            failed(method, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return expenses;
+    }
+
+    @Override
+    public long getMonthlyTotalCents(LocalDate month) {
+        lock.readLock().lock();
+        try {
+            MonthTotals totals = months.get(MonthlyAggregates.yearMonth(month));
+            return totals == null ? 0 : totals.totalCents();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Snapshots the ids in range under the lock, then reads each row on
+     * demand. Rows deleted after the snapshot are skipped. The columns
+     * argument is ignored; rows are always read whole.
+     */
+    @Override
+    public Stream<Expense> streamByDateRange(LocalDate from, LocalDate to, Set<ExpenseColumn> columns) {
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            int start = from == null ? 0 : dates.lowerBound(SortedKeys.key((int) from.toEpochDay(), 0));
+            int end = to == null ? dates.size() : dates.lowerBound(SortedKeys.key((int) to.toEpochDay(), 0));
+            ids = dates.ids(start, end);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return IntStream.of(ids)
+                .mapToObj(id -> {
+                    lock.readLock().lock();
+                    try {
+                        return read(id);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                })
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public void forEachByDateRange(LocalDate from, LocalDate to, Set<ExpenseColumn> columns, Consumer<Expense> action) {
+        try (Stream<Expense> expenses = streamByDateRange(from, to, columns)) {
+            expenses.forEach(action);
+        }
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return dates.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Expense> findPageAfter(LocalDate afterDate, int afterId, int limit) {
+        if (afterDate == null) {
+            return findPageAt(0, limit);
+        }
+        lock.readLock().lock();
+        try {
+            int start = dates.lowerBound(SortedKeys.key((int) afterDate.toEpochDay(), afterId) + 1);
+            return readRange("findPageAfter", start, start + limit, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Expense> findPageAt(long offset, int limit) {
+        int start = (int) Math.min(Integer.MAX_VALUE, offset);
+        return readRange("findPageAt", start, (int) Math.min(Integer.MAX_VALUE, (long) start + limit), null);
+    }
+
+    @Override
+    public long countBefore(LocalDate date, int id) {
+        lock.readLock().lock();
+        try {
+            return dates.lowerBound(SortedKeys.key((int) date.toEpochDay(), id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CategoryTotal summarize(LocalDate from, LocalDate to) {
+        CategoryTotal total = CategoryTotal.EMPTY;
+        for (CategoryTotal categoryTotal : totalsByCategory(from, to).values()) {
+            total = total.plus(categoryTotal);
+        }
+        return total;
+    }
+
+    @Override
+    public Map<Expense.ExpenseCategory, CategoryTotal> totalsByCategory(LocalDate from, LocalDate to) {
+        long[] counts = new long[CATEGORY_COUNT];
+        long[] cents = new long[CATEGORY_COUNT];
+        lock.readLock().lock();
+        try {
+            if (from.getDayOfMonth() == 1 && to.getDayOfMonth() == 1) {
+                for (LocalDate month = from; month.isBefore(to); month = month.plusMonths(1)) {
+                    MonthTotals totals = months.get(MonthlyAggregates.yearMonth(month));
+                    if (totals != null) {
+                        totals.addTo(counts, cents);
+                    }
+                }
+            } else {
+                int start = dates.lowerBound(SortedKeys.key((int) from.toEpochDay(), 0));
+                int end = dates.lowerBound(SortedKeys.key((int) to.toEpochDay(), 0));
+                for (int i = start; i < end; i++) {
+                    int id = SortedKeys.idOf(dates.get(i));
+                    counts[index.category(id)]++;
+                    cents[index.category(id)] += index.cents(id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<Expense.ExpenseCategory, CategoryTotal> totals = new EnumMap<>(Expense.ExpenseCategory.class);
+        Expense.ExpenseCategory[] categories = Expense.ExpenseCategory.values();
+        for (int i = 0; i < CATEGORY_COUNT; i++) {
+            if (counts[i] > 0) {
+                totals.put(categories[i], new CategoryTotal(counts[i], cents[i]));
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Logs an error the method handles without throwing. No decorator sees
+     * it, so it is counted here under the method's repository metric.
+     */
+    private static void failed(String method, IOException e) {
+        MetricsRegistry.global().operation("repository." + method).recordError();
+        e.printStackTrace();
+    }
+
+    private MonthTotals monthOf(int epochDay) {
+        return months.computeIfAbsent(MonthlyAggregates.yearMonth(LocalDate.ofEpochDay(epochDay)),
+                key -> new MonthTotals());
+    }
+
+    /**
+     * Writes a checkpoint so the next open has nothing to replay.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            log.force();
+            index.checkpoint(log.end());
+            log.close();
+            index.close();
+            unlockDirectory();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    //		Nested classes
+    //-----------------------------------------------------------------------
+    @FunctionalInterface
+    private interface IdForRow {
+        int id(int row);
+    }
+
+    private static final class MonthTotals {
+        private final long[] counts = new long[CATEGORY_COUNT];
+        private final long[] cents = new long[CATEGORY_COUNT];
+
+        void add(int category, long count, long amountCents) {
+            counts[category] += count;
+            cents[category] += amountCents;
+        }
+
+        long totalCents() {
+            long total = 0;
+            for (long amount : cents) {
+                total += amount;
+            }
+            return total;
+        }
+
+        void addTo(long[] totalCounts, long[] totalCents) {
+            for (int i = 0; i < CATEGORY_COUNT; i++) {
+                totalCounts[i] += counts[i];
+                totalCents[i] += cents[i];
+            }
+        }
+    }
+}
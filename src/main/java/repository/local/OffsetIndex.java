@@ -0,0 +1,179 @@
+package repository.local;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped table from expense id to the location of its latest record
+ * in the log, with the columns needed to sort and aggregate without reading
+ * the log.
+ * <p>
+ * Layout: a 64 byte header followed by one 32 byte slot per id:
+ * {@code [long offset+1][int length][int epochDay][int category][int unused][long cents]}.
+ * An offset of 0 marks an absent id. An index written in an older layout is
+ * discarded on open, and recovery rebuilds it from the log.
+ * <p>
+ * The header's checkpoint is the log position the slots are known to cover
+ * on disk. It is only advanced right after the mapping is forced, so recovery
+ * replays the log from there.
+ */
+class OffsetIndex implements AutoCloseable {
+    private static final int MAGIC = 0x47415354;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 32;
+    private static final int INITIAL_SLOTS = 4096;
+
+    private static final int MAGIC_AT = 0;
+    private static final int VERSION_AT = 4;
+    private static final int CHECKPOINT_AT = 8;
+    private static final int NEXT_ID_AT = 16;
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int capacity;
+
+    OffsetIndex(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = channel.size() < HEADER_BYTES || isOlderVersion();
+        if (fresh) {
+            channel.truncate(0);
+        }
+        long slots = fresh ? INITIAL_SLOTS : (channel.size() - HEADER_BYTES) / SLOT_BYTES;
+        remap((int) Math.max(INITIAL_SLOTS, slots));
+
+        if (fresh) {
+            map.putInt(MAGIC_AT, MAGIC);
+            map.putInt(VERSION_AT, VERSION);
+            map.putLong(CHECKPOINT_AT, 0);
+            map.putInt(NEXT_ID_AT, 1);
+            map.force();
+        } else if (map.getInt(MAGIC_AT) != MAGIC || map.getInt(VERSION_AT) != VERSION) {
+            throw new IOException("Índice de gastos con formato desconocido");
+        }
+    }
+
+    private boolean isOlderVersion() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(VERSION_AT + Integer.BYTES);
+        channel.read(header, 0);
+        return header.getInt(MAGIC_AT) == MAGIC && header.getInt(VERSION_AT) < VERSION;
+    }
+
+    /**
+     * Maps the file with room for {@code slots}. Mapping is an interruptible
+     * channel call; if an interrupt closed the channel, it is reopened and
+     * the mapping retried, keeping the caller's interrupt status.
+     */
+    private void remap(int slots) throws IOException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) slots * SLOT_BYTES);
+                    capacity = slots;
+                    return;
+                } catch (ClosedByInterruptException e) {
+                    interrupted |= Thread.interrupted();
+                    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void ensureCapacity(int id) throws IOException {
+        if (id >= capacity) {
+            int slots = capacity;
+            while (slots <= id) {
+                slots *= 2;
+            }
+            map.force();
+            remap(slots);
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long checkpoint() {
+        return map.getLong(CHECKPOINT_AT);
+    }
+
+    int nextId() {
+        return map.getInt(NEXT_ID_AT);
+    }
+
+    void setNextId(int nextId) {
+        map.putInt(NEXT_ID_AT, nextId);
+    }
+
+    /**
+     * Flushes the slots and then records that they cover the log up to {@code logEnd}.
+     */
+    void checkpoint(long logEnd) {
+        map.force();
+        map.putLong(CHECKPOINT_AT, logEnd);
+        map.force();
+    }
+
+    private int slot(int id) {
+        return HEADER_BYTES + id * SLOT_BYTES;
+    }
+
+    boolean contains(int id) {
+        return id > 0 && id < capacity && map.getLong(slot(id)) != 0;
+    }
+
+    long offset(int id) {
+        return map.getLong(slot(id)) - 1;
+    }
+
+    int length(int id) {
+        return map.getInt(slot(id) + 8);
+    }
+
+    int epochDay(int id) {
+        return map.getInt(slot(id) + 12);
+    }
+
+    int category(int id) {
+        return map.getInt(slot(id) + 16);
+    }
+
+    long cents(int id) {
+        return map.getLong(slot(id) + 24);
+    }
+
+    void put(int id, long offset, int length, int epochDay, int category, long cents) throws IOException {
+        ensureCapacity(id);
+        int at = slot(id);
+        map.putInt(at + 8, length);
+        map.putInt(at + 12, epochDay);
+        map.putInt(at + 16, category);
+        map.putLong(at + 24, cents);
+        map.putLong(at, offset + 1);
+    }
+
+    void remove(int id) {
+        if (id > 0 && id < capacity) {
+            map.putLong(slot(id), 0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+}
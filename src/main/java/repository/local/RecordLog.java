@@ -0,0 +1,324 @@
+package repository.local;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+import model.Expense;
+
+/**
+ * Append-only file of expense records.
+ * <p>
+ * The file starts with {@code [int magic][int version]}; a log of another
+ * version is refused on open rather than misread. Each record after it is
+ * {@code [int length][payload][int crc32]}. The payload is
+ * {@code [byte type][int id]}, and a PUT also has
+ * {@code [int epochDay][byte category][long cents][short descLength][desc]}.
+ * Records are never rewritten. A torn record at the end, left by a crash, is
+ * detected by its length or checksum and cut off on open.
+ * <p>
+ * An interrupt during a channel call closes the channel for every thread.
+ * Calls go through {@link #io}, which reopens it and retries from the same
+ * buffer position, so an interrupted caller cannot leave the log unusable.
+ */
+class RecordLog implements AutoCloseable {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    private static final int MAGIC = 0x47414c47;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+
+    private static final int FRAME_OVERHEAD = Integer.BYTES * 2;
+    private static final int MAX_DESCRIPTION_BYTES = Short.MAX_VALUE;
+
+    private final Path path;
+    private volatile FileChannel channel;
+    private volatile boolean closed;
+    private long end;
+
+    RecordLog(Path path) throws IOException {
+        this.path = path;
+        this.channel = openChannel(path);
+        this.end = channel.size();
+        try {
+            if (end < HEADER_BYTES) {
+                // New, or torn while its header was written: no record can follow.
+                channel.truncate(0);
+                end = 0;
+                append(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip(), true);
+            } else {
+                checkHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void checkHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (channel.read(header, 0) < HEADER_BYTES || header.getInt(0) != MAGIC) {
+            throw new IOException("El registro de gastos " + path + " no tiene un formato conocido");
+        }
+        int version = header.getInt(Integer.BYTES);
+        if (version != VERSION) {
+            throw new IOException("El registro de gastos " + path + " tiene la versión " + version
+                    + " y se esperaba la " + VERSION);
+        }
+    }
+
+    private static FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Runs a channel call, reopening the channel and retrying if an interrupt
+     * of this or another thread closed it. The caller's interrupt status is
+     * restored afterwards.
+     */
+    private <T> T io(ChannelCall<T> call) throws IOException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                FileChannel current = channel;
+                try {
+                    return call.apply(current);
+                } catch (ClosedChannelException e) {
+                    if (closed) {
+                        throw e;
+                    }
+                    interrupted |= Thread.interrupted();
+                    reopen(current);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized void reopen(FileChannel closedChannel) throws IOException {
+        if (channel == closedChannel && !closed) {
+            channel = openChannel(path);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long end() {
+        return end;
+    }
+
+    /**
+     * Writes already encoded records at the end of the log.
+     *
+     * @return Offset of the first written byte
+     */
+    long append(ByteBuffer records, boolean sync) throws IOException {
+        long start = end;
+        long position = start;
+        while (records.hasRemaining()) {
+            long at = position;
+            int mark = records.position();
+            // A retried write rewrites the same bytes at the same offset.
+            position += io(current -> current.write(records.position(mark), at));
+        }
+        if (sync) {
+            force();
+        }
+        end = position;
+        return start;
+    }
+
+    Record read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            long at = position;
+            int mark = buffer.position();
+            int read = io(current -> current.read(buffer.position(mark), at));
+            if (read < 0) {
+                throw new IOException("Registro truncado en " + offset);
+            }
+            position += read;
+        }
+        buffer.flip();
+        return decode(buffer, offset);
+    }
+
+    /**
+     * Reads every intact record from {@code from} onward and cuts the log at
+     * the first damaged one.
+     *
+     * @return True if a damaged tail was cut off
+     */
+    boolean replay(long from, RecordVisitor visitor) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        long position = Math.max(from, HEADER_BYTES);
+        long size = io(FileChannel::size);
+        while (position + FRAME_OVERHEAD <= size) {
+            long at = position;
+            io(current -> current.read(header.clear(), at));
+            header.flip();
+            int payloadLength = header.getInt();
+            int length = payloadLength + FRAME_OVERHEAD;
+            if (payloadLength <= 0 || position + length > size) {
+                break;
+            }
+            Record record;
+            try {
+                record = read(position, length);
+            } catch (IOException | RuntimeException e) {
+                break;
+            }
+            visitor.visit(record);
+            position += length;
+        }
+        end = position;
+        if (position < size) {
+            long cut = position;
+            io(current -> current.truncate(cut));
+            io(current -> {
+                current.force(true);
+                return null;
+            });
+            return true;
+        }
+        return false;
+    }
+
+    void force() throws IOException {
+        io(current -> {
+            current.force(false);
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    //-----------------------------------------------------------------------
+    //		Encoding
+    //-----------------------------------------------------------------------
+    static int encodedLength(Expense expense) {
+        return FRAME_OVERHEAD + 1 + Integer.BYTES + Integer.BYTES + 1 + Long.BYTES + Short.BYTES
+                + descriptionBytes(expense.getDescription()).length;
+    }
+
+    static int deleteLength() {
+        return FRAME_OVERHEAD + 1 + Integer.BYTES;
+    }
+
+    static void encodePut(ByteBuffer buffer, int id, Expense expense) {
+        byte[] description = descriptionBytes(expense.getDescription());
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.put(PUT);
+        buffer.putInt(id);
+        buffer.putInt((int) expense.getExpenseDate().toEpochDay());
+        buffer.put((byte) expense.getCategory().ordinal());
+        buffer.putLong(expense.getAmountCents());
+        buffer.putShort((short) description.length);
+        buffer.put(description);
+        seal(buffer, start);
+    }
+
+    static void encodeDelete(ByteBuffer buffer, int id) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.put(DELETE);
+        buffer.putInt(id);
+        seal(buffer, start);
+    }
+
+    private static void seal(ByteBuffer buffer, int start) {
+        int payloadLength = buffer.position() - start - Integer.BYTES;
+        buffer.putInt(start, payloadLength);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(start + Integer.BYTES).limit(buffer.position()));
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private static byte[] descriptionBytes(String description) {
+        byte[] bytes = description == null ? new byte[0] : description.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_DESCRIPTION_BYTES) {
+            throw new IllegalArgumentException("La descripción es demasiado larga");
+        }
+        return bytes;
+    }
+
+    private static Record decode(ByteBuffer buffer, long offset) throws IOException {
+        int length = buffer.remaining();
+        int payloadLength = buffer.getInt();
+        if (payloadLength != length - FRAME_OVERHEAD) {
+            throw new IOException("Longitud inválida en " + offset);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit(Integer.BYTES + payloadLength));
+        if ((int) crc.getValue() != buffer.getInt(Integer.BYTES + payloadLength)) {
+            throw new IOException("Checksum inválido en " + offset);
+        }
+
+        byte type = buffer.get();
+        int id = buffer.getInt();
+        if (type == DELETE) {
+            return new Record(offset, length, type, id, null);
+        }
+        if (type != PUT) {
+            throw new IOException("Tipo de registro desconocido en " + offset);
+        }
+        LocalDate date = LocalDate.ofEpochDay(buffer.getInt());
+        Expense.ExpenseCategory category = Expense.ExpenseCategory.values()[buffer.get()];
+        long amountCents = buffer.getLong();
+        byte[] description = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(description);
+
+        Expense expense = Expense.of(id, new String(description, StandardCharsets.UTF_8), category,
+                amountCents, date);
+        return new Record(offset, length, type, id, expense);
+    }
+
+    //-----------------------------------------------------------------------
+    //		Nested classes
+    //-----------------------------------------------------------------------
+    static final class Record {
+        final long offset;
+        final int length;
+        final byte type;
+        final int id;
+        /**
+         * Stored row for a PUT, null for a DELETE.
+         */
+        final Expense expense;
+
+        Record(long offset, int length, byte type, int id, Expense expense) {
+            this.offset = offset;
+            this.length = length;
+            this.type = type;
+            this.id = id;
+            this.expense = expense;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChannelCall<T> {
+        T apply(FileChannel channel) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(Record record) throws IOException;
+    }
+}
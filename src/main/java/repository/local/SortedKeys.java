@@ -0,0 +1,86 @@
+package repository.local;
+
+import java.util.Arrays;
+
+/**
+ * Sorted array of primitive long keys with binary search, so ranks and range
+ * bounds are O(log n). Inserts and removals shift the tail of the array.
+ */
+class SortedKeys {
+    private long[] keys;
+    private int size;
+
+    SortedKeys(long[] keys, int size) {
+        this.keys = keys;
+        this.size = size;
+        Arrays.sort(this.keys, 0, size);
+    }
+
+    /**
+     * Key ordering rows by date and then id.
+     */
+    static long key(int epochDay, int id) {
+        return ((long) epochDay << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    static int idOf(long key) {
+        return (int) key;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        return keys[index];
+    }
+
+    /**
+     * @return Index of the first key greater than or equal to {@code key}
+     */
+    int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    void add(long key) {
+        int at = lowerBound(key);
+        if (at < size && keys[at] == key) {
+            return;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(16, size * 2));
+        }
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        keys[at] = key;
+        size++;
+    }
+
+    void remove(long key) {
+        int at = lowerBound(key);
+        if (at < size && keys[at] == key) {
+            System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+            size--;
+        }
+    }
+
+    /**
+     * @return Ids of the keys in {@code [from, to)} index positions
+     */
+    int[] ids(int from, int to) {
+        int[] ids = new int[Math.max(0, to - from)];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = idOf(keys[i]);
+        }
+        return ids;
+    }
+}
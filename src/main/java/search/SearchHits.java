@@ -0,0 +1,49 @@
+package search;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Ids found by a search, ordered by date and id as the expense table shows
+ * them, with the date of each so a row can be located by binary search.
+ */
+public final class SearchHits {
+    public static final SearchHits EMPTY = new SearchHits(new long[0]);
+
+    /** Epoch day in the high 32 bits and id in the low 32, ascending. */
+    private final long[] keys;
+    private final int[] ids;
+
+    SearchHits(long[] keys) {
+        this.keys = keys;
+        this.ids = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ids[i] = (int) keys[i];
+        }
+    }
+
+    static long key(int epochDay, int id) {
+        return (long) epochDay << 32 | (id & 0xFFFFFFFFL);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return The ids in order; the array is shared, do not modify it
+     */
+    public int[] ids() {
+        return ids;
+    }
+
+    /**
+     * @return Position of the first hit that sorts after the given date and
+     * id, whether or not that row is itself a hit
+     */
+    public int positionAfter(LocalDate date, int id) {
+        long key = key(date == null ? 0 : (int) date.toEpochDay(), id);
+        int position = Arrays.binarySearch(keys, key);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+}
@@ -0,0 +1,341 @@
+package search;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import model.Expense;
+
+/**
+ * In-memory inverted index over expense descriptions.
+ * <p>
+ * Descriptions are split into tokens that are lowercased and stripped of
+ * accents, so "Café" and "cafe" match. Tokens are kept sorted, and every
+ * query word matches the tokens it is a prefix of, which makes the index
+ * usable while the user is still typing. Each token maps to the sorted ids
+ * of the expenses that contain it.
+ * <p>
+ * The index starts empty and ignores changes until it is {@link #load
+ * loaded}; from then on it is kept current with {@link #put} and
+ * {@link #remove}. Reads run concurrently; writes are exclusive.
+ */
+public class SearchIndex {
+
+    //-----------------------------------------------------------------------
+    //		Attributes
+    //-----------------------------------------------------------------------
+    private static final String[] NO_TOKENS = new String[0];
+    private static final Pattern MARKS = Pattern.compile("\\p{M}");
+    private static final char[] FOLDED = foldingTable();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private boolean loaded;
+
+
+    //-----------------------------------------------------------------------
+    //		Methods
+    //-----------------------------------------------------------------------
+    /**
+     * Splits text into normalized tokens: letters and digits, lowercase and
+     * without accents.
+     */
+    public static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return NO_TOKENS;
+        }
+        String normalized = fold(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean word = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                String token = normalized.substring(start, i);
+                if (!tokens.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens.toArray(NO_TOKENS);
+    }
+
+    /**
+     * Lowercases and strips accents, through a table for Latin letters and
+     * through full decomposition for anything else.
+     */
+    private static String fold(String text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            char c = text.charAt(i);
+            if (c >= FOLDED.length) {
+                return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                        .toLowerCase(Locale.ROOT);
+            }
+            chars[i] = FOLDED[c];
+        }
+        return new String(chars);
+    }
+
+    private static char[] foldingTable() {
+        char[] table = new char[0x250];
+        for (char c = 0; c < table.length; c++) {
+            String folded = MARKS.matcher(Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD)).replaceAll("")
+                    .toLowerCase(Locale.ROOT);
+            table[c] = folded.length() == 1 ? folded.charAt(0) : c;
+        }
+        return table;
+    }
+
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fills the index from a scan of every expense. Changes made while the
+     * scan runs wait for it, and are applied on top afterwards.
+     *
+     * @param scan Passes each stored expense, with at least its id,
+     * description and date, to the given consumer
+     */
+    public void load(Consumer<Consumer<Expense>> scan) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            // Rows come in date order; append their ids and sort each list once.
+            scan.accept(expense -> {
+                String[] tokens = tokenize(expense.getDescription());
+                entries.put(expense.id(), new Entry(tokens, epochDay(expense)));
+                for (String token : tokens) {
+                    postings.computeIfAbsent(token, key -> new Postings()).append(expense.id());
+                }
+            });
+            for (Postings ids : postings.values()) {
+                ids.sort();
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a new or changed expense, replacing what was indexed for its id.
+     */
+    public void put(Expense expense) {
+        if (!expense.hasId()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                index(expense);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-indexes an updated expense, if its id is indexed.
+     */
+    public void replace(Expense expense) {
+        if (!expense.hasId()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded && entries.containsKey(expense.id())) {
+                index(expense);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                unindex(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the expenses whose description has, for every word of the query,
+     * a token starting with it.
+     *
+     * @return Hits ordered by date and id, as the expense table shows them;
+     * empty for a query without words
+     */
+    public SearchHits search(String query) {
+        String[] words = tokenize(query);
+        if (words.length == 0) {
+            return SearchHits.EMPTY;
+        }
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (String word : words) {
+                BitSet wordMatches = new BitSet();
+                for (Postings ids : postings.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                    ids.addTo(wordMatches);
+                }
+                if (matches == null) {
+                    matches = wordMatches;
+                } else {
+                    matches.and(wordMatches);
+                }
+                if (matches.isEmpty()) {
+                    return SearchHits.EMPTY;
+                }
+            }
+            return sortByDate(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of expenses indexed
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private SearchHits sortByDate(BitSet matches) {
+        long[] keys = new long[matches.cardinality()];
+        int count = 0;
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            keys[count++] = SearchHits.key(entries.get(id).epochDay, id);
+        }
+        Arrays.sort(keys);
+        return new SearchHits(keys);
+    }
+
+    private void index(Expense expense) {
+        int id = expense.id();
+        unindex(id);
+        String[] tokens = tokenize(expense.getDescription());
+        entries.put(id, new Entry(tokens, epochDay(expense)));
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, key -> new Postings()).add(id);
+        }
+    }
+
+    private static int epochDay(Expense expense) {
+        LocalDate date = expense.getExpenseDate();
+        return date == null ? 0 : (int) date.toEpochDay();
+    }
+
+    private void unindex(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (String token : entry.tokens) {
+            Postings ids = postings.get(token);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+
+
+    //-----------------------------------------------------------------------
+    //		Nested classes
+    //-----------------------------------------------------------------------
+    private static final class Entry {
+        final String[] tokens;
+        final int epochDay;
+
+        Entry(String[] tokens, int epochDay) {
+            this.tokens = tokens;
+            this.epochDay = epochDay;
+        }
+    }
+
+    /**
+     * Sorted ids of the expenses that contain a token. New ids are usually
+     * the highest, so adding is an append.
+     */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] < id) {
+                append(id);
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            append(0);
+            System.arraycopy(ids, at, ids, at + 1, size - at - 1);
+            ids[at] = id;
+        }
+
+        void sort() {
+            Arrays.sort(ids, 0, size);
+        }
+
+        void append(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void addTo(BitSet set) {
+            for (int i = 0; i < size; i++) {
+                set.set(ids[i]);
+            }
+        }
+    }
+}
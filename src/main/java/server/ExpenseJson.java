@@ -0,0 +1,132 @@
+package server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import model.Expense;
+import service.ExpenseService;
+
+/**
+ * Converts between expenses and their JSON form:
+ * {@code {"id": 7, "descripcion": "Pan", "categoria": "ALIMENTACION", "monto": 12.50, "fecha": "2024-10-01"}}.
+ * Amounts are written as decimal numbers with two places and read exactly.
+ */
+final class ExpenseJson {
+
+    private ExpenseJson() {
+    }
+
+    static JsonObject toJson(Expense expense) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", expense.getId());
+        json.addProperty("descripcion", expense.getDescription());
+        json.addProperty("categoria", expense.getCategory().name());
+        json.addProperty("monto", BigDecimal.valueOf(expense.getAmountCents(), 2));
+        json.addProperty("fecha", expense.getExpenseDate().toString());
+        return json;
+    }
+
+    static JsonArray toJson(List<Expense> expenses) {
+        JsonArray array = new JsonArray(expenses.size());
+        for (Expense expense : expenses) {
+            array.add(toJson(expense));
+        }
+        return array;
+    }
+
+    static JsonObject toJson(YearMonth month, ExpenseService.ExpenseSummary summary) {
+        JsonArray categories = new JsonArray();
+        for (Map.Entry<Expense.ExpenseCategory, Long> entry : summary.getCategoryCents().entrySet()) {
+            JsonObject category = new JsonObject();
+            category.addProperty("categoria", entry.getKey().name());
+            category.addProperty("cantidad", summary.getCategoryCounts().getOrDefault(entry.getKey(), 0L));
+            category.addProperty("monto", BigDecimal.valueOf(entry.getValue(), 2));
+            categories.add(category);
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("mes", month.toString());
+        json.addProperty("total", BigDecimal.valueOf(summary.getTotalCents(), 2));
+        json.add("categorias", categories);
+        return json;
+    }
+
+    /**
+     * Reads an expense from a request body. Every field but the id is required.
+     *
+     * @param id Id taken from the path, or null for a new expense
+     * @throws IllegalArgumentException If the body is not a valid expense
+     */
+    static Expense fromJson(byte[] body, Integer id) {
+        JsonObject json;
+        try {
+            JsonElement parsed = JsonParser.parseString(new String(body, StandardCharsets.UTF_8));
+            if (!parsed.isJsonObject()) {
+                throw new IllegalArgumentException("Se esperaba un objeto JSON");
+            }
+            json = parsed.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("JSON no válido: " + e.getMessage());
+        }
+
+        String description = text(json, "descripcion");
+        if (description.isBlank()) {
+            throw new IllegalArgumentException("La descripción no puede estar vacía");
+        }
+        Expense.ExpenseCategory category;
+        try {
+            category = Expense.ExpenseCategory.valueOf(text(json, "categoria"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Categoría desconocida: " + text(json, "categoria"));
+        }
+        LocalDate date;
+        try {
+            date = LocalDate.parse(text(json, "fecha"));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("La fecha debe tener el formato AAAA-MM-DD");
+        }
+
+        return new Expense.Builder()
+                .id(id)
+                .description(description)
+                .category(category)
+                .amountCents(cents(field(json, "monto")))
+                .expenseDate(date)
+                .build();
+    }
+
+    /**
+     * @throws IllegalArgumentException If the amount is not a number with at most two decimals
+     */
+    private static long cents(JsonElement amount) {
+        try {
+            return amount.getAsBigDecimal().movePointRight(2).longValueExact();
+        } catch (ArithmeticException | NumberFormatException | UnsupportedOperationException | IllegalStateException e) {
+            throw new IllegalArgumentException("El monto debe ser un número con hasta dos decimales");
+        }
+    }
+
+    private static String text(JsonObject json, String name) {
+        JsonElement value = field(json, name);
+        if (!value.isJsonPrimitive()) {
+            throw new IllegalArgumentException("El campo '" + name + "' debe ser un texto");
+        }
+        return value.getAsString();
+    }
+
+    private static JsonElement field(JsonObject json, String name) {
+        JsonElement value = json.get(name);
+        if (value == null || value.isJsonNull()) {
+            throw new IllegalArgumentException("Falta el campo '" + name + "'");
+        }
+        return value;
+    }
+}
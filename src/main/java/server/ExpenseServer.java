@@ -0,0 +1,372 @@
+package server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import metrics.HttpRequestEvent;
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+import model.Expense;
+import model.ExpenseNotFoundException;
+import model.ExpenseRejectedException;
+import service.ExpenseDelta;
+import service.ExpenseService;
+
+/**
+ * Serves an {@link ExpenseService} as JSON over HTTP, handling each request
+ * on its own virtual thread.
+ * <ul>
+ * <li>{@code GET /gastos?limite=50&despues=2024-10-01,7}: a page in date/id
+ * order; {@code siguiente} is the {@code despues} of the next page, or null
+ * on the last one</li>
+ * <li>{@code POST /gastos}, {@code GET|PUT|DELETE /gastos/{id}}</li>
+ * <li>{@code GET /resumen?mes=2024-10}: counts and amounts per category</li>
+ * <li>{@code GET /metricas}: the metrics registry as text</li>
+ * </ul>
+ * Every request is timed under {@code http.<method> <route>}, e.g.
+ * {@code http.GET /gastos/{id}}. Responses have a known length, so clients
+ * can keep their connections open.
+ * <p>
+ * Database work blocks in the connection pool rather than in the server.
+ * The MySQL driver holds monitors during calls, which pin the carrier
+ * thread, so the pool size also bounds how many carriers can be pinned.
+ */
+public class ExpenseServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 8080;
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int BACKLOG = 4096;
+    private static final int STOP_DELAY_SECONDS = 2;
+
+    /**
+     * The JDK server closes keep-alive connections beyond this many idle
+     * ones; its default of 200 is low for thousands of clients.
+     */
+    private static final String MAX_IDLE_CONNECTIONS_PROPERTY = "sun.net.httpserver.maxIdleConnections";
+    private static final String MAX_IDLE_CONNECTIONS = "10000";
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String TEXT = "text/plain; charset=utf-8";
+
+    private final ExpenseService service;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param port Port to listen on, or 0 for any free port
+     */
+    public ExpenseServer(ExpenseService service, int port) throws IOException {
+        System.getProperties().putIfAbsent(MAX_IDLE_CONNECTIONS_PROPERTY, MAX_IDLE_CONNECTIONS);
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/gastos", exchange -> serve(exchange, this::expenses));
+        server.createContext("/resumen", exchange -> serve(exchange, this::summary));
+        server.createContext("/metricas", exchange -> serve(exchange, this::metrics));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting connections and waits briefly for requests in flight.
+     */
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.close();
+    }
+
+    //-----------------------------------------------------------------------
+    //		Endpoints
+    //-----------------------------------------------------------------------
+    private Response expenses(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        Integer id = idOf(exchange);
+        if (id == null) {
+            switch (method) {
+                case "GET":
+                    return list(exchange);
+                case "POST":
+                    return register(exchange);
+                default:
+                    throw notAllowed(exchange, "GET, POST");
+            }
+        }
+        switch (method) {
+            case "GET":
+                return Response.json(200, ExpenseJson.toJson(findExisting(id)));
+            case "PUT":
+                findExisting(id);
+                ExpenseDelta updated = service.updateExpense(ExpenseJson.fromJson(readBody(exchange), id));
+                return Response.json(200, ExpenseJson.toJson(updated.getAfter()));
+            case "DELETE":
+                findExisting(id);
+                service.deleteExpense(id);
+                return Response.empty();
+            default:
+                throw notAllowed(exchange, "GET, PUT, DELETE");
+        }
+    }
+
+    private Response list(HttpExchange exchange) {
+        Map<String, String> query = query(exchange);
+        int limit = intParameter(query, "limite", DEFAULT_PAGE_SIZE);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+        Expense after = query.containsKey("despues") ? cursor(query.get("despues")) : null;
+
+        List<Expense> page = service.listExpensePageAfter(after, limit);
+        JsonObject json = new JsonObject();
+        json.add("gastos", ExpenseJson.toJson(page));
+        if (page.size() == limit) {
+            Expense last = page.get(page.size() - 1);
+            json.addProperty("siguiente", last.getExpenseDate() + "," + last.id());
+        } else {
+            json.add("siguiente", JsonNull.INSTANCE);
+        }
+        return Response.json(200, json);
+    }
+
+    private Response register(HttpExchange exchange) throws IOException {
+        ExpenseDelta added = service.registerExpense(ExpenseJson.fromJson(readBody(exchange), null));
+        Expense saved = added.getAfter();
+        exchange.getResponseHeaders().set("Location", "/gastos/" + saved.getId());
+        return Response.json(201, ExpenseJson.toJson(saved));
+    }
+
+    private Response summary(HttpExchange exchange) {
+        requireGet(exchange);
+        String month = query(exchange).get("mes");
+        YearMonth yearMonth;
+        try {
+            yearMonth = month == null ? YearMonth.now() : YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("El mes debe tener el formato AAAA-MM");
+        }
+        return Response.json(200, ExpenseJson.toJson(yearMonth, service.getExpenseSummary(yearMonth.atDay(1))));
+    }
+
+    private Response metrics(HttpExchange exchange) {
+        requireGet(exchange);
+        return new Response(200, TEXT, MetricsRegistry.global().dump().getBytes(StandardCharsets.UTF_8));
+    }
+
+    //-----------------------------------------------------------------------
+    //		Request handling
+    //-----------------------------------------------------------------------
+    /**
+     * Runs an endpoint, maps its failures to a status and writes the response.
+     * Invalid input is a 400, a missing expense a 404 and an operation refused
+     * by a rule, such as one over the monthly limit, a 409. Any other
+     * failure, such as the storage being unavailable, is a 5xx.
+     */
+    private void serve(HttpExchange exchange, Endpoint endpoint) {
+        long start = System.nanoTime();
+        HttpRequestEvent event = new HttpRequestEvent();
+        event.begin();
+
+        Response response;
+        try {
+            response = endpoint.handle(exchange);
+        } catch (RequestException e) {
+            response = Response.error(e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (ExpenseNotFoundException e) {
+            response = Response.error(404, e.getMessage());
+        } catch (ExpenseRejectedException e) {
+            response = Response.error(409, e.getMessage());
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
+            response = Response.error(503, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            response = Response.error(500, "Error inesperado: " + e.getMessage());
+        }
+
+        int status = response.status;
+        try {
+            exchange.getResponseHeaders().set("Content-Type", response.contentType);
+            exchange.sendResponseHeaders(status, response.body.length == 0 ? -1 : response.body.length);
+            if (response.body.length > 0) {
+                exchange.getResponseBody().write(response.body);
+            }
+        } catch (IOException e) {
+            // The client closed the connection; nothing left to answer.
+            status = 499;
+        } finally {
+            exchange.close();
+        }
+
+        String route = exchange.getRequestMethod() + " " + routeOf(exchange);
+        OperationMetrics metrics = MetricsRegistry.global().operation("http." + route);
+        metrics.record(System.nanoTime() - start, 0);
+        if (status >= 400) {
+            metrics.recordError();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.route = route;
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return The path with any id replaced by {@code {id}}
+     */
+    private static String routeOf(HttpExchange exchange) {
+        String context = exchange.getHttpContext().getPath();
+        return exchange.getRequestURI().getPath().equals(context) ? context : context + "/{id}";
+    }
+
+    /**
+     * @return The id after the context path, or null for the context itself
+     */
+    private static Integer idOf(HttpExchange exchange) {
+        String context = exchange.getHttpContext().getPath();
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals(context)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(path.substring(context.length() + 1));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new RequestException(404, "No existe el recurso " + path);
+        }
+    }
+
+    private Expense findExisting(int id) {
+        Expense expense = service.findExpense(id);
+        if (expense == null) {
+            throw new RequestException(404, "No existe el gasto con ID " + id);
+        }
+        return expense;
+    }
+
+    /**
+     * @param value {@code <fecha>,<id>} of the last expense of the previous page
+     */
+    private static Expense cursor(String value) {
+        int comma = value.indexOf(',');
+        try {
+            return Expense.of(Integer.parseInt(value.substring(comma + 1)), null, null, 0,
+                    LocalDate.parse(value.substring(0, Math.max(comma, 0))));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("El cursor debe tener el formato AAAA-MM-DD,id");
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            throw new RequestException(413, "El cuerpo de la petición supera " + MAX_BODY_BYTES + " bytes");
+        }
+        return body;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El parámetro '" + name + "' debe ser un número entero");
+        }
+    }
+
+    private static void requireGet(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            throw notAllowed(exchange, "GET");
+        }
+    }
+
+    private static RequestException notAllowed(HttpExchange exchange, String allowed) {
+        exchange.getResponseHeaders().set("Allow", allowed);
+        return new RequestException(405, "Método no permitido: " + exchange.getRequestMethod());
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+
+        Response(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        static Response json(int status, JsonElement json) {
+            return new Response(status, JSON, json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Response error(int status, String message) {
+            JsonObject json = new JsonObject();
+            json.addProperty("error", message);
+            return json(status, json);
+        }
+
+        static Response empty() {
+            return new Response(204, JSON, new byte[0]);
+        }
+    }
+
+    /**
+     * A failure that maps to a specific status.
+     */
+    private static final class RequestException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package service;
+
+import model.Expense;
+
+/**
+ * Change produced by a single mutation, with enough detail for views to
+ * patch their state instead of reloading it.
+ * <p>
+ * Positions are row indexes in the date/id ordering used by the expense
+ * table: {@code oldPosition} before the mutation, {@code newPosition} after
+ * it, or -1 when the row does not exist on that side.
+ */
+public class ExpenseDelta {
+
+    public enum Type {
+        ADDED, UPDATED, REMOVED
+    }
+
+    private final Type type;
+    private final Expense before;
+    private final Expense after;
+    private final long oldPosition;
+    private final long newPosition;
+
+    private ExpenseDelta(Type type, Expense before, Expense after, long oldPosition, long newPosition) {
+        this.type = type;
+        this.before = before;
+        this.after = after;
+        this.oldPosition = oldPosition;
+        this.newPosition = newPosition;
+    }
+
+    public static ExpenseDelta added(Expense after, long newPosition) {
+        return new ExpenseDelta(Type.ADDED, null, after, -1, newPosition);
+    }
+
+    public static ExpenseDelta updated(Expense before, Expense after, long oldPosition, long newPosition) {
+        return new ExpenseDelta(Type.UPDATED, before, after, oldPosition, newPosition);
+    }
+
+    public static ExpenseDelta removed(Expense before, long oldPosition) {
+        return new ExpenseDelta(Type.REMOVED, before, null, oldPosition, -1);
+    }
+
+    public Type getType() { return type; }
+
+    /**
+     * @return Row before the mutation, or null for {@link Type#ADDED}
+     */
+    public Expense getBefore() { return before; }
+
+    /**
+     * @return Row after the mutation, or null for {@link Type#REMOVED}
+     */
+    public Expense getAfter() { return after; }
+
+    public long getOldPosition() { return oldPosition; }
+    public long getNewPosition() { return newPosition; }
+
+    @Override
+    public String toString() {
+        return "ExpenseDelta{"
+                + "type=" + type
+                + ", before=" + before
+                + ", after=" + after
+                + ", oldPosition=" + oldPosition
+                + ", newPosition=" + newPosition
+                + '}';
+    }
+}
@@ -1,34 +1,80 @@
 
 package service;
 
+import analytics.ColumnarExpenseStore;
+import analytics.ExpenseAnalytics;
+import analytics.ExpenseDashboard;
+import export.ExpenseExporter;
+import importer.CsvExpenseImporter;
+import importer.ImportReport;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import model.CategoryTotal;
 import model.Expense;
+import model.ExpenseNotFoundException;
+import model.ExpenseRejectedException;
+import repository.ExpenseColumn;
 import repository.ExpenseRepository;
-import repository.ExpenseRepositoryImpl;
+import repository.ExpenseRepositories;
+import repository.IndexingExpenseRepository;
+import search.SearchHits;
 
 public class ExpenseService {
-    private static final double MONTHLY_EXPENSE_LIMIT = 5000.0;
+    private static final long MONTHLY_EXPENSE_LIMIT_CENTS = 500_000;
+
+    /**
+     * Shared by every service in the process; the database row lock taken by
+     * the repository covers writers in other processes.
+     */
+    private static final MonthLocks MONTH_LOCKS = new MonthLocks(64);
+
     private ExpenseRepository repository;
+    private IndexingExpenseRepository searchable;
 
     public ExpenseService() {
-        this.repository = new ExpenseRepositoryImpl();
+        this(ExpenseRepositories.create());
+    }
+
+    /**
+     * Writes made through this service, including imports, keep its search
+     * index current.
+     */
+    public ExpenseService(ExpenseRepository repository) {
+        this.searchable = new IndexingExpenseRepository(repository);
+        this.repository = searchable;
     }
 
-    public void registerExpense(Expense expense) {
-        if (expense.getAmount() <= 0) {
+    public static long getMonthlyExpenseLimitCents() {
+        return MONTHLY_EXPENSE_LIMIT_CENTS;
+    }
+
+    public ExpenseDelta registerExpense(Expense expense) {
+        if (expense.getAmountCents() <= 0) {
             throw new IllegalArgumentException("El monto del gasto debe ser mayor que cero");
         }
 
-        LocalDate expenseMonth = expense.getExpenseDate();
-        double totalMonthlyExpenses = repository.getTotalMonthlyExpenses(expenseMonth);
-        
-        if (totalMonthlyExpenses + expense.getAmount() > MONTHLY_EXPENSE_LIMIT) {
-            throw new IllegalStateException("El gasto excede el límite mensual de S/5000");
+        int id;
+        ReentrantLock monthLock = MONTH_LOCKS.forMonth(expense.getExpenseDate());
+        monthLock.lock();
+        try {
+            id = repository.saveWithinMonthlyLimit(expense, MONTHLY_EXPENSE_LIMIT_CENTS);
+        } finally {
+            monthLock.unlock();
+        }
+        if (id < 0) {
+            throw new IllegalStateException("No se pudo registrar el gasto");
         }
 
-        repository.save(expense);
+        Expense saved = expense.withId(id);
+        return ExpenseDelta.added(saved, positionOf(saved));
     }
 
     public List<Expense> listAllExpenses() {
@@ -39,43 +85,251 @@ public class ExpenseService {
         return repository.findByCategory(category);
     }
 
-    public void updateExpense(Expense expense) {
+    public long countExpenses() {
+        return repository.count();
+    }
+
+    /**
+     * Returns the page that follows {@code last} in date/id order, or the first page if it is null.
+     */
+    public List<Expense> listExpensePageAfter(Expense last, int limit) {
+        if (last == null) {
+            return repository.findPageAfter(null, 0, limit);
+        }
+        return repository.findPageAfter(last.getExpenseDate(), last.id(), limit);
+    }
+
+    public List<Expense> listExpensePageAt(long offset, int limit) {
+        return repository.findPageAt(offset, limit);
+    }
+
+    /**
+     * Finds the expenses with a description containing words that start with
+     * every word of the query, ignoring case and accents. The first search
+     * reads every description to build the index.
+     *
+     * @return Hits in date/id order
+     */
+    public SearchHits searchExpenseIds(String query) {
+        return searchable.search(query);
+    }
+
+    /**
+     * Builds the search index ahead of the first search.
+     */
+    public void prepareSearch() {
+        searchable.loadIndex();
+    }
+
+    /**
+     * @return The expense, or null if there is none with that id
+     */
+    public Expense findExpense(int id) {
+        return repository.findById(id);
+    }
+
+    /**
+     * Reads the expenses of a slice of search results, skipping ids that no
+     * longer exist.
+     */
+    public List<Expense> findExpensesByIds(int[] ids, int from, int to) {
+        List<Integer> slice = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            slice.add(ids[i]);
+        }
+        return repository.findByIds(slice);
+    }
+
+    public ExpenseDelta updateExpense(Expense expense) {
+        Expense before = findExisting(expense.getId());
+        long oldPosition = positionOf(before);
+
         repository.update(expense);
+        return ExpenseDelta.updated(before, expense, oldPosition, positionOf(expense));
     }
 
-    public void deleteExpense(int id) {
+    public ExpenseDelta deleteExpense(int id) {
+        Expense before = findExisting(id);
+        long oldPosition = positionOf(before);
+
         repository.delete(id);
+        return ExpenseDelta.removed(before, oldPosition);
+    }
+
+    /**
+     * Imports a CSV file in batches. Each batch is checked against the
+     * monthly limit in the transaction that saves it, so the limit holds
+     * against concurrent registrations in this and other processes.
+     */
+    public ImportReport importExpenses(Path file) throws IOException {
+        return new CsvExpenseImporter.Builder(repository)
+                .monthlyLimitCents(MONTHLY_EXPENSE_LIMIT_CENTS)
+                .monthLocks(MONTH_LOCKS::forMonths)
+                .build()
+                .importFile(file);
+    }
+
+    public long exportCsv(LocalDate from, LocalDate to, Path target) throws IOException {
+        return new ExpenseExporter(repository).exportCsv(from, to, target);
+    }
+
+    public long exportArchive(LocalDate from, LocalDate to, Path target) throws IOException {
+        return new ExpenseExporter(repository).exportArchive(from, to, target);
+    }
+
+    public long importArchive(Path source) throws IOException {
+        return new ExpenseExporter(repository).importArchive(source);
+    }
+
+    /**
+     * @return The row to update or delete
+     * @throws ExpenseRejectedException If it does not exist or is archived
+     */
+    private Expense findExisting(int id) {
+        Expense expense = repository.findById(id);
+        if (expense == null) {
+            throw new ExpenseNotFoundException(id);
+        }
+        LocalDate archivedBefore = repository.archivedBefore();
+        if (expense.getExpenseDate().isBefore(archivedBefore)) {
+            throw new ExpenseRejectedException("Los gastos anteriores a " + archivedBefore
+                    + " están archivados y no se pueden modificar");
+        }
+        return expense;
+    }
+
+    private long positionOf(Expense expense) {
+        return repository.countBefore(expense.getExpenseDate(), expense.id());
     }
 
     public ExpenseSummary getExpenseSummary(LocalDate month) {
-        List<Expense> monthExpenses = repository.findAll().stream()
-            .filter(e -> e.getExpenseDate().getYear() == month.getYear() &&
-                         e.getExpenseDate().getMonthValue() == month.getMonthValue())
-            .collect(Collectors.toList());
+        LocalDate from = month.withDayOfMonth(1);
+        return getExpenseSummary(from, from.plusMonths(1));
+    }
 
-        double totalAmount = monthExpenses.stream()
-            .mapToDouble(Expense::getAmount)
-            .sum();
+    /**
+     * Summarizes the expenses dated in {@code [from, to)} with a single grouped query.
+     */
+    public ExpenseSummary getExpenseSummary(LocalDate from, LocalDate to) {
+        return ExpenseSummary.of(repository.totalsByCategory(from, to));
+    }
 
-        var categoryCounts = monthExpenses.stream()
-            .collect(Collectors.groupingBy(
-                Expense::getCategory, 
-                Collectors.counting()
-            ));
+    /**
+     * Loads the expenses dated in {@code [from, to)} into a columnar snapshot
+     * for repeated aggregation without further database reads.
+     */
+    public ColumnarExpenseStore loadAnalyticsSnapshot(LocalDate from, LocalDate to) {
+        return ColumnarExpenseStore.load(repository, from, to);
+    }
+
+    /**
+     * Summarizes a month from a snapshot instead of the database.
+     */
+    public ExpenseSummary getExpenseSummary(LocalDate month, ColumnarExpenseStore snapshot) {
+        LocalDate from = month.withDayOfMonth(1);
+        return ExpenseSummary.of(snapshot.totalsByCategory(from, from.plusMonths(1)));
+    }
 
-        return new ExpenseSummary(totalAmount, categoryCounts);
+    /**
+     * Computes daily, weekly and monthly totals, rolling windows, monthly
+     * changes and the top descriptions of the expenses dated in
+     * {@code [from, to)}.
+     */
+    public ExpenseDashboard getDashboard(LocalDate from, LocalDate to, int topDescriptions) {
+        return getDashboard(loadAnalyticsSnapshot(from, to), from, to, topDescriptions);
     }
 
+    /**
+     * Computes the dashboard from a snapshot instead of the database.
+     */
+    public ExpenseDashboard getDashboard(ColumnarExpenseStore snapshot, LocalDate from, LocalDate to,
+            int topDescriptions) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("El rango de fechas no es válido");
+        }
+        return ExpenseAnalytics.compute(snapshot, from, to, topDescriptions);
+    }
+
+    /**
+     * Visits every expense dated in {@code [from, to)} without holding them all in memory.
+     */
+    public void forEachExpense(LocalDate from, LocalDate to, Consumer<Expense> action) {
+        repository.forEachByDateRange(from, to, ExpenseColumn.ALL, action);
+    }
+
+    /**
+     * Lazily streams expenses dated in {@code [from, to)}. The caller must close the stream.
+     */
+    public Stream<Expense> streamExpenses(LocalDate from, LocalDate to) {
+        return repository.streamByDateRange(from, to, ExpenseColumn.ALL);
+    }
+
+    /**
+     * Counts and amounts of a period per category. Amounts are kept in cents,
+     * so applying deltas never drifts.
+     */
     public static class ExpenseSummary {
-        private double totalAmount;
-        private java.util.Map<Expense.ExpenseCategory, Long> categoryCounts;
+        private final long totalCents;
+        private final Map<Expense.ExpenseCategory, Long> categoryCounts;
+        private final Map<Expense.ExpenseCategory, Long> categoryCents;
 
-        public ExpenseSummary(double totalAmount, java.util.Map<Expense.ExpenseCategory, Long> categoryCounts) {
-            this.totalAmount = totalAmount;
+        public ExpenseSummary(long totalCents,
+                Map<Expense.ExpenseCategory, Long> categoryCounts,
+                Map<Expense.ExpenseCategory, Long> categoryCents) {
+            this.totalCents = totalCents;
             this.categoryCounts = categoryCounts;
+            this.categoryCents = categoryCents;
+        }
+
+        public static ExpenseSummary of(Map<Expense.ExpenseCategory, CategoryTotal> totals) {
+            long totalCents = 0;
+            Map<Expense.ExpenseCategory, Long> counts = new EnumMap<>(Expense.ExpenseCategory.class);
+            Map<Expense.ExpenseCategory, Long> cents = new EnumMap<>(Expense.ExpenseCategory.class);
+            for (Map.Entry<Expense.ExpenseCategory, CategoryTotal> entry : totals.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().getCount());
+                cents.put(entry.getKey(), entry.getValue().getCents());
+                totalCents += entry.getValue().getCents();
+            }
+            return new ExpenseSummary(totalCents, counts, cents);
+        }
+
+        /**
+         * Returns the summary of {@code month} after the delta, touching only
+         * the categories it changed.
+         */
+        public ExpenseSummary apply(ExpenseDelta delta, LocalDate month) {
+            Map<Expense.ExpenseCategory, Long> counts = new EnumMap<>(Expense.ExpenseCategory.class);
+            counts.putAll(categoryCounts);
+            Map<Expense.ExpenseCategory, Long> cents = new EnumMap<>(Expense.ExpenseCategory.class);
+            cents.putAll(categoryCents);
+            long total = totalCents;
+
+            Expense before = delta.getBefore();
+            if (before != null && sameMonth(before.getExpenseDate(), month)) {
+                counts.merge(before.getCategory(), -1L, Long::sum);
+                cents.merge(before.getCategory(), -before.getAmountCents(), Long::sum);
+                total -= before.getAmountCents();
+                if (counts.get(before.getCategory()) <= 0) {
+                    counts.remove(before.getCategory());
+                    cents.remove(before.getCategory());
+                }
+            }
+            Expense after = delta.getAfter();
+            if (after != null && sameMonth(after.getExpenseDate(), month)) {
+                counts.merge(after.getCategory(), 1L, Long::sum);
+                cents.merge(after.getCategory(), after.getAmountCents(), Long::sum);
+                total += after.getAmountCents();
+            }
+            return new ExpenseSummary(total, counts, cents);
+        }
+
+        private static boolean sameMonth(LocalDate date, LocalDate month) {
+            return date.getYear() == month.getYear() && date.getMonthValue() == month.getMonthValue();
         }
 
-        public double getTotalAmount() { return totalAmount; }
-        public java.util.Map<Expense.ExpenseCategory, Long> getCategoryCounts() { return categoryCounts; }
+        public long getTotalCents() { return totalCents; }
+        public double getTotalAmount() { return totalCents / 100.0; }
+        public Map<Expense.ExpenseCategory, Long> getCategoryCounts() { return categoryCounts; }
+        public Map<Expense.ExpenseCategory, Long> getCategoryCents() { return categoryCents; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks striped by year and month, so writers to the same month
+ * queue in-process while writers to different months rarely contend.
+ */
+class MonthLocks {
+    private final ReentrantLock[] stripes;
+
+    MonthLocks(int stripeCount) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    ReentrantLock forMonth(LocalDate date) {
+        return stripes[stripeOf(date)];
+    }
+
+    /**
+     * @return The distinct locks of the months in stripe order, so callers
+     * taking several of them always acquire them in the same order
+     */
+    List<ReentrantLock> forMonths(Collection<LocalDate> dates) {
+        BitSet used = new BitSet(stripes.length);
+        for (LocalDate date : dates) {
+            used.set(stripeOf(date));
+        }
+        List<ReentrantLock> locks = new ArrayList<>(used.cardinality());
+        for (int i = used.nextSetBit(0); i >= 0; i = used.nextSetBit(i + 1)) {
+            locks.add(stripes[i]);
+        }
+        return locks;
+    }
+
+    private int stripeOf(LocalDate date) {
+        int yearMonth = date.getYear() * 12 + date.getMonthValue() - 1;
+        return Math.floorMod(yearMonth, stripes.length);
+    }
+}
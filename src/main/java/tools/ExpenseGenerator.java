@@ -0,0 +1,260 @@
+package tools;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import model.Expense;
+import repository.ExpenseRepositories;
+import repository.ExpenseRepository;
+import service.ExpenseService;
+
+/**
+ * Generates realistic expenses from a seed: the same seed, row count and
+ * months always produce the same rows.
+ * <p>
+ * Rows are spread over the months with a seasonal curve peaking in December,
+ * and over the days of each month with more spending on Fridays and
+ * weekends. Categories follow a fixed mix, shifted towards entertainment on
+ * weekends. Amounts are log-normal around a typical value per category, so
+ * most are small and a few are large; a month whose draws would exceed its
+ * share of the monthly limit has all its amounts scaled down to fit.
+ * <p>
+ * Usage: {@code ExpenseGenerator <rows> [seed] [firstMonth] [months]}, e.g.
+ * {@code 1000000 42 2022-01 36}. Rows are written through
+ * {@link ExpenseRepository#saveAll} in batches of {@link #BATCH_SIZE}, to the
+ * storage chosen by {@code -Dgastos.storage}.
+ */
+public class ExpenseGenerator {
+    public static final int BATCH_SIZE = 10_000;
+
+    /**
+     * Share of the monthly limit a generated month may use, leaving room
+     * for expenses registered afterwards.
+     */
+    private static final double LIMIT_FILL = 0.9;
+
+    private static final double[] MONTH_WEIGHTS = {
+        0.85, 0.8, 0.95, 0.95, 1.0, 0.95, 1.1, 1.0, 0.95, 1.0, 1.1, 1.45
+    };
+    private static final double[] DAY_OF_WEEK_WEIGHTS = {0.9, 0.85, 0.9, 0.95, 1.25, 1.4, 1.1};
+
+    private static final Expense.ExpenseCategory[] CATEGORIES = Expense.ExpenseCategory.values();
+
+    /**
+     * Weights in {@link Expense.ExpenseCategory} order, on weekdays and on weekends.
+     */
+    private static final double[] WEEKDAY_MIX = {0.42, 0.27, 0.08, 0.08, 0.15};
+    private static final double[] WEEKEND_MIX = {0.40, 0.15, 0.25, 0.05, 0.15};
+
+    /**
+     * Median amount in cents and spread of its logarithm, per category.
+     */
+    private static final long[] MEDIAN_CENTS = {2_500, 800, 4_000, 6_000, 3_000};
+    private static final double[] SIGMA = {0.8, 0.7, 0.9, 1.1, 1.2};
+
+    private static final String[][] ITEMS = {
+        {"Mercado", "Supermercado", "Panadería", "Menú del día", "Cena familiar", "Café", "Frutas y verduras",
+            "Pollería", "Chifa", "Bodega", "Desayuno", "Carnes", "Pescado fresco", "Abarrotes"},
+        {"Taxi", "Combi", "Bus", "Metropolitano", "Gasolina", "Peaje", "Estacionamiento", "Colectivo",
+            "Mantenimiento del auto", "Pasaje interprovincial"},
+        {"Cine", "Concierto", "Streaming", "Libro", "Partido de fútbol", "Salida con amigos", "Videojuego",
+            "Teatro", "Museo", "Karaoke"},
+        {"Farmacia", "Consulta médica", "Análisis de laboratorio", "Dentista", "Vitaminas", "Óptica",
+            "Seguro de salud", "Terapia"},
+        {"Regalo", "Ropa", "Zapatos", "Corte de cabello", "Lavandería", "Útiles escolares", "Ferretería",
+            "Artículos de limpieza", "Donación", "Recarga de celular"}
+    };
+    private static final String[] PLACES = {
+        "Miraflores", "Surquillo", "San Isidro", "Barranco", "Lince", "Jesús María", "San Borja", "Surco",
+        "Magdalena", "Pueblo Libre", "el centro", "la esquina"
+    };
+
+    private final long seed;
+    private final YearMonth firstMonth;
+    private final int months;
+    private final long monthlyLimitCents;
+
+    /**
+     * @param monthlyLimitCents Limit no generated month may exceed, counting
+     * the cents it already holds
+     */
+    public ExpenseGenerator(long seed, YearMonth firstMonth, int months, long monthlyLimitCents) {
+        if (months <= 0) {
+            throw new IllegalArgumentException("El número de meses debe ser mayor que cero");
+        }
+        this.seed = seed;
+        this.firstMonth = firstMonth;
+        this.months = months;
+        this.monthlyLimitCents = monthlyLimitCents;
+    }
+
+    /**
+     * Generates the rows month by month, handing them to {@code sink} in
+     * batches of at most {@code batchSize}, in date order.
+     *
+     * @param existingCents Cents each month already holds, given its first day
+     * @return Number of rows generated
+     * @throws IllegalArgumentException If a month would get more rows than
+     * its remaining budget has cents
+     */
+    public long generate(long rows, int batchSize, ToLongFunction<LocalDate> existingCents,
+            Consumer<List<Expense>> sink) {
+        long[] perMonth = apportion(rows);
+        List<Expense> batch = new ArrayList<>(batchSize);
+        long generated = 0;
+        for (int m = 0; m < months; m++) {
+            YearMonth month = firstMonth.plusMonths(m);
+            long budget = (long) (monthlyLimitCents * LIMIT_FILL) - existingCents.applyAsLong(month.atDay(1));
+            if (perMonth[m] > 0 && perMonth[m] > budget) {
+                throw new IllegalArgumentException(String.format(
+                        "%s no admite %d gastos dentro del límite mensual; use más meses", month, perMonth[m]));
+            }
+            // One stream per month, so a month's rows do not depend on the batch size.
+            SplittableRandom random = new SplittableRandom(seed * 31 + month.getYear() * 12L + month.getMonthValue());
+            for (Expense expense : month(month, (int) perMonth[m], budget, random)) {
+                batch.add(expense);
+                if (batch.size() == batchSize) {
+                    sink.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+                generated++;
+            }
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+        return generated;
+    }
+
+    /**
+     * Splits the rows over the months by their seasonal weight, giving the
+     * rounding remainders to the months with the largest fractions.
+     */
+    private long[] apportion(long rows) {
+        double[] weights = new double[months];
+        double total = 0;
+        for (int m = 0; m < months; m++) {
+            weights[m] = MONTH_WEIGHTS[firstMonth.plusMonths(m).getMonthValue() - 1];
+            total += weights[m];
+        }
+        long[] counts = new long[months];
+        double[] fractions = new double[months];
+        long assigned = 0;
+        for (int m = 0; m < months; m++) {
+            double exact = rows * weights[m] / total;
+            counts[m] = (long) exact;
+            fractions[m] = exact - counts[m];
+            assigned += counts[m];
+        }
+        for (; assigned < rows; assigned++) {
+            int largest = 0;
+            for (int m = 1; m < months; m++) {
+                if (fractions[m] > fractions[largest]) {
+                    largest = m;
+                }
+            }
+            counts[largest]++;
+            fractions[largest] = -1;
+        }
+        return counts;
+    }
+
+    private List<Expense> month(YearMonth month, int rows, long budget, SplittableRandom random) {
+        double[] dayWeights = new double[month.lengthOfMonth()];
+        for (int d = 0; d < dayWeights.length; d++) {
+            dayWeights[d] = DAY_OF_WEEK_WEIGHTS[month.atDay(d + 1).getDayOfWeek().getValue() - 1];
+        }
+        int[] days = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            days[i] = pick(dayWeights, random);
+        }
+        Arrays.sort(days);
+
+        Expense.ExpenseCategory[] categories = new Expense.ExpenseCategory[rows];
+        long[] cents = new long[rows];
+        long total = 0;
+        for (int i = 0; i < rows; i++) {
+            DayOfWeek dayOfWeek = month.atDay(days[i] + 1).getDayOfWeek();
+            boolean weekend = dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
+            int category = pick(weekend ? WEEKEND_MIX : WEEKDAY_MIX, random);
+            categories[i] = CATEGORIES[category];
+            cents[i] = Math.max(1, Math.round(MEDIAN_CENTS[category] * Math.exp(SIGMA[category] * gaussian(random))));
+            total += cents[i];
+        }
+        if (total > budget) {
+            // Scale every amount by the same factor; each keeps at least one cent.
+            double scale = (double) (budget - rows) / (total - rows);
+            for (int i = 0; i < rows; i++) {
+                cents[i] = 1 + (long) ((cents[i] - 1) * scale);
+            }
+        }
+
+        List<Expense> expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            expenses.add(Expense.of(Expense.NO_ID, description(categories[i], random), categories[i], cents[i],
+                    month.atDay(days[i] + 1)));
+        }
+        return expenses;
+    }
+
+    private static String description(Expense.ExpenseCategory category, SplittableRandom random) {
+        String[] items = ITEMS[category.ordinal()];
+        String item = items[random.nextInt(items.length)];
+        return random.nextInt(3) == 0 ? item : item + " en " + PLACES[random.nextInt(PLACES.length)];
+    }
+
+    private static int pick(double[] weights, SplittableRandom random) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double target = random.nextDouble() * total;
+        for (int i = 0; i < weights.length - 1; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * Standard normal draw by the Box-Muller transform.
+     */
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Uso: ExpenseGenerator <filas> [semilla] [primerMes AAAA-MM] [meses]");
+            System.exit(2);
+        }
+        long rows = Long.parseLong(args[0]);
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        int months = args.length > 3 ? Integer.parseInt(args[3]) : 36;
+        YearMonth firstMonth = args.length > 2 ? YearMonth.parse(args[2]) : YearMonth.now().minusMonths(months - 1);
+
+        ExpenseRepository repository = ExpenseRepositories.create();
+        ExpenseGenerator generator = new ExpenseGenerator(seed, firstMonth, months,
+                ExpenseService.getMonthlyExpenseLimitCents());
+        long start = System.nanoTime();
+        long[] saved = new long[1];
+        long generated = generator.generate(rows, BATCH_SIZE, repository::getMonthlyTotalCents, batch -> {
+            saved[0] += repository.saveAll(batch).stream().filter(id -> id >= 0).count();
+            System.out.printf("\r%d / %d", saved[0], rows);
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%nGenerados %d gastos, guardados %d en %.1f s (%.0f filas/s)%n",
+                generated, saved[0], seconds, saved[0] / seconds);
+        if (saved[0] != generated) {
+            System.exit(1);
+        }
+    }
+}
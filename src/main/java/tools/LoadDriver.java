@@ -0,0 +1,283 @@
+package tools;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import metrics.MetricsRegistry;
+import model.Expense;
+import model.ExpenseRejectedException;
+import service.ExpenseService;
+
+/**
+ * Replays a mixed read/write workload against {@link ExpenseService} at a
+ * fixed rate from several threads and reports latency percentiles per
+ * operation.
+ * <p>
+ * Each thread issues its share of the rate on a fixed schedule. Latency is
+ * measured from the scheduled start, so time spent behind schedule counts
+ * the way a client waiting on a slow server would see it. Reads page from
+ * and look up expenses sampled at startup and summarize their months;
+ * writes register small expenses and later update or delete them. Whatever
+ * the run registered and did not delete is deleted at the end.
+ * <p>
+ * Usage: {@code LoadDriver [threads] [opsPerSecond] [seconds] [writePercent]},
+ * e.g. {@code 16 2000 60 20}, against the storage chosen by
+ * {@code -Dgastos.storage}.
+ */
+public class LoadDriver {
+    private static final int PAGE_SIZE = 50;
+    private static final int SAMPLE_PAGES = 20;
+    private static final long SEED = 42;
+
+    enum Operation {
+        PAGE, SUMMARY, FIND, REGISTER, UPDATE, DELETE;
+
+        boolean isWrite() {
+            return ordinal() >= REGISTER.ordinal();
+        }
+    }
+
+    private final ExpenseService service;
+    private final List<Expense> sample;
+    private final Deque<Expense> registered = new ConcurrentLinkedDeque<>();
+    private final int writePercent;
+
+    LoadDriver(ExpenseService service, List<Expense> sample, int writePercent) {
+        this.service = service;
+        this.sample = sample;
+        this.writePercent = writePercent;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        double rate = args.length > 1 ? Double.parseDouble(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int writePercent = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        ExpenseService service = new ExpenseService();
+        List<Expense> sample = sample(service, new SplittableRandom(SEED));
+        if (sample.isEmpty()) {
+            System.out.println("No hay gastos; genere datos con ExpenseGenerator antes de la carga");
+            System.exit(2);
+        }
+        LoadDriver driver = new LoadDriver(service, sample, writePercent);
+        MetricsRegistry.global().reset();
+
+        System.out.printf("%d hilos, %.0f op/s, %d s, %d%% escrituras, %d gastos de muestra%n",
+                threads, rate, seconds, writePercent, sample.size());
+        Samples[][] results = driver.run(threads, rate, TimeUnit.SECONDS.toNanos(seconds));
+        int removed = driver.cleanUp();
+
+        print(merge(results), seconds);
+        System.out.println();
+        System.out.print(MetricsRegistry.global().dump());
+        System.out.println("Gastos de la carga eliminados: " + removed);
+    }
+
+    /**
+     * Reads pages at random offsets, so lookups and cursors spread over the data.
+     */
+    private static List<Expense> sample(ExpenseService service, SplittableRandom random) {
+        long count = service.countExpenses();
+        List<Expense> sample = new ArrayList<>();
+        for (int i = 0; i < SAMPLE_PAGES && count > 0; i++) {
+            sample.addAll(service.listExpensePageAt(random.nextLong(count), PAGE_SIZE));
+        }
+        return sample;
+    }
+
+    /**
+     * @return Latencies per thread and operation
+     */
+    Samples[][] run(int threads, double rate, long durationNanos) throws InterruptedException {
+        long interval = (long) (threads * 1e9 / rate);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long end = start + durationNanos;
+        Samples[][] results = new Samples[threads][];
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results[t] = new Samples[Operation.values().length];
+            for (Operation operation : Operation.values()) {
+                results[t][operation.ordinal()] = new Samples();
+            }
+            Thread worker = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(SEED + thread);
+                // Threads are staggered so their schedules interleave evenly.
+                long next = start + interval * thread / threads;
+                try {
+                    while (next < end) {
+                        long wait = next - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        Operation operation = choose(random);
+                        Expense own = null;
+                        if (operation == Operation.UPDATE || operation == Operation.DELETE) {
+                            own = registered.pollFirst();
+                            if (own == null) {
+                                // Nothing of our own to change yet; register instead.
+                                operation = Operation.REGISTER;
+                            }
+                        }
+                        Samples samples = results[thread][operation.ordinal()];
+                        try {
+                            execute(operation, own, random);
+                        } catch (RuntimeException e) {
+                            if (e instanceof ExpenseRejectedException) {
+                                samples.rejected++;
+                            } else {
+                                samples.errors++;
+                            }
+                            if (own != null) {
+                                // Still ours to clean up at the end.
+                                registered.addLast(own);
+                            }
+                        }
+                        samples.add(System.nanoTime() - next);
+                        next += interval;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + t);
+            worker.start();
+        }
+        done.await();
+        return results;
+    }
+
+    private Operation choose(SplittableRandom random) {
+        int roll = random.nextInt(100);
+        if (roll < writePercent) {
+            int write = random.nextInt(4);
+            return write < 2 ? Operation.REGISTER : write == 2 ? Operation.UPDATE : Operation.DELETE;
+        }
+        int read = random.nextInt(100);
+        return read < 45 ? Operation.PAGE : read < 80 ? Operation.SUMMARY : Operation.FIND;
+    }
+
+    /**
+     * @param own A row this run registered, for {@code UPDATE} and {@code DELETE}
+     */
+    private void execute(Operation operation, Expense own, SplittableRandom random) {
+        Expense sampled = sample.get(random.nextInt(sample.size()));
+        switch (operation) {
+            case PAGE:
+                service.listExpensePageAfter(sampled, PAGE_SIZE);
+                break;
+            case SUMMARY:
+                service.getExpenseSummary(sampled.getExpenseDate());
+                break;
+            case FIND:
+                service.findExpense(sampled.getId());
+                break;
+            case UPDATE:
+                Expense changed = Expense.of(own.getId(), own.getDescription() + " (editado)",
+                        own.getCategory(), own.getAmountCents() + 1, own.getExpenseDate());
+                registered.addLast(service.updateExpense(changed).getAfter());
+                break;
+            case DELETE:
+                service.deleteExpense(own.getId());
+                break;
+            case REGISTER:
+                Expense expense = new Expense.Builder()
+                        .description("carga " + random.nextInt(1000))
+                        .category(Expense.ExpenseCategory.values()[random.nextInt(Expense.ExpenseCategory.values().length)])
+                        .amountCents(random.nextLong(1, 100))
+                        .expenseDate(random.nextBoolean() ? sampled.getExpenseDate() : LocalDate.now())
+                        .build();
+                registered.addLast(service.registerExpense(expense).getAfter());
+                break;
+        }
+    }
+
+    private int cleanUp() {
+        int removed = 0;
+        for (Expense expense; (expense = registered.pollFirst()) != null; removed++) {
+            service.deleteExpense(expense.getId());
+        }
+        return removed;
+    }
+
+    private static Map<Operation, Samples> merge(Samples[][] results) {
+        Map<Operation, Samples> merged = new EnumMap<>(Operation.class);
+        for (Samples[] thread : results) {
+            for (Operation operation : Operation.values()) {
+                merged.computeIfAbsent(operation, key -> new Samples()).addAll(thread[operation.ordinal()]);
+            }
+        }
+        return merged;
+    }
+
+    private static void print(Map<Operation, Samples> results, int seconds) {
+        System.out.printf("%-10s %9s %7s %10s %9s %9s %9s %9s %9s %9s%n", "operación", "llamadas", "errores",
+                "rechazos", "op/s", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        Samples all = new Samples();
+        for (Map.Entry<Operation, Samples> entry : results.entrySet()) {
+            print(entry.getKey().name(), entry.getValue(), seconds);
+            all.addAll(entry.getValue());
+        }
+        print("TOTAL", all, seconds);
+    }
+
+    private static void print(String name, Samples samples, int seconds) {
+        long[] sorted = samples.sorted();
+        System.out.printf("%-10s %9d %7d %10d %9.0f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, sorted.length,
+                samples.errors, samples.rejected, (double) sorted.length / seconds, percentile(sorted, 50),
+                percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9), percentile(sorted, 100));
+    }
+
+    /**
+     * @return The latency at the percentile in milliseconds, by nearest rank
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(sorted.length * percentile / 100.0);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    /**
+     * Latencies in nanoseconds, kept exactly so percentiles are not bucketed.
+     * Owned by one thread until the run ends.
+     */
+    static final class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private long errors;
+        private long rejected;
+
+        void add(long latency) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = latency;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.nanos[i]);
+            }
+            errors += other.errors;
+            rejected += other.rejected;
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(nanos, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package tools;
+
+import config.Mysql;
+import java.sql.SQLException;
+import java.util.List;
+import repository.MonthlyAggregates;
+
+/**
+ * Command line maintenance for {@code gastos_mensuales}.
+ * <p>
+ * Usage: {@code MonthlyAggregatesTool verify|rebuild}
+ */
+public class MonthlyAggregatesTool {
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "verify";
+        Mysql.migrate();
+        MonthlyAggregates aggregates = new MonthlyAggregates();
+        try {
+            switch (command) {
+                case "rebuild":
+                    aggregates.rebuild();
+                    System.out.println("Agregados mensuales reconstruidos");
+                    break;
+                case "verify":
+                    List<String> mismatches = aggregates.verify();
+                    if (mismatches.isEmpty()) {
+                        System.out.println("Agregados mensuales consistentes");
+                    } else {
+                        mismatches.forEach(System.out::println);
+                        System.out.println(mismatches.size() + " diferencias; ejecute 'rebuild' para corregirlas");
+                        System.exit(1);
+                    }
+                    break;
+                default:
+                    System.out.println("Uso: MonthlyAggregatesTool verify|rebuild");
+                    System.exit(2);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
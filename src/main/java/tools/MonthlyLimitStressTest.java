@@ -0,0 +1,162 @@
+package tools;
+
+import config.Mysql;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.Expense;
+import model.ExpenseRejectedException;
+import repository.ExpenseColumn;
+import repository.ExpenseRepository;
+import repository.ExpenseRepositoryImpl;
+import service.ExpenseService;
+
+/**
+ * Concurrent stress check for the monthly limit.
+ * <p>
+ * For each thread count, threads register small expenses into a few
+ * otherwise empty months until every month rejects further writes. The run
+ * then checks that no month went over the limit and reports throughput. The
+ * rows it creates are deleted afterwards, along with the month rows they
+ * left in {@code presupuesto_mensual} and {@code gastos_mensuales}.
+ * <p>
+ * Usage: {@code MonthlyLimitStressTest [threadCounts] [months] [amount]},
+ * e.g. {@code 1,2,4,8,16 4 7.5}
+ */
+public class MonthlyLimitStressTest {
+
+    /**
+     * Far enough in the future not to collide with real expenses.
+     */
+    private static final int FIRST_YEAR = 2900;
+
+    public static void main(String[] args) throws InterruptedException {
+        String[] threadCounts = (args.length > 0 ? args[0] : "1,2,4,8,16").split(",");
+        int months = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        double amount = args.length > 2 ? Double.parseDouble(args[2]) : 7.5;
+
+        Mysql.migrate();
+        ExpenseRepository repository = new ExpenseRepositoryImpl();
+        ExpenseService service = new ExpenseService(repository);
+        long limit = ExpenseService.getMonthlyExpenseLimitCents();
+
+        System.out.printf("%8s %10s %10s %12s %10s%n", "threads", "accepted", "rejected", "ops/s", "overshoot");
+        boolean failed = false;
+        for (int run = 0; run < threadCounts.length; run++) {
+            int threads = Integer.parseInt(threadCounts[run].trim());
+            LocalDate firstMonth = LocalDate.of(FIRST_YEAR + run, 1, 1);
+            Result result = runOnce(service, threads, firstMonth, months, amount);
+
+            long worst = 0;
+            for (int m = 0; m < months; m++) {
+                worst = Math.max(worst, repository.getMonthlyTotalCents(firstMonth.plusMonths(m)) - limit);
+            }
+            double seconds = result.elapsedNanos / 1e9;
+            System.out.printf("%8d %10d %10d %12.0f %10.2f%n", threads, result.accepted.get(), result.rejected.get(),
+                    (result.accepted.get() + result.rejected.get()) / seconds, worst / 100.0);
+            failed |= worst > 0;
+
+            repository.deleteAll(cleanupIds(repository, firstMonth, months));
+        }
+        deleteMonthRows();
+
+        if (failed) {
+            System.out.println("FALLO: algún mes superó el límite");
+            System.exit(1);
+        }
+        System.out.println("OK: ningún mes superó el límite");
+    }
+
+    private static Result runOnce(ExpenseService service, int threads, LocalDate firstMonth, int months, double amount)
+            throws InterruptedException {
+        Result result = new Result();
+        Queue<Integer> openMonths = new ConcurrentLinkedQueue<>();
+        for (int m = 0; m < months; m++) {
+            openMonths.add(m);
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            int threadIndex = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    int attempt = threadIndex;
+                    while (!openMonths.isEmpty()) {
+                        int monthIndex = Math.floorMod(attempt++, months);
+                        if (!openMonths.contains(monthIndex)) {
+                            continue;
+                        }
+                        Expense expense = new Expense.Builder()
+                                .description("stress-" + threadIndex)
+                                .category(Expense.ExpenseCategory.OTROS)
+                                .amount(amount)
+                                .expenseDate(firstMonth.plusMonths(monthIndex))
+                                .build();
+                        try {
+                            service.registerExpense(expense);
+                            result.accepted.incrementAndGet();
+                        } catch (ExpenseRejectedException e) {
+                            result.rejected.incrementAndGet();
+                            openMonths.remove(monthIndex);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "stress-" + t);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        result.elapsedNanos = System.nanoTime() - begin;
+        return result;
+    }
+
+    private static List<Integer> cleanupIds(ExpenseRepository repository, LocalDate firstMonth, int months) {
+        List<Integer> ids = new ArrayList<>();
+        repository.forEachByDateRange(firstMonth, firstMonth.plusMonths(months),
+                EnumSet.of(ExpenseColumn.ID), expense -> ids.add(expense.getId()));
+        return ids;
+    }
+
+    /**
+     * Deletes the lock rows of the stress months and their aggregate rows,
+     * which the deletes above leave at zero.
+     */
+    private static void deleteMonthRows() {
+        int firstYearMonth = FIRST_YEAR * 100;
+        try (Connection conn = new Mysql().getConnection();
+             PreparedStatement budgets = conn.prepareStatement(
+                     "DELETE FROM presupuesto_mensual WHERE anio_mes >= ?");
+             PreparedStatement aggregates = conn.prepareStatement(
+                     "DELETE FROM gastos_mensuales WHERE anio_mes >= ? AND cantidad = 0 AND total = 0")) {
+            budgets.setInt(1, firstYearMonth);
+            budgets.executeUpdate();
+            aggregates.setInt(1, firstYearMonth);
+            aggregates.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("No se pudieron borrar las filas mensuales de la prueba");
+        }
+    }
+
+    private static class Result {
+        private final AtomicInteger accepted = new AtomicInteger();
+        private final AtomicInteger rejected = new AtomicInteger();
+        private long elapsedNanos;
+    }
+}
@@ -0,0 +1,46 @@
+package tools;
+
+import config.Mysql;
+import config.PartitionManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Command line maintenance for the partitions of {@code gastos}.
+ * <p>
+ * Usage: {@code PartitionTool maintain|archive <year>}; {@code archive 2024}
+ * moves every expense dated before 2024 to the archive.
+ */
+public class PartitionTool {
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "maintain";
+        Mysql.migrate();
+        PartitionManager partitions = new PartitionManager(Mysql.pool());
+        try {
+            switch (command) {
+                case "maintain":
+                    System.out.println("Particiones creadas: " + partitions.maintain(LocalDate.now()));
+                    break;
+                case "archive":
+                    if (args.length < 2) {
+                        System.out.println("Uso: PartitionTool archive <año>");
+                        System.exit(2);
+                    }
+                    int year = Integer.parseInt(args[1]);
+                    long rows = partitions.archiveYearsBefore(year, LocalDate.now());
+                    System.out.println("Gastos archivados antes de " + year + ": " + rows);
+                    break;
+                default:
+                    System.out.println("Uso: PartitionTool maintain|archive <año>");
+                    System.exit(2);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.exit(1);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package view;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import model.Expense;
+import service.ExpenseDelta;
+
+/**
+ * Virtualized table model that only holds the pages of expenses around the
+ * visible viewport.
+ * <p>
+ * Pages are loaded on a background executor, preferably by keyset from the
+ * previous cached page, and kept in a small LRU cache. All state is owned by
+ * the EDT; loaders post their results back to it.
+ */
+@SuppressWarnings("serial")
+public class ExpenseTableModel extends AbstractTableModel {
+
+    //-----------------------------------------------------------------------
+    //		Attributes
+    //-----------------------------------------------------------------------
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 32;
+    private static final int PREFETCH_PAGES = 1;
+
+    private static final String[] COLUMN_NAMES = {"ID", "Description", "Category", "Amount", "Date"};
+
+    private PageSource source;
+    private final Executor loader;
+
+    private final Map<Integer, List<Expense>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Expense>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> pendingPages = new HashSet<>();
+
+    /**
+     * Cached pages left short by {@link #removeRow}; only these are read
+     * again when a row past their end is shown.
+     */
+    private final Set<Integer> shortenedPages = new HashSet<>();
+
+    private int rowCount;
+
+    /**
+     * Incremented on every reload so results of loads started before it are dropped.
+     */
+    private long generation;
+
+    /**
+     * Whether a reload's count has not arrived yet. A delta then cannot be
+     * placed against the row count, so it reissues the reload instead.
+     */
+    private boolean reloadPending;
+
+    /**
+     * Whether the rows come from a snapshot saved by a previous run and the
+     * source has not been read yet.
+     */
+    private boolean showingSnapshot;
+
+
+    //-----------------------------------------------------------------------
+    //		Constructor
+    //-----------------------------------------------------------------------
+    public ExpenseTableModel(PageSource source, Executor loader) {
+        this.source = source;
+        this.loader = loader;
+    }
+
+
+    //-----------------------------------------------------------------------
+    //		Methods
+    //-----------------------------------------------------------------------
+    /**
+     * Discards cached pages and re-reads the row count, firing a single
+     * data-changed event once the count is known.
+     */
+    public void reload() {
+        long reloadGeneration = ++generation;
+        reloadPending = true;
+        pendingPages.clear();
+        shortenedPages.clear();
+        if (showingSnapshot) {
+            reloadOverSnapshot(reloadGeneration);
+            return;
+        }
+        pages.clear();
+
+        loader.execute(() -> {
+            long count = source.count();
+            SwingUtilities.invokeLater(() -> {
+                if (reloadGeneration != generation) {
+                    return;
+                }
+                reloadPending = false;
+                rowCount = (int) Math.min(Integer.MAX_VALUE, count);
+                fireTableDataChanged();
+            });
+        });
+    }
+
+    /**
+     * Keeps the saved rows on screen until the count and the first page are
+     * both read, then swaps them in with one event, so the table never
+     * flashes empty rows in between.
+     */
+    private void reloadOverSnapshot(long reloadGeneration) {
+        loader.execute(() -> {
+            long count = source.count();
+            List<Expense> firstPage = source.pageAfter(null, PAGE_SIZE);
+            SwingUtilities.invokeLater(() -> {
+                if (reloadGeneration != generation) {
+                    return;
+                }
+                reloadPending = false;
+                showingSnapshot = false;
+                pages.clear();
+                pages.put(0, firstPage);
+                rowCount = (int) Math.min(Integer.MAX_VALUE, count);
+                if (firstPage.size() < PAGE_SIZE) {
+                    rowCount = Math.min(rowCount, firstPage.size());
+                }
+                fireTableDataChanged();
+            });
+        });
+    }
+
+    /**
+     * Shows rows saved by a previous run until the next reload replaces them.
+     *
+     * @param count Row count when the rows were saved
+     * @param firstPage First page of rows when they were saved
+     */
+    public void showSnapshot(long count, List<Expense> firstPage) {
+        generation++;
+        reloadPending = false;
+        pages.clear();
+        pendingPages.clear();
+        shortenedPages.clear();
+        pages.put(0, firstPage);
+        rowCount = (int) Math.min(Integer.MAX_VALUE, count);
+        showingSnapshot = true;
+        fireTableDataChanged();
+    }
+
+    /**
+     * @return The cached first page, or null if it is not loaded or still
+     * comes from a snapshot
+     */
+    public List<Expense> getFirstPage() {
+        return showingSnapshot ? null : pages.get(0);
+    }
+
+    /**
+     * Shows the rows of another source, such as search results, and reloads.
+     */
+    public void setSource(PageSource source) {
+        this.source = source;
+        reload();
+    }
+
+    /**
+     * Patches the cached pages with a single mutation and fires one row event
+     * for it, instead of reloading.
+     */
+    public void applyDelta(ExpenseDelta delta) {
+        if (showingSnapshot || reloadPending) {
+            // Positions in the delta are not those of the saved rows, or the
+            // count they apply to is not known yet; a new reload reads the
+            // count after the mutation. Only the superseded reload is dropped.
+            reload();
+            return;
+        }
+        // No reload is in flight, so this only drops page loads, which were
+        // read before the mutation; visible rows are requested again.
+        generation++;
+        pendingPages.clear();
+
+        switch (delta.getType()) {
+            case ADDED:
+                insertRow((int) delta.getNewPosition(), delta.getAfter());
+                break;
+            case REMOVED:
+                removeRow((int) delta.getOldPosition());
+                break;
+            case UPDATED:
+                if (delta.getOldPosition() == delta.getNewPosition()) {
+                    replaceRow((int) delta.getNewPosition(), delta.getAfter());
+                } else {
+                    removeRow((int) delta.getOldPosition());
+                    insertRow((int) delta.getNewPosition(), delta.getAfter());
+                }
+                break;
+        }
+    }
+
+    private void insertRow(int row, Expense expense) {
+        if (row < 0 || row > rowCount) {
+            return;
+        }
+        rowCount++;
+        int page = row / PAGE_SIZE;
+        Expense carry = expense;
+        int index = row % PAGE_SIZE;
+        // Shift one row forward through consecutive cached pages, carrying
+        // each page's overflow into the next one.
+        while (carry != null) {
+            List<Expense> rows = mutablePage(page);
+            if (rows == null) {
+                break;
+            }
+            rows.add(Math.min(index, rows.size()), carry);
+            carry = rows.size() > PAGE_SIZE ? rows.remove(rows.size() - 1) : null;
+            page++;
+            index = 0;
+        }
+        dropPagesFrom(page);
+        fireTableRowsInserted(row, row);
+    }
+
+    private void removeRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            return;
+        }
+        rowCount--;
+        int page = row / PAGE_SIZE;
+        List<Expense> rows = mutablePage(page);
+        if (rows != null && row % PAGE_SIZE < rows.size()) {
+            rows.remove(row % PAGE_SIZE);
+        }
+        // Pull the first row of each following cached page back by one. A
+        // page left short re-reads itself when its last row is shown.
+        while (rows != null) {
+            List<Expense> next = mutablePage(page + 1);
+            if (next == null || next.isEmpty()) {
+                if ((long) page * PAGE_SIZE + rows.size() < rowCount) {
+                    shortenedPages.add(page);
+                }
+                break;
+            }
+            rows.add(next.remove(0));
+            rows = next;
+            page++;
+        }
+        dropPagesFrom(page + 1);
+        fireTableRowsDeleted(row, row);
+    }
+
+    private void replaceRow(int row, Expense expense) {
+        List<Expense> rows = mutablePage(row / PAGE_SIZE);
+        if (rows != null && row % PAGE_SIZE < rows.size()) {
+            rows.set(row % PAGE_SIZE, expense);
+        }
+        if (row >= 0 && row < rowCount) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    private List<Expense> mutablePage(int page) {
+        List<Expense> rows = pages.get(page);
+        if (rows == null) {
+            return null;
+        }
+        if (!(rows instanceof ArrayList)) {
+            rows = new ArrayList<>(rows);
+            pages.put(page, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Forgets cached pages whose rows moved and could not be shifted in place.
+     */
+    private void dropPagesFrom(int page) {
+        pages.keySet().removeIf(cached -> cached >= page);
+        shortenedPages.removeIf(shortened -> shortened >= page);
+    }
+
+    /**
+     * Ensures the pages covering the given rows, plus a margin on each side, are loaded.
+     */
+    public void setViewport(int firstRow, int lastRow) {
+        if (rowCount == 0) {
+            return;
+        }
+        int firstPage = Math.max(0, firstRow / PAGE_SIZE - PREFETCH_PAGES);
+        int lastPage = Math.min(pageCount() - 1, Math.max(firstRow, lastRow) / PAGE_SIZE + PREFETCH_PAGES);
+        for (int page = firstPage; page <= lastPage; page++) {
+            if (!pages.containsKey(page)) {
+                requestPage(page);
+            }
+        }
+    }
+
+    /**
+     * @return Expense shown at the row, or null if its page is not loaded yet
+     */
+    public Expense getExpenseAt(int row) {
+        List<Expense> page = pages.get(row / PAGE_SIZE);
+        if (page == null) {
+            requestPage(row / PAGE_SIZE);
+            return null;
+        }
+        int index = row % PAGE_SIZE;
+        if (index < page.size()) {
+            return page.get(index);
+        }
+        if (row < rowCount && shortenedPages.contains(row / PAGE_SIZE)) {
+            // Page was left short by a removal; read it again.
+            requestPage(row / PAGE_SIZE);
+        }
+        return null;
+    }
+
+    private void requestPage(int page) {
+        if (!pendingPages.add(page)) {
+            return;
+        }
+        long requestGeneration = generation;
+        List<Expense> previous = page == 0 ? null : pages.get(page - 1);
+        // Only a full previous page is a valid keyset anchor.
+        Expense after = previous == null || previous.size() != PAGE_SIZE ? null : previous.get(PAGE_SIZE - 1);
+
+        loader.execute(() -> {
+            List<Expense> rows;
+            try {
+                if (page == 0) {
+                    rows = source.pageAfter(null, PAGE_SIZE);
+                } else if (after != null) {
+                    rows = source.pageAfter(after, PAGE_SIZE);
+                } else {
+                    rows = source.pageAt((long) page * PAGE_SIZE, PAGE_SIZE);
+                }
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> pageFailed(requestGeneration, page));
+                throw e;
+            }
+            SwingUtilities.invokeLater(() -> pageLoaded(requestGeneration, page, rows));
+        });
+    }
+
+    /**
+     * Lets the page be requested again the next time one of its rows is shown.
+     */
+    private void pageFailed(long requestGeneration, int page) {
+        if (requestGeneration == generation) {
+            pendingPages.remove(page);
+        }
+    }
+
+    private void pageLoaded(long requestGeneration, int page, List<Expense> rows) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        pendingPages.remove(page);
+        shortenedPages.remove(page);
+        pages.put(page, rows);
+
+        int firstRow = page * PAGE_SIZE;
+        if (rows.size() < PAGE_SIZE && firstRow + rows.size() < rowCount) {
+            // The source has fewer rows than counted, e.g. another writer
+            // deleted some; end the table where the source ends.
+            int oldRowCount = rowCount;
+            rowCount = firstRow + rows.size();
+            dropPagesFrom(page + 1);
+            fireTableRowsDeleted(rowCount, oldRowCount - 1);
+        }
+        int lastRow = Math.min(rowCount, firstRow + PAGE_SIZE) - 1;
+        if (lastRow >= firstRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+
+    private int pageCount() {
+        return (rowCount + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Expense expense = getExpenseAt(rowIndex);
+        if (expense == null) {
+            return columnIndex == 1 ? "Cargando..." : null;
+        }
+        switch (columnIndex) {
+            case 0:
+                return expense.getId();
+            case 1:
+                return expense.getDescription();
+            case 2:
+                return expense.getCategory();
+            case 3:
+                return expense.getAmount();
+            case 4:
+                return expense.getExpenseDate();
+            default:
+                return null;
+        }
+    }
+
+
+    //-----------------------------------------------------------------------
+    //		Nested classes
+    //-----------------------------------------------------------------------
+    /**
+     * Supplies pages of expenses in date/id order. Called off the EDT.
+     */
+    public interface PageSource {
+        long count();
+
+        /**
+         * @param last Last row of the previous page, or null for the first page
+         */
+        List<Expense> pageAfter(Expense last, int limit);
+
+        List<Expense> pageAt(long offset, int limit);
+    }
+}
@@ -5,20 +5,35 @@ import core.Model;
 import core.View;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import export.ExpenseExporter;
+import importer.ImportReport;
+import importer.RejectedLine;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import model.Expense;
+import metrics.MetricsRegistry;
+import metrics.ViewUpdateEvent;
+import model.ExpenseListEvent;
+import model.ExpenseListModel;
+import model.ExpenseListSnapshot;
+import service.ExpenseDelta;
 import service.ExpenseService;
 
-public class ExpenseView extends JPanel implements View {
+@SuppressWarnings("serial")
+public final class ExpenseView extends JPanel implements View {
+    private static final int SEARCH_DELAY_MILLIS = 250;
 
     private ExpenseController controller;
-    private Expense model;
+    private ExpenseListModel model;
 
     private JTable expenseTable;
-    private DefaultTableModel tableModel;
+    private ExpenseTableModel tableModel;
     private JLabel totalExpenseLabel;
     private JTextArea summaryArea;
 
@@ -28,9 +43,31 @@ public class ExpenseView extends JPanel implements View {
     private JButton addButton;
     private JButton updateButton;
     private JButton deleteButton;
+    private JButton importButton;
+    private JButton exportButton;
+    private JButton metricsButton;
     private JTextField idField;
 
-    public ExpenseView(ExpenseController controller, Expense model) {
+    private JTextField searchField;
+    private Timer searchTimer;
+    private ExpenseTableModel.PageSource allExpenses;
+
+    /**
+     * Query whose results the table shows, or null when it shows every expense.
+     */
+    private String activeQuery;
+
+    /**
+     * Run once the total of some summary, saved or read, is first painted.
+     */
+    private Runnable onContentPainted;
+    private boolean contentShown;
+
+    private JLabel statusLabel;
+    private JProgressBar busyIndicator;
+    private JButton cancelButton;
+
+    public ExpenseView(ExpenseController controller, ExpenseListModel model) {
         this.controller = controller;
         this.model = model;
 
@@ -45,21 +82,43 @@ public class ExpenseView extends JPanel implements View {
         JPanel inputPanel = createInputPanel();
         add(inputPanel, BorderLayout.NORTH);
 
-        tableModel = new DefaultTableModel(new String[]{"ID", "Description", "Category", "Amount", "Date"}, 0);
+        allExpenses = new ExpenseTableModel.PageSource() {
+            @Override
+            public long count() {
+                return controller.countExpenses();
+            }
+
+            @Override
+            public List<Expense> pageAfter(Expense last, int limit) {
+                return controller.listExpensePageAfter(last, limit);
+            }
+
+            @Override
+            public List<Expense> pageAt(long offset, int limit) {
+                return controller.listExpensePageAt(offset, limit);
+            }
+        };
+        tableModel = new ExpenseTableModel(allExpenses, controller.getBackgroundExecutor());
         expenseTable = new JTable(tableModel);
 
         expenseTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting() && expenseTable.getSelectedRow() != -1) {
-                int selectedRow = expenseTable.getSelectedRow();
-                idField.setText(tableModel.getValueAt(selectedRow, 0).toString());
-                descriptionField.setText(tableModel.getValueAt(selectedRow, 1).toString());
-                categoryCombo.setSelectedItem(tableModel.getValueAt(selectedRow, 2));
-                amountField.setText(tableModel.getValueAt(selectedRow, 3).toString());
+                Expense selected = tableModel.getExpenseAt(expenseTable.getSelectedRow());
+                if (selected != null) {
+                    idField.setText(selected.getId().toString());
+                    descriptionField.setText(selected.getDescription());
+                    categoryCombo.setSelectedItem(selected.getCategory());
+                    amountField.setText(Double.toString(selected.getAmount()));
+                }
             }
         });
 
         JScrollPane tableScrollPane = new JScrollPane(expenseTable);
-        add(tableScrollPane, BorderLayout.CENTER);
+        tableScrollPane.getViewport().addChangeListener(e -> requestVisibleRows());
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(createSearchPanel(), BorderLayout.NORTH);
+        tablePanel.add(tableScrollPane, BorderLayout.CENTER);
+        add(tablePanel, BorderLayout.CENTER);
 
         JPanel summaryPanel = createSummaryPanel();
         add(summaryPanel, BorderLayout.SOUTH);
@@ -133,11 +192,87 @@ public class ExpenseView extends JPanel implements View {
         });
         buttonsPanel.add(deleteButton);
 
+        importButton = new JButton("Importar CSV");
+        importButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setFileFilter(new FileNameExtensionFilter("Archivos CSV o de gastos", "csv",
+                    ExpenseExporter.ARCHIVE_EXTENSION));
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                controller.importExpenses(chooser.getSelectedFile().toPath());
+            }
+        });
+        buttonsPanel.add(importButton);
+
+        exportButton = new JButton("Exportar");
+        exportButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.addChoosableFileFilter(new FileNameExtensionFilter("Archivo de gastos", ExpenseExporter.ARCHIVE_EXTENSION));
+            chooser.setFileFilter(new FileNameExtensionFilter("Archivos CSV", "csv"));
+            if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                controller.exportExpenses(chooser.getSelectedFile().toPath());
+            }
+        });
+        buttonsPanel.add(exportButton);
+
+        metricsButton = new JButton("Métricas");
+        metricsButton.addActionListener(e -> controller.dumpMetrics());
+        buttonsPanel.add(metricsButton);
+
         panel.add(buttonsPanel);
 
         return panel;
     }
 
+    /**
+     * Search box that filters the table by description once typing pauses.
+     */
+    private JPanel createSearchPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(new JLabel("Buscar: "), BorderLayout.WEST);
+
+        searchField = new JTextField();
+        panel.add(searchField, BorderLayout.CENTER);
+
+        searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> search());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+
+        return panel;
+    }
+
+    private void search() {
+        String query = searchField.getText().trim();
+        if (query.isEmpty()) {
+            if (activeQuery != null) {
+                activeQuery = null;
+                tableModel.setSource(allExpenses);
+            }
+            return;
+        }
+        activeQuery = query;
+        controller.searchExpenses(query, hits -> {
+            // Drop results of a query the user has typed past.
+            if (query.equals(activeQuery)) {
+                tableModel.setSource(new SearchPageSource(controller, hits));
+            }
+        });
+    }
+
     private void clearInputFields() {
         idField.setText("");
         descriptionField.setText("");
@@ -148,50 +283,186 @@ public class ExpenseView extends JPanel implements View {
     private JPanel createSummaryPanel() {
         JPanel panel = new JPanel(new BorderLayout());
 
-        totalExpenseLabel = new JLabel("Total Gasto: $0.00");
+        totalExpenseLabel = new JLabel("Total Gasto: $0.00") {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                if (contentShown && onContentPainted != null) {
+                    Runnable listener = onContentPainted;
+                    onContentPainted = null;
+                    // Let this paint reach the screen before timing it.
+                    SwingUtilities.invokeLater(listener);
+                }
+            }
+        };
         panel.add(totalExpenseLabel, BorderLayout.NORTH);
 
         summaryArea = new JTextArea(5, 40);
         summaryArea.setEditable(false);
         panel.add(new JScrollPane(summaryArea), BorderLayout.CENTER);
 
+        panel.add(createStatusPanel(), BorderLayout.SOUTH);
+
         return panel;
     }
 
+    private JPanel createStatusPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+
+        busyIndicator = new JProgressBar();
+        busyIndicator.setIndeterminate(true);
+        busyIndicator.setVisible(false);
+        panel.add(busyIndicator);
+
+        statusLabel = new JLabel(" ");
+        panel.add(statusLabel);
+
+        cancelButton = new JButton("Cancelar");
+        cancelButton.setVisible(false);
+        cancelButton.addActionListener(e -> controller.cancelPendingOperations());
+        panel.add(cancelButton);
+
+        return panel;
+    }
+
+    /**
+     * Shows or hides the in-flight indicator. Must be called on the EDT.
+     *
+     * @param busy Whether background work is running
+     * @param status Text describing the running work
+     */
+    public void setBusy(boolean busy, String status) {
+        busyIndicator.setVisible(busy);
+        cancelButton.setVisible(busy);
+        statusLabel.setText(busy ? status : " ");
+    }
+
+    private void requestVisibleRows() {
+        Rectangle visible = expenseTable.getVisibleRect();
+        int firstRow = expenseTable.rowAtPoint(visible.getLocation());
+        int lastRow = expenseTable.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+        if (firstRow == -1) {
+            firstRow = 0;
+        }
+        if (lastRow == -1) {
+            lastRow = Math.max(firstRow, tableModel.getRowCount() - 1);
+        }
+        tableModel.setViewport(firstRow, lastRow);
+    }
+
     public void showError(String message) {
         JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
     }
 
+    public void showMessage(String message) {
+        JOptionPane.showMessageDialog(this, message, "Gastos", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    public void showMetrics(String metrics) {
+        JTextArea text = new JTextArea(metrics, 20, 100);
+        text.setEditable(false);
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(this, new JScrollPane(text), "Métricas", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    public void showImportReport(ImportReport report) {
+        StringBuilder message = new StringBuilder(report.toString());
+        List<RejectedLine> rejections = report.getRejections();
+        for (int i = 0; i < Math.min(10, rejections.size()); i++) {
+            message.append('\n').append(rejections.get(i));
+        }
+        if (report.getRowsRejected() > 10) {
+            message.append("\n...");
+        }
+        JOptionPane.showMessageDialog(this, message.toString(), "Importación", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void showSummary(ExpenseService.ExpenseSummary summary) {
+        totalExpenseLabel.setText(String.format("Total gastos: $%.2f", summary.getTotalAmount()));
+
+        StringBuilder summaryText = new StringBuilder("Categoria:\n");
+        summary.getCategoryCounts().forEach((category, count) -> {
+            double amount = summary.getCategoryCents().getOrDefault(category, 0L) / 100.0;
+            summaryText.append(String.format("%s: %d gastos ($%.2f)\n", category, count, amount));
+        });
+        summaryArea.setText(summaryText.toString());
+        contentShown = true;
+    }
+
+    /**
+     * Runs {@code listener} on the EDT after the first paint that shows a
+     * summary, whether saved or read from storage.
+     */
+    public void whenContentPainted(Runnable listener) {
+        this.onContentPainted = listener;
+    }
+
+    /**
+     * Shows the state saved by a previous run until storage answers. The
+     * summary is only shown if it is of the current month.
+     */
+    public void showSnapshot(ExpenseListSnapshot snapshot) {
+        tableModel.showSnapshot(snapshot.getRowCount(), snapshot.getFirstPage());
+        if (snapshot.getMonth().equals(YearMonth.now())) {
+            showSummary(snapshot.getSummary());
+        }
+    }
+
+    /**
+     * Captures the summary and the first page of the table for the next start.
+     *
+     * @return The snapshot, or null if the table shows search results or rows
+     * not yet read from storage
+     */
+    public ExpenseListSnapshot captureSnapshot(ExpenseService.ExpenseSummary summary) {
+        List<Expense> firstPage = tableModel.getFirstPage();
+        if (activeQuery != null || firstPage == null) {
+            return null;
+        }
+        return new ExpenseListSnapshot(Instant.now(), YearMonth.now(), summary, tableModel.getRowCount(),
+                List.copyOf(firstPage));
+    }
+
+    /**
+     * Applies an {@link ExpenseListEvent}, or reloads everything for any other
+     * change of the list model, timing it as {@code view.update}.
+     */
     @Override
     public void update(Model model, Object data) {
-        if (model instanceof Expense) {
-            Expense expense = (Expense) model;
-
-            List<Expense> expenses = (List<Expense>) expense.getCustomAttribute("expenses");
-            ExpenseService.ExpenseSummary summary
-                    = (ExpenseService.ExpenseSummary) expense.getCustomAttribute("summary");
-
-            tableModel.setRowCount(0);
-            if (expenses != null) {
-                for (Expense exp : expenses) {
-                    tableModel.addRow(new Object[]{
-                        exp.getId(),
-                        exp.getDescription(),
-                        exp.getCategory(),
-                        exp.getAmount(),
-                        exp.getExpenseDate()
-                    });
-                }
+        if (model instanceof ExpenseListModel) {
+            ExpenseService.ExpenseSummary summary;
+            ExpenseDelta delta;
+            if (data instanceof ExpenseListEvent) {
+                ExpenseListEvent event = (ExpenseListEvent) data;
+                summary = event.getSummary();
+                delta = event.getDelta();
+            } else {
+                summary = ((ExpenseListModel) model).getSummary();
+                delta = null;
+            }
+
+            ViewUpdateEvent updateEvent = new ViewUpdateEvent();
+            updateEvent.begin();
+            long start = System.nanoTime();
+
+            if (activeQuery != null) {
+                // Positions in the delta are those of the full list.
+                search();
+            } else if (delta != null) {
+                tableModel.applyDelta(delta);
+            } else {
+                tableModel.reload();
             }
 
             if (summary != null) {
-                totalExpenseLabel.setText(String.format("Total gastos: $%.2f", summary.getTotalAmount()));
+                showSummary(summary);
+            }
 
-                StringBuilder summaryText = new StringBuilder("Categoria:\n");
-                summary.getCategoryCounts().forEach((category, count) -> {
-                    summaryText.append(String.format("%s: %d gastos\n", category, count));
-                });
-                summaryArea.setText(summaryText.toString());
+            MetricsRegistry.global().operation("view.update").record(System.nanoTime() - start, delta == null ? 0 : 1);
+            updateEvent.end();
+            if (updateEvent.shouldCommit()) {
+                updateEvent.incremental = delta != null;
+                updateEvent.commit();
             }
         }
     }
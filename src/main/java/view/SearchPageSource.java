@@ -0,0 +1,38 @@
+package view;
+
+import controller.ExpenseController;
+import java.util.List;
+import model.Expense;
+import search.SearchHits;
+
+/**
+ * Pages over the ids found by a search, in the order the search returned them.
+ */
+class SearchPageSource implements ExpenseTableModel.PageSource {
+    private final ExpenseController controller;
+    private final SearchHits hits;
+    private final int[] ids;
+
+    SearchPageSource(ExpenseController controller, SearchHits hits) {
+        this.controller = controller;
+        this.hits = hits;
+        this.ids = hits.ids();
+    }
+
+    @Override
+    public long count() {
+        return ids.length;
+    }
+
+    @Override
+    public List<Expense> pageAfter(Expense last, int limit) {
+        int position = last == null ? 0 : hits.positionAfter(last.getExpenseDate(), last.id());
+        return pageAt(position, limit);
+    }
+
+    @Override
+    public List<Expense> pageAt(long offset, int limit) {
+        int from = (int) Math.min(offset, ids.length);
+        return controller.findExpensesByIds(ids, from, Math.min(ids.length, from + limit));
+    }
+}
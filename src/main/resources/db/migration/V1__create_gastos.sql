@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS gastos (
+    id INT NOT NULL AUTO_INCREMENT,
+    descripcion VARCHAR(255) NOT NULL,
+    categoria VARCHAR(32) NOT NULL,
+    monto DOUBLE NOT NULL,
+    fecha_gasto DATE NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
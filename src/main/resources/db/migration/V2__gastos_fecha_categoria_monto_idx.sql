@@ -0,0 +1,2 @@
+-- Covers the date-range aggregates: range on fecha_gasto, group by categoria, sum monto.
+CREATE INDEX idx_gastos_fecha_categoria_monto ON gastos (fecha_gasto, categoria, monto);
@@ -0,0 +1,13 @@
+-- Running totals per month (yyyymm) and category, kept in step with gastos by the repository.
+CREATE TABLE IF NOT EXISTS gastos_mensuales (
+    anio_mes INT NOT NULL,
+    categoria VARCHAR(32) NOT NULL,
+    cantidad BIGINT NOT NULL DEFAULT 0,
+    total DOUBLE NOT NULL DEFAULT 0,
+    PRIMARY KEY (anio_mes, categoria)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+INSERT INTO gastos_mensuales (anio_mes, categoria, cantidad, total)
+SELECT EXTRACT(YEAR_MONTH FROM fecha_gasto), categoria, COUNT(*), SUM(monto)
+FROM gastos
+GROUP BY EXTRACT(YEAR_MONTH FROM fecha_gasto), categoria;
@@ -0,0 +1,5 @@
+-- One row per month, locked with SELECT ... FOR UPDATE to serialize budget checks within that month.
+CREATE TABLE IF NOT EXISTS presupuesto_mensual (
+    anio_mes INT NOT NULL,
+    PRIMARY KEY (anio_mes)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,10 @@
+-- Amounts become exact: DECIMAL values read by the repository as whole cents.
+-- Existing DOUBLE values are rounded to the nearest cent.
+ALTER TABLE gastos MODIFY monto DECIMAL(13, 2) NOT NULL;
+ALTER TABLE gastos_mensuales MODIFY total DECIMAL(15, 2) NOT NULL DEFAULT 0;
+-- Totals summed as doubles may have drifted; recompute them from the rounded amounts.
+DELETE FROM gastos_mensuales;
+INSERT INTO gastos_mensuales (anio_mes, categoria, cantidad, total)
+SELECT EXTRACT(YEAR_MONTH FROM fecha_gasto), categoria, COUNT(*), SUM(monto)
+FROM gastos
+GROUP BY EXTRACT(YEAR_MONTH FROM fecha_gasto), categoria;
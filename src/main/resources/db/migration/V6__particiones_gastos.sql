@@ -0,0 +1,29 @@
+-- gastos is partitioned by month of fecha_gasto; PartitionManager splits p_futuro into monthly
+-- partitions pYYYYMM at startup. MySQL requires the partitioning column in every unique key, so
+-- the primary key becomes (id, fecha_gasto); ids stay unique through AUTO_INCREMENT.
+ALTER TABLE gastos DROP PRIMARY KEY, ADD PRIMARY KEY (id, fecha_gasto);
+ALTER TABLE gastos PARTITION BY RANGE COLUMNS (fecha_gasto) (
+    PARTITION p_futuro VALUES LESS THAN (MAXVALUE)
+);
+-- Closed years moved out of gastos. Read-only and compressed, clustered by date for range reports.
+CREATE TABLE IF NOT EXISTS gastos_archivados (
+    id INT NOT NULL,
+    descripcion VARCHAR(255) NOT NULL,
+    categoria VARCHAR(32) NOT NULL,
+    monto DECIMAL(13, 2) NOT NULL,
+    fecha_gasto DATE NOT NULL,
+    PRIMARY KEY (fecha_gasto, id),
+    KEY idx_gastos_archivados_id (id)
+) ENGINE=InnoDB ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8 DEFAULT CHARSET=utf8mb4;
+-- One row per archive run; every expense dated before MAX(archivado_hasta) is in gastos_archivados.
+CREATE TABLE IF NOT EXISTS cortes_archivo (
+    archivado_hasta DATE NOT NULL,
+    filas BIGINT NOT NULL,
+    archivado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (archivado_hasta)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+-- Live and archived expenses together, for reads that reach into archived years.
+CREATE OR REPLACE VIEW gastos_todos AS
+SELECT id, descripcion, categoria, monto, fecha_gasto FROM gastos
+UNION ALL
+SELECT id, descripcion, categoria, monto, fecha_gasto FROM gastos_archivados;